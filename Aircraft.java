@@ -0,0 +1,311 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Aircraft class describes an aircraft type: its rows, the number of seats in each row,
+ * the fare zone of every seat and the default price of every zone.
+ *
+ * An Aircraft is immutable and is shared by every {@link Flight} operated with that type, so all
+ * the lookup tables derived from the layout (row offsets, zone of every seat, seat masks) are
+ * built once per type instead of once per flight. Each flight only holds its own occupancy.
+ *
+ * Aircraft types can be loaded from layout files (see {@link #load(Path)}), so each type can
+ * have its own fare map without changing the code.
+ */
+public class Aircraft {
+    // Name of the aircraft type (e.g. "PM-54")
+    private final String type;
+
+    // Number of seats in each row
+    final int[] rowLengths;
+
+    // Ordinal (0-based position in row-major order) of the first seat of each row
+    final int[] rowOffsets;
+
+    // Row index of every seat ordinal, used to turn an ordinal back into a row
+    final int[] rowOfSeat;
+
+    // Fare zone of every seat ordinal
+    final byte[] zoneOfSeat;
+
+    // Number of long words used for each row of a seat bitmap (a row of up to 64 seats uses one word)
+    final int wordsPerRow;
+
+    // Mask of the bits that correspond to real seats, per row word
+    final long[] seatMasks;
+
+    // Number of seats in each fare zone
+    final int[] seatsInZone;
+
+    // Mask of the seats of each fare zone, per row word: (zone * rows + row) * wordsPerRow + word
+    final long[] zoneMasks;
+
+    // Name of each fare zone (e.g. "yellow")
+    private final String[] zoneNames;
+
+    // Fares compiled from the default price of each zone
+    private final FareTable defaultFares;
+
+    /**
+     * Constructs a new Aircraft type from a grid of fare zones.
+     * The grid has one entry per row, and each row has one zone number per seat,
+     * so the shape of the grid is the shape of the aircraft.
+     *
+     * @param type       the name of the aircraft type
+     * @param zones      the fare zone (0-based) of every seat, indexed by row then column
+     * @param zonePrices the default price of each fare zone in £
+     */
+    public Aircraft(String type, int[][] zones, int[] zonePrices) {
+        this(type, defaultZoneNames(zonePrices.length), zones, zonePrices);
+    }
+
+    /**
+     * Constructs a new Aircraft type from a grid of fare zones, with named zones.
+     *
+     * @param type       the name of the aircraft type
+     * @param zoneNames  the name of each fare zone
+     * @param zones      the fare zone (0-based) of every seat, indexed by row then column
+     * @param zonePrices the default price of each fare zone in £
+     */
+    public Aircraft(String type, String[] zoneNames, int[][] zones, int[] zonePrices) {
+        if (zoneNames.length != zonePrices.length) {
+            throw new IllegalArgumentException("Expected one name per zone price");
+        }
+        int rows = zones.length;
+        int longestRow = 0;
+        int capacity = 0;
+
+        rowLengths = new int[rows];
+        rowOffsets = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            rowLengths[row] = zones[row].length;
+            rowOffsets[row] = capacity;
+            capacity += zones[row].length;
+            longestRow = Math.max(longestRow, zones[row].length);
+            for (int zone : zones[row]) {
+                if (zone < 0 || zone >= zonePrices.length || zone > Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("Invalid fare zone: " + zone);
+                }
+            }
+        }
+
+        this.type = type;
+        this.zoneNames = zoneNames.clone();
+        wordsPerRow = Math.max(1, (longestRow + 63) >>> 6);
+        rowOfSeat = new int[capacity];
+        zoneOfSeat = new byte[capacity];
+        seatMasks = new long[rows * wordsPerRow];
+        seatsInZone = new int[zonePrices.length];
+        zoneMasks = new long[zonePrices.length * rows * wordsPerRow];
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < rowLengths[row]; column++) {
+                int ordinal = rowOffsets[row] + column;
+                rowOfSeat[ordinal] = row;
+                zoneOfSeat[ordinal] = (byte) zones[row][column];
+                seatsInZone[zones[row][column]]++;
+                seatMasks[row * wordsPerRow + (column >>> 6)] |= 1L << column;
+                zoneMasks[(zones[row][column] * rows + row) * wordsPerRow + (column >>> 6)] |= 1L << column;
+            }
+        }
+        this.defaultFares = new FareTable(this, zonePrices);
+    }
+
+    /**
+     * Loads an aircraft type from a layout file. Blank lines and lines starting with '#' are
+     * ignored; the other lines are:
+     * - "type NAME": the name of the aircraft type
+     * - "zone NAME PRICE": a fare zone and its default price in £, in zone order
+     * - "row LABEL ZONE:COUNT ...": the next row, as runs of consecutive seats in the same zone
+     *
+     * For example, a row of 5 yellow seats followed by 4 blue seats is "row A yellow:5 blue:4".
+     *
+     * @param file the layout file
+     * @return The aircraft type
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid layout
+     */
+    public static Aircraft load(Path file) throws IOException {
+        String type = null;
+        List<String> names = new ArrayList<>();
+        List<Integer> prices = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        int lineNumber = 0;
+
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("\\s+");
+            try {
+                switch (fields[0]) {
+                    case "type" -> type = fields[1];
+                    case "zone" -> {
+                        names.add(fields[1]);
+                        prices.add(Integer.parseInt(fields[2]));
+                    }
+                    case "row" -> rows.add(parseRow(fields, names));
+                    default -> throw new IllegalArgumentException("unknown keyword " + fields[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(file + ":" + lineNumber + ": invalid layout line: " + trimmed, e);
+            }
+        }
+
+        if (type == null || rows.isEmpty()) {
+            throw new IllegalArgumentException(file + ": a layout needs a type and at least one row");
+        }
+        int[] zonePrices = prices.stream().mapToInt(Integer::intValue).toArray();
+        return new Aircraft(type, names.toArray(new String[0]), rows.toArray(new int[0][]), zonePrices);
+    }
+
+    // Expands "row LABEL ZONE:COUNT ..." into the zone of every seat of the row
+    private static int[] parseRow(String[] fields, List<String> zoneNames) {
+        List<Integer> seats = new ArrayList<>();
+        for (int i = 2; i < fields.length; i++) {
+            String[] run = fields[i].split(":");
+            int zone = zoneNames.indexOf(run[0]);
+            if (zone < 0) {
+                throw new IllegalArgumentException("unknown zone " + run[0]);
+            }
+            for (int count = Integer.parseInt(run[1]); count > 0; count--) {
+                seats.add(zone);
+            }
+        }
+        return seats.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String[] defaultZoneNames(int count) {
+        String[] names = new String[count];
+        for (int zone = 0; zone < count; zone++) {
+            names[zone] = "zone" + (zone + 1);
+        }
+        return names;
+    }
+
+    /**
+     * Gets the name of the aircraft type.
+     * @return The aircraft type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return The number of rows
+     */
+    public int rowCount() {
+        return rowLengths.length;
+    }
+
+    /**
+     * Gets the number of seats in a row.
+     * @param row The row index (0-based)
+     * @return The number of seats in the row
+     */
+    public int seatsInRow(int row) {
+        return rowLengths[row];
+    }
+
+    /**
+     * Gets the total number of seats.
+     * @return The number of seats
+     */
+    public int capacity() {
+        return rowOfSeat.length;
+    }
+
+    /**
+     * Gets the number of fare zones.
+     * @return The number of zones
+     */
+    public int zoneCount() {
+        return seatsInZone.length;
+    }
+
+    /**
+     * Gets the number of seats in a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The number of seats in the zone
+     */
+    public int seatsInZone(int zone) {
+        return seatsInZone[zone];
+    }
+
+    /**
+     * Gets the fare zone of a seat.
+     * @param ordinal The seat ordinal
+     * @return The fare zone (0-based)
+     */
+    public int zoneOf(int ordinal) {
+        return zoneOfSeat[ordinal];
+    }
+
+    /**
+     * Gets the name of a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The zone name
+     */
+    public String zoneName(int zone) {
+        return zoneNames[zone];
+    }
+
+    /**
+     * Finds a fare zone by name.
+     * @param name The zone name
+     * @return The fare zone (0-based), or -1 if there is no such zone
+     */
+    public int zoneIndex(String name) {
+        for (int zone = 0; zone < zoneNames.length; zone++) {
+            if (zoneNames[zone].equals(name)) {
+                return zone;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the fares compiled from the default price of each zone.
+     * @return The default fares
+     */
+    public FareTable getDefaultFares() {
+        return defaultFares;
+    }
+
+    /**
+     * Converts a row and column into a seat ordinal (the seat's position in row-major order).
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return The seat ordinal
+     */
+    public int ordinal(int row, int column) {
+        if (column < 0 || column >= rowLengths[row]) {
+            throw new IndexOutOfBoundsException("Invalid seat: row " + row + ", column " + column);
+        }
+        return rowOffsets[row] + column;
+    }
+
+    /**
+     * Gets the row index of a seat ordinal.
+     * @param ordinal The seat ordinal
+     * @return The row index (0-based)
+     */
+    public int rowOf(int ordinal) {
+        return rowOfSeat[ordinal];
+    }
+
+    /**
+     * Gets the column index of a seat ordinal.
+     * @param ordinal The seat ordinal
+     * @return The column index (0-based)
+     */
+    public int columnOf(int ordinal) {
+        return ordinal - rowOffsets[rowOfSeat[ordinal]];
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The ArchiveAnalytics class answers sales questions over many {@link TicketArchive} files:
+ * revenue per zone, per row and per date, for all dates or a range of dates.
+ *
+ * Files are scanned in parallel on a {@link ForkJoinPool}, one task per file, and the results
+ * merged as the tasks complete. Files outside the date range are skipped after reading their
+ * header, and every query reads only the columns it needs.
+ */
+public class ArchiveAnalytics {
+    // Extension of archive files
+    public static final String EXTENSION = ".pmta";
+
+    // Files split further while a task has more than this many
+    private static final int FILES_PER_TASK = 1;
+
+    private final List<Path> files;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new ArchiveAnalytics over archive files, run on the common pool.
+     *
+     * @param files the archive files
+     */
+    public ArchiveAnalytics(List<Path> files) {
+        this(files, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new ArchiveAnalytics over archive files.
+     *
+     * @param files the archive files
+     * @param pool  the pool the scans run on
+     */
+    public ArchiveAnalytics(List<Path> files, ForkJoinPool pool) {
+        this.files = List.copyOf(files);
+        this.pool = pool;
+    }
+
+    /**
+     * Lists the archive files of a directory, in name order.
+     *
+     * @param directory the directory
+     * @return The archive files
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).sorted().toList();
+        }
+    }
+
+    /**
+     * Adds up the revenue of every fare zone, by zone name.
+     *
+     * @param from the first date included, or null for no limit
+     * @param to   the last date included, or null for no limit
+     * @return The revenue of every zone, in the order the zones were first found
+     * @throws IOException if an archive cannot be read
+     */
+    public Map<String, Long> revenueByZone(LocalDate from, LocalDate to) throws IOException {
+        return scan(from, to, archive -> {
+            long[] revenue = archive.revenueByZone();
+            Map<String, Long> byName = new LinkedHashMap<>();
+            for (int zone = 0; zone < revenue.length; zone++) {
+                byName.merge(archive.zoneName(zone), revenue[zone], Long::sum);
+            }
+            return byName;
+        }, (left, right) -> {
+            right.forEach((zone, revenue) -> left.merge(zone, revenue, Long::sum));
+            return left;
+        }, LinkedHashMap::new);
+    }
+
+    /**
+     * Adds up the revenue of every row.
+     *
+     * @param from the first date included, or null for no limit
+     * @param to   the last date included, or null for no limit
+     * @return The revenue of every row, by row index
+     * @throws IOException if an archive cannot be read
+     */
+    public long[] revenueByRow(LocalDate from, LocalDate to) throws IOException {
+        return scan(from, to, TicketArchive::revenueByRow, (left, right) -> {
+            long[] sum = Arrays.copyOf(left, Math.max(left.length, right.length));
+            for (int row = 0; row < right.length; row++) {
+                sum[row] += right[row];
+            }
+            return sum;
+        }, () -> new long[0]);
+    }
+
+    /**
+     * Adds up the revenue of every date.
+     *
+     * @param from the first date included, or null for no limit
+     * @param to   the last date included, or null for no limit
+     * @return The revenue of every date with flights, in date order
+     * @throws IOException if an archive cannot be read
+     */
+    public Map<LocalDate, Long> revenueByDate(LocalDate from, LocalDate to) throws IOException {
+        return scan(from, to, archive -> {
+            Map<LocalDate, Long> byDate = new TreeMap<>();
+            byDate.put(archive.getDate(), archive.revenue());
+            return byDate;
+        }, (left, right) -> {
+            right.forEach((date, revenue) -> left.merge(date, revenue, Long::sum));
+            return left;
+        }, TreeMap::new);
+    }
+
+    /**
+     * Counts the tickets archived, reading only the file headers.
+     *
+     * @param from the first date included, or null for no limit
+     * @param to   the last date included, or null for no limit
+     * @return The number of tickets
+     * @throws IOException if an archive cannot be read
+     */
+    public long ticketCount(LocalDate from, LocalDate to) throws IOException {
+        return scan(from, to, archive -> (long) archive.ticketCount(), Long::sum, () -> 0L);
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Reads one archive file for a query
+    private interface FileQuery<T> {
+        T apply(TicketArchive archive);
+    }
+
+    // Runs a query over every file in the date range, in parallel, and merges the results; merge
+    // may modify its left argument, so every task starts from a new empty result
+    private <T> T scan(LocalDate from, LocalDate to, FileQuery<T> query, BinaryOperator<T> merge, Supplier<T> empty)
+            throws IOException {
+        try {
+            return pool.invoke(new Scan<>(files, from, to, query, merge, empty));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Splits the files in halves until a task has one file, then runs the query on it
+    private static final class Scan<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final transient FileQuery<T> query;
+        private final transient BinaryOperator<T> merge;
+        private final transient Supplier<T> empty;
+
+        Scan(List<Path> files, LocalDate from, LocalDate to, FileQuery<T> query, BinaryOperator<T> merge, Supplier<T> empty) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.merge = merge;
+            this.empty = empty;
+        }
+
+        @Override
+        protected T compute() {
+            if (files.size() > FILES_PER_TASK) {
+                int middle = files.size() / 2;
+                Scan<T> left = new Scan<>(files.subList(0, middle), from, to, query, merge, empty);
+                Scan<T> right = new Scan<>(files.subList(middle, files.size()), from, to, query, merge, empty);
+                right.fork();
+                T result = left.compute();
+                return merge.apply(result, right.join());
+            }
+            T result = empty.get();
+            for (Path file : files) {
+                try {
+                    TicketArchive archive = TicketArchive.open(file);
+                    LocalDate date = archive.getDate();
+                    if ((from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to))) {
+                        result = merge.apply(result, query.apply(archive));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The BatchProcessor class runs booking commands from a command file through a
+ * {@link BookingService}, without the console prompts, for bulk imports.
+ *
+ * The command file has one command per line, with comma-separated fields (fields cannot
+ * contain commas, and spaces around them are ignored). Blank lines and lines starting with '#'
+ * are ignored.
+ * - "buy,ROW,SEAT,NAME,SURNAME,EMAIL": buys a seat
+ * - "cancel,ROW,SEAT": cancels a seat
+ * - "search,ROW,SEAT": finds the ticket of a seat
+ *
+ * ROW is a row letter (A is the first row) or a 1-based row number, SEAT is the 1-based seat
+ * number. One result line is written per command:
+ * - "LINE,buy,A5,OK,PRICE" or "LINE,buy,A5,SOLD"
+ * - "LINE,cancel,A5,OK,PRICE" or "LINE,cancel,A5,NOT_SOLD"
+ * - "LINE,search,A5,FOUND,NAME SURNAME,EMAIL,PRICE" or "LINE,search,A5,NOT_FOUND"
+ * - "LINE,COMMAND,,ERROR,MESSAGE" for a line that is not a valid command
+ * - "LINE,buy,A5,ERROR,MESSAGE" for a command the booking engine rejects (e.g. a name too long
+ *   to journal); the file goes on with the next command
+ *
+ * A MESSAGE holding a comma, quote or line break is written in double quotes, with its quotes
+ * doubled, as in CSV.
+ *
+ * Lines are parsed by hand on a reader thread, a batch at a time, into reused arrays, while
+ * the calling thread applies the previous batch and writes its results in one write.
+ */
+public class BatchProcessor {
+    // Command codes
+    private static final byte BUY = 1;
+    private static final byte CANCEL = 2;
+    private static final byte SEARCH = 3;
+    private static final byte INVALID = 4;
+
+    // Batches parsed ahead of the one being applied
+    private static final int BATCHES_IN_FLIGHT = 2;
+
+    // The booking engine commands are applied to
+    private final BookingService bookings;
+
+    // Number of commands parsed and applied together
+    private final int batchSize;
+
+    // Time taken to apply each command
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    // Number of commands applied, and how many of them were invalid
+    private long commands;
+    private long errors;
+
+    /**
+     * Constructs a new BatchProcessor.
+     *
+     * @param bookings  the booking engine to apply commands to
+     * @param batchSize the number of commands parsed and applied together
+     */
+    public BatchProcessor(BookingService bookings, int batchSize) {
+        this.bookings = bookings;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Applies every command of a command file and writes one result line per command.
+     * The writer is flushed but not closed.
+     *
+     * @param in  the command file
+     * @param out where results are written
+     * @return The number of commands applied
+     * @throws IOException if the commands cannot be read or the results cannot be written
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT + 1);
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT + 1);
+        for (int i = 0; i <= BATCHES_IN_FLIGHT; i++) {
+            free.add(new Batch(batchSize));
+        }
+
+        Thread reader = new Thread(() -> parse(in, free, parsed), "batch-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        StringBuilder results = new StringBuilder(batchSize * 32);
+        try {
+            while (true) {
+                Batch batch = parsed.take();
+                if (batch.failure != null) {
+                    throw batch.failure;
+                }
+                results.setLength(0);
+                for (int i = 0; i < batch.size; i++) {
+                    long start = System.nanoTime();
+                    apply(batch, i, results);
+                    latencies.record(System.nanoTime() - start);
+                }
+                out.append(results);
+                commands += batch.size;
+                if (batch.last) {
+                    break;
+                }
+                free.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while applying commands", e);
+        } finally {
+            reader.interrupt();
+        }
+        out.flush();
+        return commands;
+    }
+
+    /**
+     * Gets the time taken to apply each command so far.
+     * @return The latency histogram
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Gets the number of commands applied so far.
+     * @return The number of commands
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * Gets the number of invalid commands seen so far.
+     * @return The number of invalid commands
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    // ========== Applying commands ========== //
+
+    private void apply(Batch batch, int i, StringBuilder results) {
+        results.append(batch.lines[i]).append(',');
+        if (batch.commands[i] == INVALID) {
+            errors++;
+            results.append(batch.names[i]).append(",,ERROR,");
+            appendMessage(results, batch.messages[i]);
+            results.append('\n');
+            return;
+        }
+        int row = batch.rows[i];
+        int seat = batch.seats[i];
+        if (row < 0 || row >= bookings.getSeats().rowCount() || seat < 1 || seat > bookings.getSeats().seatsInRow(row)) {
+            errors++;
+            results.append(name(batch.commands[i])).append(",,ERROR,no such seat\n");
+            return;
+        }
+        results.append(name(batch.commands[i])).append(',');
+        appendSeat(results, row, seat);
+        try {
+            applyCommand(batch, i, row, seat, results);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Rejected before any seat was touched (e.g. a name too long to journal)
+            errors++;
+            results.append(",ERROR,");
+            appendMessage(results, e.getMessage());
+            results.append('\n');
+        }
+    }
+
+    private void applyCommand(Batch batch, int i, int row, int seat, StringBuilder results) {
+        switch (batch.commands[i]) {
+            case BUY -> {
+                Ticket ticket = bookings.buy(row, seat, new Person(batch.names[i], batch.surnames[i], batch.emails[i]));
+                if (ticket == null) {
+                    results.append(",SOLD\n");
+                } else {
+                    results.append(",OK,").append(ticket.getPrice()).append('\n');
+                }
+            }
+            case CANCEL -> {
+                Ticket ticket = bookings.cancel(row, seat);
+                if (ticket == null) {
+                    results.append(",NOT_SOLD\n");
+                } else {
+                    results.append(",OK,").append(ticket.getPrice()).append('\n');
+                }
+            }
+            default -> {
+                Ticket ticket = bookings.findTicket(row, seat);
+                if (ticket == null) {
+                    results.append(",NOT_FOUND\n");
+                } else {
+                    Person person = ticket.getPerson();
+                    results.append(",FOUND,").append(person.getName()).append(' ').append(person.getSurname())
+                            .append(',').append(person.getEmail()).append(',').append(ticket.getPrice()).append('\n');
+                }
+            }
+        }
+    }
+
+    private static String name(byte command) {
+        return switch (command) {
+            case BUY -> "buy";
+            case CANCEL -> "cancel";
+            default -> "search";
+        };
+    }
+
+    // Seat as shown to users: row letter and seat number (e.g. "A5"), or "27-5" past row Z
+    private static void appendSeat(StringBuilder results, int row, int seat) {
+        if (row < 26) {
+            results.append((char) ('A' + row));
+        } else {
+            results.append(row + 1).append('-');
+        }
+        results.append(seat);
+    }
+
+    // Error message as one CSV field: quoted, with quotes doubled, if it would break the row
+    private static void appendMessage(StringBuilder results, String message) {
+        String text = String.valueOf(message);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            results.append(text);
+            return;
+        }
+        results.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    // ========== Parsing commands ========== //
+
+    // Runs on the reader thread: fills free batches with parsed lines until the input ends
+    private void parse(BufferedReader in, BlockingQueue<Batch> free, BlockingQueue<Batch> parsed) {
+        long lineNumber = 0;
+        try {
+            while (true) {
+                Batch batch = free.take();
+                batch.size = 0;
+                String line = null;
+                while (batch.size < batchSize && (line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (parseLine(line, lineNumber, batch)) {
+                        batch.size++;
+                    }
+                }
+                batch.last = line == null;
+                parsed.put(batch);
+                if (batch.last) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            Batch failed = new Batch(0);
+            failed.failure = e;
+            parsed.offer(failed);
+        } catch (InterruptedException e) {
+            // The applying thread stopped early; nothing is waiting for more batches
+        }
+    }
+
+    // Parses one line into the next slot of a batch, returns false for blank and comment lines
+    private static boolean parseLine(String line, long lineNumber, Batch batch) {
+        int length = line.length();
+        int start = 0;
+        while (start < length && line.charAt(start) <= ' ') {
+            start++;
+        }
+        if (start == length || line.charAt(start) == '#') {
+            return false;
+        }
+
+        int i = batch.size;
+        batch.lines[i] = lineNumber;
+        int end = field(line, start);
+        String command = line.substring(start, end).trim();
+        try {
+            if (command.equalsIgnoreCase("buy")) {
+                batch.commands[i] = BUY;
+            } else if (command.equalsIgnoreCase("cancel")) {
+                batch.commands[i] = CANCEL;
+            } else if (command.equalsIgnoreCase("search")) {
+                batch.commands[i] = SEARCH;
+            } else {
+                throw new IllegalArgumentException("unknown command");
+            }
+            start = next(line, end);
+            end = field(line, start);
+            batch.rows[i] = parseRow(line, start, end);
+            start = next(line, end);
+            end = field(line, start);
+            batch.seats[i] = parseNumber(line, start, end);
+
+            if (batch.commands[i] == BUY) {
+                start = next(line, end);
+                end = field(line, start);
+                batch.names[i] = line.substring(start, end).trim();
+                start = next(line, end);
+                end = field(line, start);
+                batch.surnames[i] = line.substring(start, end).trim();
+                start = next(line, end);
+                batch.emails[i] = line.substring(start, field(line, start)).trim();
+            }
+        } catch (RuntimeException e) {
+            batch.commands[i] = INVALID;
+            batch.names[i] = command;
+            batch.messages[i] = e instanceof NumberFormatException ? "invalid number" : e.getMessage();
+        }
+        return true;
+    }
+
+    // Row letter (A is row 0) or 1-based row number
+    private static int parseRow(String line, int start, int end) {
+        while (start < end && line.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end - start == 1 && Character.isLetter(line.charAt(start))) {
+            return Character.toUpperCase(line.charAt(start)) - 'A';
+        }
+        return parseNumber(line, start, end) - 1;
+    }
+
+    // Number between start and end, ignoring surrounding spaces, without creating a substring
+    private static int parseNumber(String line, int start, int end) {
+        while (start < end && line.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return Integer.parseInt(line, start, end, 10);
+    }
+
+    // End of the field starting at start (the next comma or the end of the line)
+    private static int field(String line, int start) {
+        int comma = line.indexOf(',', start);
+        return comma < 0 ? line.length() : comma;
+    }
+
+    // Start of the field after the one ending at end
+    private static int next(String line, int end) {
+        if (end >= line.length()) {
+            throw new IllegalArgumentException("missing field");
+        }
+        return end + 1;
+    }
+
+    // Commands parsed from consecutive lines, in parallel arrays reused from batch to batch
+    private static final class Batch {
+        final byte[] commands;
+        final long[] lines;
+        final int[] rows;
+        final int[] seats;
+        final String[] names;
+        final String[] surnames;
+        final String[] emails;
+        final String[] messages;
+        int size;
+        boolean last;
+        IOException failure;
+
+        Batch(int capacity) {
+            commands = new byte[capacity];
+            lines = new long[capacity];
+            rows = new int[capacity];
+            seats = new int[capacity];
+            names = new String[capacity];
+            surnames = new String[capacity];
+            emails = new String[capacity];
+            messages = new String[capacity];
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * The BookingEvent class records one change of a seat's state, as published to a
+ * {@link BookingEventLog}. Events are immutable, so every subscriber can keep them.
+ *
+ * Events of one seat are published in the order the changes happened: a sale before the
+ * cancellation of its ticket, a hold before its release or sale.
+ */
+public final class BookingEvent {
+
+    /**
+     * The kinds of seat change.
+     */
+    public enum Type {
+        // A ticket was sold for the seat
+        BOOK,
+        // The seat's ticket was cancelled and the seat released
+        CANCEL,
+        // The seat was held for a customer
+        HOLD,
+        // A hold ran out or was released without a sale
+        RELEASE
+    }
+
+    // Position of the event in the log
+    private final long sequence;
+
+    // What happened
+    private final Type type;
+
+    // The flight and seat it happened to
+    private final String flightNumber;
+    private final int ordinal;
+    private final int row;
+    private final int seat;
+
+    // The ticket sold or cancelled (null for holds)
+    private final Ticket ticket;
+
+    // The System.nanoTime() when the event was published
+    private final long publishedNanos;
+
+    BookingEvent(long sequence, Type type, String flightNumber, int ordinal, int row, int seat, Ticket ticket) {
+        this.sequence = sequence;
+        this.type = type;
+        this.flightNumber = flightNumber;
+        this.ordinal = ordinal;
+        this.row = row;
+        this.seat = seat;
+        this.ticket = ticket;
+        this.publishedNanos = System.nanoTime();
+    }
+
+    /**
+     * Gets the position of the event in its log; events are numbered from 0 without gaps.
+     * @return The sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets what happened to the seat.
+     * @return The event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the flight the seat belongs to.
+     * @return The flight number
+     */
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    /**
+     * Gets the seat ordinal (see {@link SeatMap#ordinal(int, int)}).
+     * @return The seat ordinal
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Gets the row of the seat.
+     * @return The row index (0-based)
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the seat number.
+     * @return The seat number (1-based)
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Gets the ticket sold or cancelled.
+     * @return The ticket, or null for a hold or release
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Gets when the event was published, for measuring how long subscribers take to see it.
+     * @return The {@link System#nanoTime()} at publication
+     */
+    public long getPublishedNanos() {
+        return publishedNanos;
+    }
+}
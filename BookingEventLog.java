@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The BookingEventLog class is a ring buffer of {@link BookingEvent}s that booking services
+ * publish to and any number of subscribers read from, each on its own thread.
+ * - Publishing claims the next sequence number with one atomic increment and stores the event
+ *   in its slot; it takes no lock
+ * - Every subscriber has its own read position and is given the events in order, in batches of
+ *   whatever has been published since its last batch
+ * - A publisher waits (spinning, then parking) when the slowest subscriber is a whole ring
+ *   behind, so a slow subscriber slows down booking
+ * - A subscriber whose thread dies (an Error thrown by its handler) is dropped, so it cannot
+ *   hold publishers up; events it had not handled are lost to it
+ *
+ * Many booking threads publish at once, so slots are claimed by an atomic counter rather than
+ * owned by a single writer. An event is only visible to subscribers once stored, and a slot
+ * holds the event's sequence number, so a subscriber never reads a slot that is still being
+ * filled or one that has already been reused.
+ *
+ * Subscribers take work off the booking threads (persistence, monitoring, derived views). The
+ * time each batch waited in the log is recorded in {@link BookingMetrics} as event delivery.
+ */
+public class BookingEventLog implements AutoCloseable {
+
+    /**
+     * A subscriber to the log.
+     */
+    public interface Handler {
+        /**
+         * Handles one event. Called on the subscriber's own thread, for every event in order.
+         *
+         * @param event      the event
+         * @param endOfBatch true for the last event available right now, so work can be
+         *                   batched up to it (e.g. one flush per batch)
+         */
+        void onEvent(BookingEvent event, boolean endOfBatch);
+    }
+
+    // Times a waiting thread spins before it starts parking
+    private static final int SPIN_TRIES = 100;
+
+    // How long a waiting thread parks between checks
+    private static final long PARK_NANOS = 50_000;
+
+    // The slots, reused every capacity events
+    private final AtomicReferenceArray<BookingEvent> ring;
+    private final int mask;
+
+    // Next sequence number to hand out
+    private final AtomicLong next = new AtomicLong();
+
+    // The subscribers (replaced as a whole when one is added)
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+
+    // Set once close() is called
+    private volatile boolean closed;
+
+    // Calls to publish() in progress; close() waits for them, so every event whose publish
+    // got past the closed check is handed to the subscribers
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    /**
+     * Constructs a new, empty BookingEventLog.
+     *
+     * @param capacity the number of events the ring holds, a power of two
+     * @throws IllegalArgumentException if the capacity is not a power of two
+     */
+    public BookingEventLog(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Starts a subscriber thread that is given every event published from now on.
+     *
+     * @param name    the name of the subscriber, used for its thread
+     * @param handler the subscriber
+     */
+    public synchronized void subscribe(String name, Handler handler) {
+        if (closed) {
+            throw new IllegalStateException("The event log is closed");
+        }
+        Subscriber subscriber = new Subscriber(handler, next.get());
+        Subscriber[] current = subscribers;
+        Subscriber[] grown = java.util.Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = subscriber;
+        subscribers = grown;
+        Thread thread = new Thread(subscriber::run, "event-log-" + name);
+        thread.setDaemon(true);
+        subscriber.thread = thread;
+        thread.start();
+    }
+
+    /**
+     * Publishes a seat change.
+     *
+     * @param type         what happened
+     * @param flightNumber the flight
+     * @param ordinal      the seat ordinal
+     * @param row          the row index (0-based)
+     * @param seat         the seat number (1-based)
+     * @param ticket       the ticket sold or cancelled (null for holds)
+     * @return The event's sequence number, or -1 if the log is closed and the event was dropped
+     *         (publishers have usually made the change already, so a closed log does not throw;
+     *         check {@link #isClosed()} before making it instead)
+     */
+    public long publish(BookingEvent.Type type, String flightNumber, int ordinal, int row, int seat, Ticket ticket) {
+        publishing.incrementAndGet();
+        try {
+            if (closed) {
+                return -1;
+            }
+            long sequence = next.getAndIncrement();
+            long wrapPoint = sequence - ring.length();
+            for (int tries = 0; wrapPoint >= slowest(); tries++) {
+                pause(tries);
+            }
+            ring.set((int) sequence & mask, new BookingEvent(sequence, type, flightNumber, ordinal, row, seat, ticket));
+            return sequence;
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Checks if the log has been closed, after which events are dropped.
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the number of events published so far.
+     * @return The number of events
+     */
+    public long published() {
+        return next.get();
+    }
+
+    /**
+     * Waits until every subscriber has handled every event published so far.
+     */
+    public void drain() {
+        long target = next.get();
+        for (int tries = 0; slowest() < target; tries++) {
+            pause(tries);
+        }
+    }
+
+    /**
+     * Stops accepting events, waits for the publishes in progress, lets every subscriber handle
+     * the events published, and stops the subscriber threads.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (int tries = 0; publishing.get() > 0; tries++) {
+            pause(tries);
+        }
+        drain();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.running = false;
+            LockSupport.unpark(subscriber.thread);
+            try {
+                subscriber.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Sequence number of the next event the slowest live subscriber will read (a subscriber
+    // whose thread died has its position set past every event)
+    private long slowest() {
+        long slowest = next.get();
+        for (Subscriber subscriber : subscribers) {
+            slowest = Math.min(slowest, subscriber.position.get());
+        }
+        return slowest;
+    }
+
+    private static void pause(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < 2 * SPIN_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    // One subscriber: its handler, thread and read position
+    private final class Subscriber {
+        private final Handler handler;
+        private final AtomicLong position;
+        private volatile boolean running = true;
+        private Thread thread;
+
+        Subscriber(Handler handler, long start) {
+            this.handler = handler;
+            this.position = new AtomicLong(start);
+        }
+
+        private void run() {
+            try {
+                deliver();
+            } catch (Error e) {
+                System.out.println("Event subscriber " + thread.getName() + " died and was dropped; events from "
+                        + position.get() + " on may not have been handled");
+                e.printStackTrace();
+            } finally {
+                // Nothing reads for this subscriber any more: stop publishers waiting for it
+                position.set(Long.MAX_VALUE);
+            }
+        }
+
+        private void deliver() {
+            List<BookingEvent> batch = new ArrayList<>();
+            BookingMetrics metrics = BookingMetrics.getDefault();
+            long sequence = position.get();
+            int idle = 0;
+            while (running) {
+                BookingEvent event;
+                while ((event = ring.get((int) (sequence + batch.size()) & mask)) != null
+                        && event.getSequence() == sequence + batch.size() && batch.size() <= mask) {
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    pause(idle++);
+                    continue;
+                }
+                idle = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        handler.onEvent(batch.get(i), i == batch.size() - 1);
+                    } catch (RuntimeException e) {
+                        System.out.println("Event subscriber " + thread.getName() + " failed on event " + batch.get(i).getSequence());
+                        e.printStackTrace();
+                    }
+                }
+                metrics.record(BookingMetrics.Operation.EVENT_DELIVERY, batch.get(batch.size() - 1).getPublishedNanos(), true);
+                sequence += batch.size();
+                position.set(sequence);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The BookingMetrics class counts and times the booking operations, so the engine can be
+ * watched while it runs instead of only through console messages.
+ * - Every operation has a {@link LatencyHistogram} of its durations
+ * - Operations that did not succeed for a normal reason (seat already sold, nothing to cancel,
+ *   nothing found) are counted as rejected
+ * - Operations that failed with an I/O error (saving a ticket, writing the journal or a
+ *   snapshot) are counted as failed
+ *
+ * Recording never allocates and is safe from any number of threads. The metrics can be written
+ * as text or JSON on demand (see {@link #toText()} and {@link #toJson()}) or to a file at a
+ * fixed interval (see {@link #dumpEvery(Path, long, boolean)}).
+ */
+public class BookingMetrics {
+
+    /**
+     * The operations that are measured.
+     */
+    public enum Operation {
+        SEAT_CHECK("seat_check"),
+        BOOK("book"),
+        CANCEL("cancel"),
+        SEARCH("search"),
+        TICKET_SAVE("ticket_save"),
+        JOURNAL_WRITE("journal_write"),
+        SNAPSHOT_WRITE("snapshot_write"),
+        EVENT_DELIVERY("event_delivery"),
+        REALLOCATE("reallocate");
+
+        // Name used in the text and JSON output
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Gets the name of the operation in the text and JSON output.
+         * @return The name
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    // Metrics recorded by every booking service, ticket and journal not given others
+    private static final BookingMetrics DEFAULT = new BookingMetrics();
+
+    // Runs the periodic dumps of every BookingMetrics (created on first use)
+    private static ScheduledExecutorService dumper;
+
+    // Durations, rejections and failures of each operation, indexed by ordinal
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] rejected = new LongAdder[latencies.length];
+    private final LongAdder[] failed = new LongAdder[latencies.length];
+
+    /**
+     * Constructs a new BookingMetrics with nothing recorded.
+     */
+    public BookingMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            rejected[i] = new LongAdder();
+            failed[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Gets the metrics shared by the whole application.
+     * @return The shared metrics
+     */
+    public static BookingMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    // ========== Recording ========== //
+
+    /**
+     * Records an operation that started at startNanos and has just finished.
+     *
+     * @param operation  The operation
+     * @param startNanos The {@link System#nanoTime()} when it started
+     * @param succeeded  false if the operation was rejected (e.g. the seat was already sold)
+     */
+    public void record(Operation operation, long startNanos, boolean succeeded) {
+        int i = operation.ordinal();
+        latencies[i].record(System.nanoTime() - startNanos);
+        if (!succeeded) {
+            rejected[i].increment();
+        }
+    }
+
+    /**
+     * Records an operation that started at startNanos and has just failed with an error.
+     *
+     * @param operation  The operation
+     * @param startNanos The {@link System#nanoTime()} when it started
+     */
+    public void recordFailure(Operation operation, long startNanos) {
+        int i = operation.ordinal();
+        latencies[i].record(System.nanoTime() - startNanos);
+        failed[i].increment();
+    }
+
+    // ========== Reading ========== //
+
+    /**
+     * Gets the durations of an operation.
+     * @param operation The operation
+     * @return The latency histogram
+     */
+    public LatencyHistogram latencies(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Gets the number of times an operation was recorded.
+     * @param operation The operation
+     * @return The count
+     */
+    public long count(Operation operation) {
+        return latencies[operation.ordinal()].count();
+    }
+
+    /**
+     * Gets the number of times an operation was rejected.
+     * @param operation The operation
+     * @return The count
+     */
+    public long rejected(Operation operation) {
+        return rejected[operation.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of times an operation failed with an error.
+     * @param operation The operation
+     * @return The count
+     */
+    public long failed(Operation operation) {
+        return failed[operation.ordinal()].sum();
+    }
+
+    /**
+     * Clears everything recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            rejected[i].reset();
+            failed[i].reset();
+        }
+    }
+
+    /**
+     * Writes the metrics as text, one line per operation, with durations in microseconds.
+     * @return The text
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder(1024);
+        for (Operation operation : Operation.values()) {
+            text.append(String.format("%-15s rejected=%d failed=%d %s%n", operation.getKey(),
+                    rejected(operation), failed(operation), latencies(operation)));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the metrics as a JSON object with one member per operation, durations in nanoseconds.
+     * @return The JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024).append('{');
+        Operation[] operations = Operation.values();
+        for (int i = 0; i < operations.length; i++) {
+            LatencyHistogram histogram = latencies[i];
+            json.append(i == 0 ? "" : ",").append('"').append(operations[i].getKey()).append("\":{")
+                    .append("\"count\":").append(histogram.count())
+                    .append(",\"rejected\":").append(rejected[i].sum())
+                    .append(",\"failed\":").append(failed[i].sum())
+                    .append(",\"meanNanos\":").append(Math.round(histogram.mean()))
+                    .append(",\"p50Nanos\":").append(histogram.percentile(50))
+                    .append(",\"p99Nanos\":").append(histogram.percentile(99))
+                    .append(",\"p999Nanos\":").append(histogram.percentile(99.9))
+                    .append(",\"maxNanos\":").append(histogram.max())
+                    .append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    // ========== Periodic dumps ========== //
+
+    /**
+     * Writes the metrics to a file at a fixed interval, replacing the file each time, until the
+     * returned future is cancelled. The dumps run on a background daemon thread.
+     *
+     * @param file         The file to write
+     * @param periodMillis The interval between dumps, in milliseconds
+     * @param json         true to write JSON, false to write text
+     * @return The future to cancel to stop dumping
+     */
+    public ScheduledFuture<?> dumpEvery(Path file, long periodMillis, boolean json) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Invalid dump period: " + periodMillis);
+        }
+        return dumper().scheduleAtFixedRate(() -> dump(file, json), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the metrics to a file once, replacing it atomically so readers never see half a dump.
+     *
+     * @param file The file to write
+     * @param json true to write JSON, false to write text
+     */
+    public void dump(Path file, boolean json) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(temporary, json ? toJson() + "\n" : toText(), StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("An error occurred while writing metrics to: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    private static synchronized ScheduledExecutorService dumper() {
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return dumper;
+    }
+}
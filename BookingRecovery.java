@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The BookingRecovery class rebuilds seat maps and ticket registries at startup from a
+ * {@link BookingSnapshot} plus the {@link TicketJournal} segments written after it, and keeps
+ * startup fast by folding closed journal segments into a new snapshot (checkpointing).
+ *
+ * Startup time is bounded by the size of the snapshot (the tickets currently held) plus the
+ * journal tail since the last checkpoint, not by the full booking history.
+ *
+ * The snapshots and the journal segments live in the same directory. Every snapshot is written
+ * under a new name holding the sequence number it runs up to, and the newest one is the live
+ * snapshot. A snapshot is never renamed over, because tickets restored from it stay mapped views
+ * of the file (and Windows cannot replace a mapped file); older snapshots are deleted once a
+ * newer one is on disk, or left for the next checkpoint if they are still mapped.
+ */
+public class BookingRecovery {
+    // Name of the single snapshot file written by earlier versions, still read if no numbered
+    // snapshot exists
+    public static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    // Snapshot file names: prefix, fixed-width sequence number of the next record, suffix
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    /**
+     * Loads the snapshot and replays the journal tail into the booking services of each flight.
+     * The services should be empty; records for flights without a service are skipped.
+     *
+     * @param directory the journal directory
+     * @param flights   gives the booking service of a flight number, or null if it is unknown
+     * @return The sequence number of the last record recovered (pass it to the new journal)
+     * @throws IOException if the snapshot or a segment cannot be read
+     */
+    public static long recover(Path directory, Function<String, BookingService> flights) throws IOException {
+        int[] skipped = new int[1];
+        TicketJournal.RecordHandler apply = (sequence, type, flightNumber, ticket) -> {
+            BookingService bookings = flights.apply(flightNumber);
+            if (bookings == null) {
+                skipped[0]++;
+                return;
+            }
+            try {
+                if (type == TicketJournal.BOOK) {
+                    bookings.restoreSale(ticket);
+                } else {
+                    bookings.restoreCancellation(ticket.getRow(), ticket.getSeat());
+                }
+            } catch (IllegalArgumentException e) {
+                // The seat does not exist on the flight's aircraft any more
+                skipped[0]++;
+            }
+        };
+
+        long lastSequence = replay(directory, apply);
+        if (skipped[0] > 0) {
+            System.out.println("Skipped " + skipped[0] + " journal records for unknown flights or seats");
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Writes a snapshot of the current state of the given flights and deletes every journal
+     * segment. Must only be called while no bookings are being made, typically at startup right
+     * after {@link #recover} and before the journal is opened. Segments are only deleted once the
+     * snapshot is safely on disk (see {@link BookingSnapshot#write}).
+     *
+     * If nothing was journaled after the current snapshot, the snapshot already holds this state:
+     * it is kept as it is (tickets restored from it keep reading it) and only the segments are
+     * deleted.
+     *
+     * @param directory    the journal directory
+     * @param lastSequence the sequence number of the last record included in the state
+     * @param flights      the booking services of every flight
+     * @throws IOException if the snapshot cannot be written or a segment cannot be deleted
+     */
+    public static void snapshot(Path directory, long lastSequence, Collection<BookingService> flights) throws IOException {
+        Files.createDirectories(directory);
+        if (BookingSnapshot.lastSequence(liveSnapshot(directory)) != lastSequence) {
+            Map<String, List<Ticket>> tickets = new LinkedHashMap<>();
+            for (BookingService bookings : flights) {
+                tickets.put(bookings.getFlightNumber(), List.of(bookings.tickets()));
+            }
+            // Forced to disk before it returns: a crash can never leave neither snapshot nor journal
+            writeSnapshot(directory, lastSequence, tickets);
+        }
+        for (Path segment : TicketJournal.segments(directory)) {
+            Files.delete(segment);
+        }
+    }
+
+    /**
+     * Checkpoints a running journal: starts a new segment, folds the snapshot and every closed
+     * segment into a new snapshot, and deletes those segments once the snapshot is safely on
+     * disk. Bookings can continue while this runs because only closed files are read.
+     *
+     * @param journal the open journal
+     * @return The sequence number of the last record included in the new snapshot
+     * @throws IOException if a file cannot be read, written or deleted
+     */
+    public static long checkpoint(TicketJournal journal) throws IOException {
+        Path directory = journal.getDirectory();
+        long boundary = journal.roll().join();
+
+        List<Path> closed = new ArrayList<>();
+        for (Path segment : TicketJournal.segments(directory)) {
+            if (TicketJournal.segmentStart(segment) < boundary) {
+                closed.add(segment);
+            }
+        }
+
+        // Tickets held by each flight, keyed by (row, seat)
+        Map<String, Map<Integer, Ticket>> state = new LinkedHashMap<>();
+        TicketJournal.RecordHandler fold = (sequence, type, flightNumber, ticket) -> {
+            if (sequence >= boundary) {
+                return;
+            }
+            Map<Integer, Ticket> tickets = state.computeIfAbsent(flightNumber, key -> new HashMap<>());
+            int seatKey = (ticket.getRow() << 16) | ticket.getSeat();
+            if (type == TicketJournal.BOOK) {
+                tickets.put(seatKey, ticket);
+            } else {
+                tickets.remove(seatKey);
+            }
+        };
+        replay(directory, closed, fold);
+
+        Map<String, Collection<Ticket>> tickets = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Integer, Ticket>> flight : state.entrySet()) {
+            if (!flight.getValue().isEmpty()) {
+                tickets.put(flight.getKey(), flight.getValue().values());
+            }
+        }
+        if (BookingSnapshot.lastSequence(liveSnapshot(directory)) != boundary - 1) {
+            writeSnapshot(directory, boundary - 1, tickets);
+        }
+        for (Path segment : closed) {
+            Files.delete(segment);
+        }
+        return boundary - 1;
+    }
+
+    /**
+     * Gets the live snapshot of a journal directory: the newest numbered snapshot, or the
+     * snapshot file of earlier versions if there is none.
+     *
+     * @param directory the journal directory
+     * @return The snapshot file (which may not exist)
+     * @throws IOException if the directory cannot be listed
+     */
+    public static Path liveSnapshot(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        return snapshots.isEmpty() ? directory.resolve(SNAPSHOT_FILE) : snapshots.get(snapshots.size() - 1);
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Writes a new snapshot file, counting and timing it in the shared metrics, then deletes the
+    // snapshots it supersedes
+    private static void writeSnapshot(Path directory, long lastSequence, Map<String, ? extends Collection<Ticket>> tickets)
+            throws IOException {
+        long start = System.nanoTime();
+        Path file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lastSequence + 1, SNAPSHOT_SUFFIX));
+        try {
+            BookingSnapshot.write(file, lastSequence, tickets);
+        } catch (IOException | RuntimeException e) {
+            BookingMetrics.getDefault().recordFailure(BookingMetrics.Operation.SNAPSHOT_WRITE, start);
+            throw e;
+        }
+        BookingMetrics.getDefault().record(BookingMetrics.Operation.SNAPSHOT_WRITE, start, true);
+
+        List<Path> old = snapshots(directory);
+        old.remove(file);
+        old.add(directory.resolve(SNAPSHOT_FILE));
+        for (Path snapshot : old) {
+            try {
+                Files.deleteIfExists(snapshot);
+            } catch (IOException e) {
+                // Still mapped by restored tickets on Windows; the next snapshot tries again
+                System.out.println("Could not delete old snapshot " + snapshot.getFileName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // The numbered snapshots of a directory, oldest first
+    private static List<Path> snapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path snapshot : stream) {
+                snapshots.add(snapshot);
+            }
+        }
+        // Names hold a fixed-width sequence number, so name order is sequence order
+        snapshots.sort(null);
+        return snapshots;
+    }
+
+    private static long replay(Path directory, TicketJournal.RecordHandler handler) throws IOException {
+        return replay(directory, TicketJournal.segments(directory), handler);
+    }
+
+    // Reads the snapshot, then the records of the given segments that come after it
+    private static long replay(Path directory, List<Path> segments, TicketJournal.RecordHandler handler) throws IOException {
+        long snapshotSequence = BookingSnapshot.read(liveSnapshot(directory), handler);
+        long lastSequence = snapshotSequence;
+        TicketJournal.RecordHandler tail = (sequence, type, flightNumber, ticket) -> {
+            if (sequence > snapshotSequence) {
+                handler.onRecord(sequence, type, flightNumber, ticket);
+            }
+        };
+
+        for (int i = 0; i < segments.size(); i++) {
+            // Skip segments already folded into the snapshot (left behind by a crash during a checkpoint)
+            if (i + 1 < segments.size() && TicketJournal.segmentStart(segments.get(i + 1)) <= snapshotSequence + 1) {
+                continue;
+            }
+            lastSequence = Math.max(lastSequence, TicketJournal.read(segments.get(i), tail));
+        }
+        return lastSequence;
+    }
+}
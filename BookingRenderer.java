@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * The BookingRenderer class renders the seating plan, the ticket manifest and the sales summary
+ * as text, the way the console menu shows them.
+ *
+ * Text is built in one reusable buffer and handed to the writer in bulk, instead of one
+ * synchronized print per seat or per line. Numbers are appended directly, so rendering does
+ * not create a String per line or per ticket.
+ *
+ * The manifest is streamed: the buffer is written out whenever it grows past
+ * {@link #FLUSH_THRESHOLD} characters, so the manifest of any number of tickets is rendered in
+ * bounded memory. It can also be rendered a page at a time.
+ *
+ * A renderer is not thread-safe; use one per thread.
+ */
+public class BookingRenderer {
+    // Buffer size at which the manifest is written out, in characters
+    public static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    // Line separator, the same as println's
+    private static final String NL = System.lineSeparator();
+
+    // Where rendered text is written
+    private final Writer out;
+
+    // Text rendered since the last write, reused from write to write
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+
+    // Transfer buffer from the StringBuilder to the writer
+    private final char[] chars = new char[FLUSH_THRESHOLD + 1024];
+
+    /**
+     * Constructs a new BookingRenderer.
+     *
+     * @param out where rendered text is written (flushed after each render)
+     */
+    public BookingRenderer(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Renders the seating plan, one line per row: 'O' for a free seat, 'H' for a held seat and
+     * 'X' for a sold seat.
+     *
+     * @param seats The seat map
+     */
+    public void seatingPlan(SeatMap seats) {
+        for (int row = 0; row < seats.rowCount(); row++) {
+            for (int column = 0; column < seats.seatsInRow(row); column++) {
+                buffer.append(seats.isFree(row, column) ? "O " : seats.isHeld(row, column) ? "H " : "X ");
+            }
+            buffer.append(NL);
+        }
+        flush();
+    }
+
+    /**
+     * Renders the information of every sold ticket, in seat order, streaming it out in chunks.
+     *
+     * @param bookings The booking engine holding the tickets
+     */
+    public void manifest(BookingService bookings) {
+        int capacity = bookings.getSeats().capacity();
+        for (int ordinal = 0; ordinal < capacity; ordinal++) {
+            Ticket ticket = bookings.ticketAt(ordinal);
+            if (ticket != null) {
+                ticket(ticket);
+                if (buffer.length() >= FLUSH_THRESHOLD) {
+                    write();
+                }
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Renders one page of the manifest: the next tickets in seat order, starting at a seat.
+     *
+     * @param bookings     The booking engine holding the tickets
+     * @param fromOrdinal  The seat ordinal to start at (0 for the first page)
+     * @param pageSize     The most tickets to render
+     * @return The seat ordinal the next page starts at, or -1 if this was the last page
+     */
+    public int manifestPage(BookingService bookings, int fromOrdinal, int pageSize) {
+        int capacity = bookings.getSeats().capacity();
+        int rendered = 0;
+        int ordinal = fromOrdinal;
+        for (; ordinal < capacity && rendered < pageSize; ordinal++) {
+            Ticket ticket = bookings.ticketAt(ordinal);
+            if (ticket != null) {
+                ticket(ticket);
+                rendered++;
+            }
+        }
+        flush();
+        return ordinal < capacity ? ordinal : -1;
+    }
+
+    /**
+     * Renders the sales totals per fare zone and the total revenue.
+     *
+     * @param report The sales report
+     */
+    public void salesSummary(SalesReport report) {
+        for (int zone = 0; zone < report.zoneCount(); zone++) {
+            buffer.append(report.zoneName(zone)).append(" seats: ").append(report.soldInZone(zone))
+                    .append(" sold, £").append(report.revenueInZone(zone))
+                    .append(" (").append(Math.round(report.zoneLoadFactor(zone) * 100)).append("% full)").append(NL);
+        }
+        buffer.append("Total Amount: £").append(report.getRevenue()).append(NL);
+        flush();
+    }
+
+    // ========== Internal helpers ========== //
+
+    private void ticket(Ticket ticket) {
+        Person person = ticket.getPerson();
+        buffer.append("Tickets Information: ").append(NL).append(NL)
+                .append("Seat Number: ").append((char) ('A' + ticket.getRow())).append(ticket.getSeat()).append(NL)
+                .append("Passenger's Full Name: ").append(person.getName()).append(' ').append(person.getSurname()).append(NL)
+                .append("Email: ").append(person.getEmail()).append(NL)
+                .append("Price: £").append(ticket.getPrice()).append(NL)
+                .append(NL);
+    }
+
+    // Writes the buffer out and empties it, without turning it into a String
+    private void write() {
+        try {
+            for (int start = 0; start < buffer.length(); start += chars.length) {
+                int end = Math.min(buffer.length(), start + chars.length);
+                buffer.getChars(start, end, chars, 0);
+                out.write(chars, 0, end - start);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.setLength(0);
+        }
+    }
+
+    private void flush() {
+        write();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
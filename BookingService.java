@@ -0,0 +1,795 @@
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The BookingService class is the booking engine behind the console menu.
+ * It sells and cancels seats on a {@link SeatMap} and keeps the tickets that were sold in a
+ * {@link TicketRegistry}, without reading from or writing to the console, so it can be called
+ * by any number of sales agents (threads) at the same time.
+ *
+ * Seats are claimed with a compare-and-set in the seat map, so a seat can only ever be sold
+ * once: if two agents try to buy the same seat, exactly one of them gets a ticket.
+ *
+ * Seats are identified the same way as in {@link Ticket}: a 0-based row index and a
+ * 1-based seat number.
+ *
+ * If a {@link TicketJournal} is attached, every sale and cancellation is appended to it.
+ * A sale is journaled before its ticket becomes visible and a cancellation before its seat is
+ * released, so the journal always has the changes to one seat in the order they happened.
+ * Whatever could make the journal reject a sale (a name too long for a record, a closed
+ * journal) is checked before the seat is claimed: once claimed, nothing stops the ticket from
+ * being stored, so a seat is never left sold without a ticket. Stop selling before closing the
+ * journal; a sale that races with closing is kept but may not be journaled.
+ *
+ * A seat can be held for a while before it is bought (see {@link #hold(int, int, long)}), so a
+ * customer filling in their details cannot lose it to another agent. Holds are not journaled:
+ * after a restart, seats that were only held are free again. An expired hold is only noticed on
+ * the timing wheel's thread; releasing the seat (which may sell it to a waitlisted passenger,
+ * journal and publish) runs on an executor, so a slow journal or subscriber cannot hold up
+ * every other timer.
+ *
+ * If a {@link BookingEventLog} is attached, every seat change (sale, cancellation, hold and
+ * release) is also published to it, in the same order as the journal, for subscribers to
+ * process on their own threads. Sales are checked the same way before their seat is claimed,
+ * so a journal subscribed to the log never rejects one, and a closed log rejects new sales.
+ *
+ * Seat checks, sales, cancellations and searches are counted and timed in a
+ * {@link BookingMetrics} (the shared one unless another is set).
+ *
+ * Passenger details are kept in a {@link PassengerStore}: the Person of a sold ticket is a
+ * view of the store, which is detached before the seat is released on cancellation. Tickets
+ * restored from a snapshot are kept as views of the mapped snapshot instead, and are only
+ * decoded when read.
+ *
+ * Passengers can wait for a seat in a fare zone on a {@link Waitlist}. A seat that is cancelled
+ * or whose hold ends is handed straight to the next waitlisted passenger of its zone: it stays
+ * booked throughout, so no other agent can buy it in between. Like holds, the waitlist is not
+ * journaled; the handoff itself is, as a cancellation followed by a sale.
+ *
+ * Sales and cancellations can carry a client request ID (see
+ * {@link #buy(String, int, int, Person)}). The outcome of every such request is kept in a
+ * {@link RequestCache} for a while, so a request sent again returns the original outcome
+ * without touching the seats again.
+ */
+public class BookingService {
+    // Requests remembered per flight, and for how long (the longest an agent retries for)
+    private static final int REQUEST_CACHE_SIZE = 10_000;
+    private static final long REQUEST_TTL_MILLIS = 10 * 60 * 1000;
+
+    // The flight this service sells seats for, written to the journal with every record
+    private final String flightNumber;
+
+    // The seats that can be sold
+    private final SeatMap seats;
+
+    // Current fares; replaced as a whole when fares are reloaded, never modified
+    private volatile FareTable fares;
+
+    // Tickets sold during the current session, indexed by seat and by email
+    private final TicketRegistry ticketSold;
+
+    // Passengers of the sold tickets, by seat ordinal
+    private final PassengerStore passengerStore;
+
+    // Running sales totals, updated on every sale and cancellation
+    private final SalesStats stats;
+
+    // Finds and books blocks of adjacent seats
+    private final SeatAllocator allocator;
+
+    // Passengers waiting for a seat, by fare zone (null until somebody joins; most flights
+    // never have a waitlist)
+    private volatile Waitlist waitlist;
+
+    // Outcomes of recent sales and cancellations, by client request ID (null until the first
+    // request with an ID)
+    private volatile RequestCache<Ticket> requests;
+
+    // Holds in progress, by seat ordinal (null until the first hold)
+    private volatile ConcurrentHashMap<Integer, SeatHold> holds;
+
+    // Runs hold expiry (the shared wheel unless another one is set)
+    private volatile TimingWheel holdTimer;
+
+    // Releases expired holds, off the wheel thread
+    private volatile Executor holdExpiry = ForkJoinPool.commonPool();
+
+    // Where operations are counted and timed
+    private volatile BookingMetrics metrics = BookingMetrics.getDefault();
+
+    // Log seat changes are published to (null when not publishing)
+    private volatile BookingEventLog events;
+
+    // Journal sales and cancellations are appended to (null when not journaling)
+    private volatile TicketJournal journal;
+
+    /**
+     * Constructs a new BookingService.
+     *
+     * @param flightNumber the flight this service sells seats for
+     * @param seats        the seat map to sell seats from
+     * @param fares        the fares of the seat map's aircraft
+     */
+    public BookingService(String flightNumber, SeatMap seats, FareTable fares) {
+        checkFares(seats, fares);
+        this.flightNumber = flightNumber;
+        this.seats = seats;
+        this.fares = fares;
+        this.ticketSold = new TicketRegistry(seats.capacity());
+        this.passengerStore = new PassengerStore(seats.capacity());
+        this.stats = new SalesStats(seats.getAircraft());
+        this.allocator = new SeatAllocator(seats);
+    }
+
+    /**
+     * Buys a seat for a passenger.
+     * The seat is claimed first, then the ticket is created and stored.
+     *
+     * @param row    The row index (0-based)
+     * @param seat   The seat number (1-based)
+     * @param person The passenger
+     * @return The new ticket, or null if the seat is already sold
+     * @throws IllegalArgumentException if the seat does not exist, or a passenger detail is too
+     *                                  long to journal
+     * @throws IllegalStateException if the journal or event log is closed
+     */
+    public Ticket buy(int row, int seat, Person person) {
+        long start = System.nanoTime();
+        checkSeat(row, seat);
+        checkSale(person);
+        Ticket ticket = seats.book(row, seat - 1) ? sell(seats.ordinal(row, seat - 1), fares, person) : null;
+        metrics.record(BookingMetrics.Operation.BOOK, start, ticket != null);
+        return ticket;
+    }
+
+    /**
+     * Buys a seat for a passenger, once per request ID: if the request was already made
+     * (an agent retrying after a timeout), its original ticket is returned, or null if the seat
+     * was already sold then, and the seat is left alone.
+     *
+     * @param requestId The client request ID
+     * @param row       The row index (0-based)
+     * @param seat      The seat number (1-based)
+     * @param person    The passenger
+     * @return The ticket of the request, or null if the seat was already sold
+     * @throws IllegalArgumentException if the seat does not exist, or the request ID was used for
+     *                                  a cancellation or for another seat or passenger
+     */
+    public Ticket buy(String requestId, int row, int seat, Person person) {
+        long fingerprint = RequestCache.fingerprint(row, seat, person.getName(), person.getSurname(), person.getEmail());
+        return requestCache().execute(requestId, "buy", fingerprint, () -> buy(row, seat, person));
+    }
+
+    /**
+     * Buys a block of adjacent seats in one row, one seat per passenger, choosing the best
+     * block (front-most row, then left-most) - see {@link SeatAllocator}.
+     * The whole block is claimed at once, so it is never partly sold.
+     *
+     * @param passengers The passengers, in seat order (1 to {@link SeatAllocator#MAX_BLOCK})
+     * @param zone       The fare zone all seats must be in, or {@link SeatAllocator#ANY_ZONE}
+     * @return The new tickets in seat order, or null if there is no such block
+     * @throws IllegalArgumentException if the number of passengers or the zone is invalid, or a
+     *                                  passenger detail is too long to journal
+     * @throws IllegalStateException if the journal or event log is closed
+     */
+    public Ticket[] buyAdjacent(Person[] passengers, int zone) {
+        long start = System.nanoTime();
+        checkSale(passengers);
+        Ticket[] tickets = sellBlock(allocator.allocateAdjacent(passengers.length, zone), passengers);
+        metrics.record(BookingMetrics.Operation.BOOK, start, tickets != null);
+        return tickets;
+    }
+
+    /**
+     * Buys a block of adjacent seats in one row, one seat per passenger, in the cheapest fare
+     * zone that has such a block.
+     *
+     * @param passengers The passengers, in seat order (1 to {@link SeatAllocator#MAX_BLOCK})
+     * @return The new tickets in seat order, or null if there is no such block
+     * @throws IllegalArgumentException if the number of passengers is invalid, or a passenger
+     *                                  detail is too long to journal
+     * @throws IllegalStateException if the journal or event log is closed
+     */
+    public Ticket[] buyCheapest(Person[] passengers) {
+        long start = System.nanoTime();
+        checkSale(passengers);
+        Ticket[] tickets = sellBlock(allocator.allocateCheapest(passengers.length, fares), passengers);
+        metrics.record(BookingMetrics.Operation.BOOK, start, tickets != null);
+        return tickets;
+    }
+
+    /**
+     * Cancels a sold seat.
+     * The ticket is removed first and the seat is only released afterwards, so the seat
+     * cannot be sold again while its old ticket is still stored. If a passenger is waiting for
+     * the seat's zone, the seat is sold to them instead of being released.
+     *
+     * @param row  The row index (0-based)
+     * @param seat The seat number (1-based)
+     * @return The cancelled ticket, or null if the seat has no ticket
+     * @throws IllegalArgumentException if the seat does not exist
+     * @throws IllegalStateException if the journal or event log is closed
+     */
+    public Ticket cancel(int row, int seat) {
+        long start = System.nanoTime();
+        checkSeat(row, seat);
+        checkOpen();
+        int ordinal = seats.ordinal(row, seat - 1);
+        Ticket ticket = ticketSold.remove(ordinal);
+        if (ticket != null) {
+            journal(TicketJournal.CANCEL, ticket);
+            publish(BookingEvent.Type.CANCEL, ordinal, ticket);
+            stats.recordCancellation(ordinal, ticket.getPrice());
+            passengerStore.remove(ordinal, ticket.getPerson());
+            vacate(ordinal);
+        }
+        metrics.record(BookingMetrics.Operation.CANCEL, start, ticket != null);
+        return ticket;
+    }
+
+    /**
+     * Cancels a sold seat, once per request ID: if the request was already made, the ticket it
+     * cancelled is returned and the seat is left alone (it may have been sold again since).
+     *
+     * @param requestId The client request ID
+     * @param row       The row index (0-based)
+     * @param seat      The seat number (1-based)
+     * @return The ticket cancelled by the request, or null if the seat had no ticket
+     * @throws IllegalArgumentException if the seat does not exist, or the request ID was used for
+     *                                  a sale or for another seat
+     */
+    public Ticket cancel(String requestId, int row, int seat) {
+        return requestCache().execute(requestId, "cancel", RequestCache.fingerprint(row, seat), () -> cancel(row, seat));
+    }
+
+    /**
+     * Holds a free seat for a while, so it can be bought with {@link #confirm(SeatHold, Person)}
+     * without another agent taking it first. If the hold is neither confirmed nor released in
+     * time, the seat is released automatically.
+     *
+     * @param row       The row index (0-based)
+     * @param seat      The seat number (1-based)
+     * @param ttlMillis How long the hold lasts, in milliseconds
+     * @return The hold, or null if the seat is already sold or held
+     * @throws IllegalArgumentException if the seat does not exist
+     */
+    public SeatHold hold(int row, int seat, long ttlMillis) {
+        checkSeat(row, seat);
+        if (!seats.hold(row, seat - 1)) {
+            return null;
+        }
+        SeatHold hold = new SeatHold(seats.ordinal(row, seat - 1), row, seat, System.currentTimeMillis() + ttlMillis);
+        publish(BookingEvent.Type.HOLD, hold.ordinal, null);
+        holdMap().put(hold.ordinal, hold);
+        hold.timeout = timer().schedule(() -> expire(hold), ttlMillis);
+        return hold;
+    }
+
+    /**
+     * Buys a held seat for a passenger, ending the hold.
+     *
+     * @param hold   The hold
+     * @param person The passenger
+     * @return The new ticket, or null if the hold has already run out or been released
+     * @throws IllegalArgumentException if a passenger detail is too long to journal
+     * @throws IllegalStateException if the journal or event log is closed
+     */
+    public Ticket confirm(SeatHold hold, Person person) {
+        long start = System.nanoTime();
+        checkSale(person);
+        Ticket ticket = endHold(hold, true) ? sell(hold.ordinal, fares, person) : null;
+        metrics.record(BookingMetrics.Operation.BOOK, start, ticket != null);
+        return ticket;
+    }
+
+    /**
+     * Ends a hold without buying the seat, making the seat available again.
+     *
+     * @param hold The hold
+     * @return true if released, false if the hold had already run out, been confirmed or released
+     */
+    public boolean release(SeatHold hold) {
+        return endHold(hold, false);
+    }
+
+    /**
+     * Puts a passenger on the waitlist of a fare zone. If the zone has a free seat, it is sold
+     * to the next waitlisted passenger right away; otherwise the passenger gets the next seat of
+     * the zone that is cancelled or released, in priority order and then first come, first
+     * served.
+     *
+     * @param zone     The fare zone (0-based)
+     * @param person   The passenger
+     * @param priority The priority (higher is served first, 0 for first come, first served)
+     * @return The waitlist entry, whose ticket completes when a seat is handed to the passenger
+     * @throws IllegalArgumentException if the zone does not exist, or a passenger detail is too
+     *                                  long to journal
+     * @throws IllegalStateException if the journal or event log is closed
+     */
+    public Waitlist.Entry joinWaitlist(int zone, Person person, int priority) {
+        checkSale(person);
+        Waitlist.Entry entry = getWaitlist().join(zone, person, priority);
+        serveWaitlist(zone);
+        return entry;
+    }
+
+    /**
+     * Gets the waitlist of the flight, creating it if nobody has joined yet.
+     * @return The waitlist
+     */
+    public Waitlist getWaitlist() {
+        Waitlist waitlist = this.waitlist;
+        if (waitlist == null) {
+            synchronized (this) {
+                waitlist = this.waitlist;
+                if (waitlist == null) {
+                    this.waitlist = waitlist = new Waitlist(seats.zoneCount());
+                }
+            }
+        }
+        return waitlist;
+    }
+
+    /**
+     * Gets the cache of recent sales and cancellations made with a request ID, creating it if
+     * no request has had an ID yet.
+     * @return The request cache
+     */
+    public RequestCache<Ticket> getRequestCache() {
+        return requestCache();
+    }
+
+    /**
+     * Gets the number of seats currently held.
+     * @return The number of holds
+     */
+    public int holdCount() {
+        ConcurrentHashMap<Integer, SeatHold> holds = this.holds;
+        return holds != null ? holds.size() : 0;
+    }
+
+    /**
+     * Sets the timing wheel that runs hold expiry. Holds already made keep their old wheel.
+     *
+     * @param holdTimer the timing wheel, or null for the shared one
+     */
+    public void setHoldTimer(TimingWheel holdTimer) {
+        this.holdTimer = holdTimer;
+    }
+
+    /**
+     * Sets the executor that releases expired holds (the common fork/join pool by default).
+     *
+     * @param holdExpiry the executor
+     */
+    public void setHoldExpiryExecutor(Executor holdExpiry) {
+        this.holdExpiry = holdExpiry;
+    }
+
+    /**
+     * Puts back a ticket read from a snapshot or journal during recovery.
+     * Any ticket already held for the seat is replaced. Nothing is journaled.
+     *
+     * A ticket still backed by a mapped snapshot (see {@link BookingSnapshot#isMapped}) is kept
+     * as it is, so its passenger is not decoded until it is read; it is indexed by email and
+     * surname through the snapshot's shared strings. Other tickets are copied into the
+     * passenger store.
+     *
+     * @param ticket The recovered ticket
+     * @throws IllegalArgumentException if the seat does not exist
+     */
+    public void restoreSale(Ticket ticket) {
+        int row = ticket.getRow();
+        int seat = ticket.getSeat();
+        checkSeat(row, seat);
+        int ordinal = seats.ordinal(row, seat - 1);
+        forget(ordinal);
+        seats.book(row, seat - 1);
+        if (BookingSnapshot.isMapped(ticket)) {
+            ticketSold.put(ordinal, ticket);
+        } else {
+            Person person = passengerStore.put(ordinal, ticket.getPerson());
+            ticketSold.put(ordinal, new Ticket(row, seat, ticket.getPrice(), person));
+        }
+        stats.recordSale(ordinal, ticket.getPrice());
+    }
+
+    /**
+     * Replays a cancellation read from the journal during recovery. Nothing is journaled.
+     *
+     * @param row  The row index (0-based)
+     * @param seat The seat number (1-based)
+     * @throws IllegalArgumentException if the seat does not exist
+     */
+    public void restoreCancellation(int row, int seat) {
+        checkSeat(row, seat);
+        forget(seats.ordinal(row, seat - 1));
+        seats.release(row, seat - 1);
+    }
+
+    /**
+     * Finds the ticket sold for a seat.
+     *
+     * @param row  The row index (0-based)
+     * @param seat The seat number (1-based)
+     * @return The ticket, or null if the seat has no ticket
+     */
+    public Ticket findTicket(int row, int seat) {
+        long start = System.nanoTime();
+        checkSeat(row, seat);
+        Ticket ticket = ticketSold.get(seats.ordinal(row, seat - 1));
+        metrics.record(BookingMetrics.Operation.SEARCH, start, ticket != null);
+        return ticket;
+    }
+
+    /**
+     * Gets the ticket sold for a seat, by seat ordinal.
+     *
+     * @param ordinal The seat ordinal (see {@link SeatMap#ordinal(int, int)})
+     * @return The ticket, or null if the seat has no ticket
+     */
+    public Ticket ticketAt(int ordinal) {
+        return ticketSold.get(ordinal);
+    }
+
+    /**
+     * Finds all tickets bought with an email address (case-insensitive).
+     *
+     * @param email The passenger's email
+     * @return The tickets, or an empty list if there are none
+     */
+    public List<Ticket> findTickets(String email) {
+        long start = System.nanoTime();
+        List<Ticket> tickets = ticketSold.findByEmail(email);
+        metrics.record(BookingMetrics.Operation.SEARCH, start, !tickets.isEmpty());
+        return tickets;
+    }
+
+    /**
+     * Finds the tickets of passengers whose surname starts with a prefix (case-insensitive).
+     *
+     * @param prefix The start of the surname
+     * @param limit  The maximum number of tickets returned
+     * @return The tickets, sorted by surname then seat
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public List<Ticket> findTicketsBySurname(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<Ticket> tickets = ticketSold.findBySurnamePrefix(prefix, limit);
+        metrics.record(BookingMetrics.Operation.SEARCH, start, !tickets.isEmpty());
+        return tickets;
+    }
+
+    /**
+     * Gets all tickets sold so far.
+     * @return A copy of the sold tickets, in seat order
+     */
+    public Ticket[] tickets() {
+        return ticketSold.toArray();
+    }
+
+    /**
+     * Gets the number of tickets sold so far.
+     * @return The number of tickets
+     */
+    public int ticketCount() {
+        return ticketSold.size();
+    }
+
+    /**
+     * Gets the running sales totals of this flight.
+     * @return The sales totals, updated live
+     */
+    public SalesStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets a copy of the current sales totals.
+     * @return The sales report
+     */
+    public SalesReport report() {
+        return stats.report();
+    }
+
+    /**
+     * Checks if a seat is available.
+     *
+     * @param row  The row index (0-based)
+     * @param seat The seat number (1-based)
+     * @return true if the seat is available, false if it is sold
+     */
+    public boolean isAvailable(int row, int seat) {
+        long start = System.nanoTime();
+        checkSeat(row, seat);
+        boolean free = seats.isFree(row, seat - 1);
+        metrics.record(BookingMetrics.Operation.SEAT_CHECK, start, free);
+        return free;
+    }
+
+    /**
+     * Gets the current price of a seat.
+     *
+     * @param row  The row index (0-based)
+     * @param seat The seat number (1-based)
+     * @return The price in £
+     */
+    public int price(int row, int seat) {
+        checkSeat(row, seat);
+        return fares.price(seats.ordinal(row, seat - 1));
+    }
+
+    /**
+     * Replaces the fares used for later sales. The new table is swapped in atomically: a sale
+     * in progress uses either the old or the new fares, and no sale waits for the swap.
+     * Tickets already sold keep their price.
+     *
+     * @param fares the new fares
+     * @throws IllegalArgumentException if the fares are for another aircraft type
+     */
+    public void setFares(FareTable fares) {
+        checkFares(seats, fares);
+        this.fares = fares;
+    }
+
+    /**
+     * Gets the fares currently used for sales.
+     * @return The fares
+     */
+    public FareTable getFares() {
+        return fares;
+    }
+
+    /**
+     * Attaches a journal that every later sale and cancellation is appended to.
+     *
+     * @param journal the journal, or null to stop journaling
+     */
+    public void setJournal(TicketJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Attaches a log that every later seat change is published to.
+     *
+     * @param events the event log, or null to stop publishing
+     */
+    public void setEventLog(BookingEventLog events) {
+        this.events = events;
+    }
+
+    /**
+     * Sets where seat checks, sales, cancellations and searches are counted and timed.
+     *
+     * @param metrics the metrics, or null for the shared ones
+     */
+    public void setMetrics(BookingMetrics metrics) {
+        this.metrics = metrics != null ? metrics : BookingMetrics.getDefault();
+    }
+
+    /**
+     * Gets where seat checks, sales, cancellations and searches are counted and timed.
+     * @return The metrics
+     */
+    public BookingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the flight this service sells seats for.
+     * @return The flight number
+     */
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    /**
+     * Gets the allocator this service uses to find blocks of adjacent seats.
+     * @return The seat allocator
+     */
+    public SeatAllocator getAllocator() {
+        return allocator;
+    }
+
+    /**
+     * Gets the seat map this service sells from.
+     * @return The seat map
+     */
+    public SeatMap getSeats() {
+        return seats;
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Issues, journals and stores the ticket of a seat that has just been claimed
+    private Ticket sell(int ordinal, FareTable fares, Person person) {
+        Ticket ticket = new Ticket(seats.rowOf(ordinal), seats.columnOf(ordinal) + 1, fares.price(ordinal),
+                passengerStore.put(ordinal, person));
+        journal(TicketJournal.BOOK, ticket);
+        publish(BookingEvent.Type.BOOK, ordinal, ticket);
+        ticketSold.put(ordinal, ticket);
+        stats.recordSale(ordinal, ticket.getPrice());
+        return ticket;
+    }
+
+    // Ends a hold once, whichever of confirm, release and expiry comes first; the seat stays
+    // booked if it was sold, and is released otherwise
+    private boolean endHold(SeatHold hold, boolean sold) {
+        if (!holdMap().remove(hold.ordinal, hold)) {
+            return false;
+        }
+        TimingWheel.Timeout timeout = hold.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        seats.unhold(hold.getRow(), hold.getSeat() - 1);
+        if (!sold) {
+            publish(BookingEvent.Type.RELEASE, hold.ordinal, null);
+            vacate(hold.ordinal);
+        }
+        return true;
+    }
+
+    // Runs on the wheel thread when a hold is due: only hands the release to the executor
+    private void expire(SeatHold hold) {
+        try {
+            holdExpiry.execute(() -> endHold(hold, false));
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down: release the seat here rather than leave it held
+            endHold(hold, false);
+        }
+    }
+
+    // Hands a seat that is no longer sold or held to the next waitlisted passenger of its zone,
+    // without releasing it, or releases it if nobody is waiting
+    private void vacate(int ordinal) {
+        long start = System.nanoTime();
+        int zone = seats.getAircraft().zoneOf(ordinal);
+        Waitlist waitlist = this.waitlist;
+        Waitlist.Entry next = waitlist != null ? waitlist.next(zone) : null;
+        if (next != null) {
+            handOff(ordinal, next, start);
+            return;
+        }
+        seats.release(seats.rowOf(ordinal), seats.columnOf(ordinal));
+        // A passenger who joined after the queue was found empty may have missed the seat
+        serveWaitlist(zone);
+    }
+
+    // Sells free seats of a zone to its waitlisted passengers until one or the other runs out
+    private void serveWaitlist(int zone) {
+        Waitlist waitlist = this.waitlist;
+        if (waitlist == null) {
+            return;
+        }
+        while (!waitlist.isEmpty(zone)) {
+            long start = System.nanoTime();
+            int ordinal = allocator.allocateAdjacent(1, zone);
+            if (ordinal < 0) {
+                return;
+            }
+            Waitlist.Entry next = waitlist.next(zone);
+            if (next == null) {
+                // Withdrawn or served by another agent meanwhile; look again before giving up
+                seats.release(seats.rowOf(ordinal), seats.columnOf(ordinal));
+                continue;
+            }
+            handOff(ordinal, next, start);
+        }
+    }
+
+    private void handOff(int ordinal, Waitlist.Entry entry, long start) {
+        Ticket ticket = sell(ordinal, fares, entry.getPerson());
+        entry.served(ticket);
+        metrics.record(BookingMetrics.Operation.REALLOCATE, start, true);
+    }
+
+    // The request cache and the hold map are created on first use, like the waitlist: an idle
+    // flight carries none of them
+    private RequestCache<Ticket> requestCache() {
+        RequestCache<Ticket> requests = this.requests;
+        if (requests == null) {
+            synchronized (this) {
+                requests = this.requests;
+                if (requests == null) {
+                    this.requests = requests = new RequestCache<>(REQUEST_CACHE_SIZE, REQUEST_TTL_MILLIS);
+                }
+            }
+        }
+        return requests;
+    }
+
+    private ConcurrentHashMap<Integer, SeatHold> holdMap() {
+        ConcurrentHashMap<Integer, SeatHold> holds = this.holds;
+        if (holds == null) {
+            synchronized (this) {
+                holds = this.holds;
+                if (holds == null) {
+                    this.holds = holds = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return holds;
+    }
+
+    private TimingWheel timer() {
+        TimingWheel timer = holdTimer;
+        return timer != null ? timer : TimingWheel.getDefault();
+    }
+
+    // Sells a claimed block of seats starting at first, all at the same fares
+    private Ticket[] sellBlock(int first, Person[] passengers) {
+        if (first < 0) {
+            return null;
+        }
+        FareTable current = fares;
+        Ticket[] tickets = new Ticket[passengers.length];
+        for (int i = 0; i < passengers.length; i++) {
+            tickets[i] = sell(first + i, current, passengers[i]);
+        }
+        return tickets;
+    }
+
+    private void publish(BookingEvent.Type type, int ordinal, Ticket ticket) {
+        BookingEventLog current = events;
+        if (current != null) {
+            current.publish(type, flightNumber, ordinal, seats.rowOf(ordinal), seats.columnOf(ordinal) + 1, ticket);
+        }
+    }
+
+    private void journal(byte type, Ticket ticket) {
+        TicketJournal current = journal;
+        if (current != null) {
+            current.append(type, flightNumber, ticket);
+        }
+    }
+
+    // Removes the ticket of a seat during recovery, taking it out of the sales totals
+    private void forget(int ordinal) {
+        Ticket old = ticketSold.remove(ordinal);
+        if (old != null) {
+            stats.recordCancellation(ordinal, old.getPrice());
+            passengerStore.remove(ordinal, old.getPerson());
+        }
+    }
+
+    // Rejects a sale the journal could not take, before any seat is claimed for it
+    private void checkSale(Person person) {
+        TicketJournal.checkRecord(flightNumber, person);
+        checkOpen();
+    }
+
+    private void checkSale(Person[] passengers) {
+        for (Person person : passengers) {
+            TicketJournal.checkRecord(flightNumber, person);
+        }
+        checkOpen();
+    }
+
+    private void checkOpen() {
+        TicketJournal current = journal;
+        if (current != null && current.isClosed()) {
+            throw new IllegalStateException("Journal " + current.getDirectory() + " is closed");
+        }
+        BookingEventLog log = events;
+        if (log != null && log.isClosed()) {
+            throw new IllegalStateException("The event log is closed");
+        }
+    }
+
+    private static void checkFares(SeatMap seats, FareTable fares) {
+        if (fares.getAircraft() != seats.getAircraft()) {
+            throw new IllegalArgumentException("Fares are for " + fares.getAircraft().getType()
+                    + ", not " + seats.getAircraft().getType());
+        }
+    }
+
+    private void checkSeat(int row, int seat) {
+        if (row < 0 || row >= seats.rowCount() || seat < 1 || seat > seats.seatsInRow(row)) {
+            throw new IllegalArgumentException("Invalid seat: row " + row + ", seat " + seat);
+        }
+    }
+}
@@ -0,0 +1,566 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BookingSnapshot class writes and reads a snapshot of every ticket held at a given point
+ * of the {@link TicketJournal}. Together with the journal records written after that point,
+ * a snapshot is enough to rebuild all seat maps and ticket registries.
+ *
+ * Snapshots use a compact binary format (version 2) that is read through a
+ * {@link MappedByteBuffer}, so opening one does not copy or parse it:
+ * - header: magic number, format version, sequence number of the last journal record included,
+ *   number of flights, number of strings, offset of the string table
+ * - flight directory, one fixed-width entry per flight: flight number (string index), bitmap rows,
+ *   bitmap words per row, number of tickets, offset of the bitmap, offset of the tickets
+ * - for each flight, a seat occupancy bitmap (one bit per seat, laid out like {@link SeatMap}),
+ *   then fixed-width ticket records: row, seat, price, name, surname, email (string indexes)
+ * - string table: the end offset of every string, then all strings as UTF-8, each name or email
+ *   stored only once however many tickets use it
+ *
+ * {@link Ticket} and {@link Person} objects are only created when a ticket is read, and the
+ * fields of a ticket are only decoded from the mapped file when they are accessed. Tickets
+ * restored at startup stay views of the mapped file (see {@link BookingService#restoreSale}),
+ * so the mapping lives as long as any of them is sold.
+ *
+ * A snapshot is written to a temporary file and then moved into place, so a crash while writing
+ * never leaves a half-written snapshot behind. Version 1 snapshots can still be read.
+ */
+public class BookingSnapshot {
+    // "PMSS" in ASCII
+    private static final int MAGIC = 0x504D5353;
+    private static final int VERSION = 2;
+
+    // Sizes of the fixed-width parts of the file, in bytes
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 8;
+    private static final int FLIGHT_ENTRY_SIZE = 4 + 4 + 4 + 4 + 8 + 8;
+    private static final int TICKET_RECORD_SIZE = 2 + 2 + 4 + 4 + 4 + 4;
+
+    // The mapped snapshot file
+    private final MappedByteBuffer data;
+    private final long lastSequence;
+    private final int flightCount;
+
+    // Start of the string table, and strings decoded so far (a benign race: decoding twice is harmless)
+    private final int stringsOffset;
+    private final int stringCount;
+    private final String[] strings;
+
+    private BookingSnapshot(MappedByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a booking snapshot");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + data.getInt(4));
+        }
+        lastSequence = data.getLong(8);
+        flightCount = data.getInt(16);
+        stringCount = data.getInt(20);
+        stringsOffset = (int) data.getLong(24);
+        strings = new String[stringCount];
+    }
+
+    // ========== Reading ========== //
+
+    /**
+     * Maps a snapshot file into memory.
+     *
+     * @param file the snapshot file
+     * @return The snapshot, or null if the file does not exist
+     * @throws IOException if the file cannot be read, is not a version 2 snapshot, or is over 2 GB
+     */
+    public static BookingSnapshot open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new BookingSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a snapshot, passing every ticket to the handler as a {@link TicketJournal#BOOK} record
+     * carrying the snapshot's sequence number. The tickets are decoded lazily from the mapped file.
+     *
+     * @param file    the snapshot file
+     * @param handler receives the tickets
+     * @return The sequence number of the last journal record included, or 0 if there is no snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static long read(Path file, TicketJournal.RecordHandler handler) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        if (version(file) == 1) {
+            return readVersion1(file, handler);
+        }
+        BookingSnapshot snapshot = open(file);
+        for (int f = 0; f < snapshot.flightCount(); f++) {
+            String flightNumber = snapshot.flightNumber(f);
+            for (int t = 0; t < snapshot.ticketCount(f); t++) {
+                handler.onRecord(snapshot.lastSequence, TicketJournal.BOOK, flightNumber, snapshot.ticket(f, t));
+            }
+        }
+        return snapshot.lastSequence;
+    }
+
+    /**
+     * Gets the sequence number of the last journal record included in the snapshot.
+     * @return The sequence number
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the number of flights in the snapshot.
+     * @return The number of flights
+     */
+    public int flightCount() {
+        return flightCount;
+    }
+
+    /**
+     * Gets the flight number of a flight.
+     * @param flight The flight index (0-based)
+     * @return The flight number
+     */
+    public String flightNumber(int flight) {
+        return string(data.getInt(flightEntry(flight)));
+    }
+
+    /**
+     * Gets the number of tickets held by a flight.
+     * @param flight The flight index (0-based)
+     * @return The number of tickets
+     */
+    public int ticketCount(int flight) {
+        return data.getInt(flightEntry(flight) + 12);
+    }
+
+    /**
+     * Checks whether a seat was booked, using only the occupancy bitmap.
+     *
+     * @param flight The flight index (0-based)
+     * @param row    The row index (0-based)
+     * @param seat   The seat number (1-based)
+     * @return true if the seat was booked
+     */
+    public boolean isBooked(int flight, int row, int seat) {
+        int entry = flightEntry(flight);
+        int rows = data.getInt(entry + 4);
+        int wordsPerRow = data.getInt(entry + 8);
+        int column = seat - 1;
+        if (row < 0 || row >= rows || column < 0 || column >= wordsPerRow * 64) {
+            return false;
+        }
+        int word = (int) data.getLong(entry + 16) + (row * wordsPerRow + (column >>> 6)) * 8;
+        return (data.getLong(word) & (1L << column)) != 0;
+    }
+
+    /**
+     * Gets a ticket. The returned ticket reads its fields from the mapped file the first time
+     * they are accessed.
+     *
+     * @param flight The flight index (0-based)
+     * @param index  The ticket index within the flight (0-based)
+     * @return The ticket
+     */
+    public Ticket ticket(int flight, int index) {
+        if (index < 0 || index >= ticketCount(flight)) {
+            throw new IndexOutOfBoundsException("Invalid ticket index: " + index);
+        }
+        return new MappedTicket(this, (int) data.getLong(flightEntry(flight) + 24) + index * TICKET_RECORD_SIZE);
+    }
+
+    private int flightEntry(int flight) {
+        if (flight < 0 || flight >= flightCount) {
+            throw new IndexOutOfBoundsException("Invalid flight index: " + flight);
+        }
+        return HEADER_SIZE + flight * FLIGHT_ENTRY_SIZE;
+    }
+
+    private String string(int index) {
+        String value = strings[index];
+        if (value == null) {
+            int bytes = stringsOffset + (stringCount + 1) * 4;
+            int start = data.getInt(stringsOffset + index * 4);
+            int end = data.getInt(stringsOffset + (index + 1) * 4);
+            byte[] utf8 = new byte[end - start];
+            data.get(bytes + start, utf8);
+            value = new String(utf8, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * A ticket backed by a record of a mapped snapshot. Nothing is decoded until a getter is
+     * called, and its passenger is a {@link MappedPerson} view of the same record. Calling a
+     * setter copies the seat and price out of the snapshot first.
+     */
+    private static final class MappedTicket extends Ticket {
+        private final BookingSnapshot snapshot;
+        private final int record;
+        private final MappedPerson passenger;
+        private boolean detached;
+
+        MappedTicket(BookingSnapshot snapshot, int record) {
+            super(0, 0, 0, null);
+            this.snapshot = snapshot;
+            this.record = record;
+            this.passenger = new MappedPerson(snapshot, record);
+        }
+
+        @Override
+        public int getRow() {
+            return detached ? super.getRow() : snapshot.data.getShort(record);
+        }
+
+        @Override
+        public int getSeat() {
+            return detached ? super.getSeat() : snapshot.data.getShort(record + 2);
+        }
+
+        @Override
+        public int getPrice() {
+            return detached ? super.getPrice() : snapshot.data.getInt(record + 4);
+        }
+
+        @Override
+        public Person getPerson() {
+            return detached ? super.getPerson() : passenger;
+        }
+
+        @Override
+        public void setRow(int row) {
+            detach();
+            super.setRow(row);
+        }
+
+        @Override
+        public void setSeat(int seat) {
+            detach();
+            super.setSeat(seat);
+        }
+
+        @Override
+        public void setPrice(int price) {
+            detach();
+            super.setPrice(price);
+        }
+
+        @Override
+        public void setPerson(Person person) {
+            detach();
+            super.setPerson(person);
+        }
+
+        // Copies the fields out of the snapshot into the plain ticket fields; the passenger stays
+        // a view until it is changed itself
+        private synchronized void detach() {
+            if (detached) {
+                return;
+            }
+            ByteBuffer data = snapshot.data;
+            super.setRow(data.getShort(record));
+            super.setSeat(data.getShort(record + 2));
+            super.setPrice(data.getInt(record + 4));
+            super.setPerson(passenger);
+            detached = true;
+        }
+    }
+
+    /**
+     * The passenger of a mapped ticket. Its name, surname and email are read from the snapshot's
+     * string table when asked for, each distinct string decoded once per snapshot, so indexing
+     * restored tickets by email and surname creates no per-ticket strings. Calling a setter
+     * copies the passenger out of the snapshot first.
+     */
+    private static final class MappedPerson extends Person {
+        private final BookingSnapshot snapshot;
+        private final int record;
+        private volatile boolean detached;
+
+        MappedPerson(BookingSnapshot snapshot, int record) {
+            super(null, null, null);
+            this.snapshot = snapshot;
+            this.record = record;
+        }
+
+        @Override
+        public String getName() {
+            return detached ? super.getName() : snapshot.string(snapshot.data.getInt(record + 8));
+        }
+
+        @Override
+        public String getSurname() {
+            return detached ? super.getSurname() : snapshot.string(snapshot.data.getInt(record + 12));
+        }
+
+        @Override
+        public String getEmail() {
+            return detached ? super.getEmail() : snapshot.string(snapshot.data.getInt(record + 16));
+        }
+
+        @Override
+        public void setName(String name) {
+            detach();
+            super.setName(name);
+        }
+
+        @Override
+        public void setSurname(String surname) {
+            detach();
+            super.setSurname(surname);
+        }
+
+        @Override
+        public void setEmail(String email) {
+            detach();
+            super.setEmail(email);
+        }
+
+        private synchronized void detach() {
+            if (detached) {
+                return;
+            }
+            super.setName(getName());
+            super.setSurname(getSurname());
+            super.setEmail(getEmail());
+            detached = true;
+        }
+    }
+
+    /**
+     * Checks if a ticket is still a view of a mapped snapshot (see {@link #ticket(int, int)}).
+     * Such a ticket never changes under its holder, however the seat is sold later, so it can
+     * be kept as it is instead of being copied.
+     *
+     * @param ticket the ticket
+     * @return true if the ticket reads its fields from a snapshot
+     */
+    public static boolean isMapped(Ticket ticket) {
+        return ticket instanceof MappedTicket && !((MappedTicket) ticket).detached;
+    }
+
+    /**
+     * Reads the sequence number of the last journal record included in a snapshot, from its
+     * header only.
+     *
+     * @param file the snapshot file
+     * @return The sequence number, or -1 if there is no snapshot or it is not the current version
+     * @throws IOException if the file cannot be read
+     */
+    public static long lastSequence(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return -1;
+            }
+            return in.readLong();
+        }
+    }
+
+    // ========== Writing ========== //
+
+    /**
+     * Writes a snapshot. It is written to a temporary file that is forced to disk, then renamed
+     * over the old snapshot, and the directory is forced too: once this returns, the snapshot
+     * survives a crash or power loss, and the journal segments it includes can be deleted.
+     *
+     * @param file            the snapshot file (replaced if it exists)
+     * @param lastSequence    the sequence number of the last journal record included
+     * @param ticketsByFlight the tickets held by each flight, keyed by flight number
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, long lastSequence, Map<String, ? extends Collection<Ticket>> ticketsByFlight)
+            throws IOException {
+        // First pass: intern every string and size every flight's bitmap
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int flights = ticketsByFlight.size();
+        int[] rows = new int[flights];
+        int[] wordsPerRow = new int[flights];
+        long offset = HEADER_SIZE + (long) flights * FLIGHT_ENTRY_SIZE;
+        long[] bitmapOffsets = new long[flights];
+        long[] ticketOffsets = new long[flights];
+
+        int f = 0;
+        for (Map.Entry<String, ? extends Collection<Ticket>> flight : ticketsByFlight.entrySet()) {
+            intern(flight.getKey(), stringIndex, strings);
+            int longestRow = 0;
+            for (Ticket ticket : flight.getValue()) {
+                Person person = ticket.getPerson();
+                intern(person.getName(), stringIndex, strings);
+                intern(person.getSurname(), stringIndex, strings);
+                intern(person.getEmail(), stringIndex, strings);
+                rows[f] = Math.max(rows[f], ticket.getRow() + 1);
+                longestRow = Math.max(longestRow, ticket.getSeat());
+            }
+            wordsPerRow[f] = Math.max(1, (longestRow + 63) >>> 6);
+            bitmapOffsets[f] = offset;
+            offset += (long) rows[f] * wordsPerRow[f] * 8;
+            ticketOffsets[f] = offset;
+            offset += (long) flight.getValue().size() * TICKET_RECORD_SIZE;
+            f++;
+        }
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long stringBytes = 0;
+        for (String value : strings) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(utf8);
+            stringBytes += utf8.length;
+        }
+        if (offset + (strings.size() + 1L) * 4 + stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot would be too large to map: " + file);
+        }
+
+        // Second pass: write everything in file order
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lastSequence);
+            out.writeInt(flights);
+            out.writeInt(strings.size());
+            out.writeLong(offset);
+
+            f = 0;
+            for (Map.Entry<String, ? extends Collection<Ticket>> flight : ticketsByFlight.entrySet()) {
+                out.writeInt(stringIndex.get(flight.getKey()));
+                out.writeInt(rows[f]);
+                out.writeInt(wordsPerRow[f]);
+                out.writeInt(flight.getValue().size());
+                out.writeLong(bitmapOffsets[f]);
+                out.writeLong(ticketOffsets[f]);
+                f++;
+            }
+
+            f = 0;
+            for (Collection<Ticket> tickets : ticketsByFlight.values()) {
+                long[] bitmap = new long[rows[f] * wordsPerRow[f]];
+                for (Ticket ticket : tickets) {
+                    int column = ticket.getSeat() - 1;
+                    bitmap[ticket.getRow() * wordsPerRow[f] + (column >>> 6)] |= 1L << column;
+                }
+                for (long word : bitmap) {
+                    out.writeLong(word);
+                }
+                for (Ticket ticket : tickets) {
+                    Person person = ticket.getPerson();
+                    out.writeShort(ticket.getRow());
+                    out.writeShort(ticket.getSeat());
+                    out.writeInt(ticket.getPrice());
+                    out.writeInt(stringIndex.get(nullToEmpty(person.getName())));
+                    out.writeInt(stringIndex.get(nullToEmpty(person.getSurname())));
+                    out.writeInt(stringIndex.get(nullToEmpty(person.getEmail())));
+                }
+                f++;
+            }
+
+            int end = 0;
+            out.writeInt(end);
+            for (byte[] utf8 : encoded) {
+                end += utf8.length;
+                out.writeInt(end);
+            }
+            for (byte[] utf8 : encoded) {
+                out.write(utf8);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        replace(temp, file);
+    }
+
+    /**
+     * Renames a file that has been written and forced to disk over another, then forces the
+     * directory so the rename itself survives a crash.
+     *
+     * @param temp the new file, already forced to disk
+     * @param file the file it replaces
+     * @throws IOException if the file cannot be renamed or the directory cannot be forced
+     */
+    static void replace(Path temp, Path file) throws IOException {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null && !System.getProperty("os.name").startsWith("Windows")) {
+            // Windows cannot open a directory as a channel
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        }
+    }
+
+    private static void intern(String value, Map<String, Integer> stringIndex, List<String> strings) {
+        String key = nullToEmpty(value);
+        if (!stringIndex.containsKey(key)) {
+            stringIndex.put(key, strings.size());
+            strings.add(key);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    // ========== Version 1 ========== //
+
+    private static int version(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a booking snapshot: " + file);
+            }
+            return in.readInt();
+        }
+    }
+
+    // Version 1: header, then per flight its number and tickets as DataOutput fields and UTF strings
+    private static long readVersion1(Path file, TicketJournal.RecordHandler handler) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            in.readInt();
+            in.readInt();
+            long lastSequence = in.readLong();
+            int flights = in.readInt();
+            for (int f = 0; f < flights; f++) {
+                String flightNumber = in.readUTF();
+                int tickets = in.readInt();
+                for (int t = 0; t < tickets; t++) {
+                    int row = in.readShort();
+                    int seat = in.readShort();
+                    int price = in.readInt();
+                    Person person = new Person(in.readUTF(), in.readUTF(), in.readUTF());
+                    handler.onRecord(lastSequence, TicketJournal.BOOK, flightNumber, new Ticket(row, seat, price, person));
+                }
+            }
+            return lastSequence;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The DynamicPricing class raises a flight's fares as its fare zones fill up, with surcharges
+ * in tiers (for example +15% once a zone is 70% sold and +30% once it is 90% sold).
+ *
+ * It subscribes to a {@link BookingEventLog} and keeps the number of seats sold in every zone
+ * of every flight it prices, updated by one count per sale or cancellation. Fares are only
+ * recomputed when a zone moves to another tier: a new immutable {@link FareTable} is then
+ * published with {@link BookingService#setFares(FareTable)}, which booking threads pick up with
+ * a single read, without locking or waiting.
+ *
+ * Cancellations count too, so a zone that drops back below a threshold gets its lower price
+ * back. Holds do not change the price.
+ *
+ * Counts are updated on the subscriber's thread, so a new price takes effect shortly after the
+ * sale that crosses a threshold, not during it: seats sold in the meantime still get the
+ * previous price.
+ */
+public class DynamicPricing implements BookingEventLog.Handler {
+    // Sold share (in %) at which each tier starts, in increasing order
+    private final int[] thresholds;
+
+    // Surcharge (in %) of each tier
+    private final int[] surcharges;
+
+    // Pricing state of every flight, by flight number
+    private final ConcurrentHashMap<String, FlightPricing> flights = new ConcurrentHashMap<>();
+
+    // Number of fare tables published
+    private final AtomicLong repricings = new AtomicLong();
+
+    /**
+     * Constructs a new DynamicPricing with the given tiers.
+     *
+     * @param thresholds the sold share (in %, 1 to 100) at which each tier starts, in increasing order
+     * @param surcharges the surcharge (in %) of each tier
+     * @throws IllegalArgumentException if the tiers are invalid
+     */
+    public DynamicPricing(int[] thresholds, int[] surcharges) {
+        if (thresholds.length != surcharges.length) {
+            throw new IllegalArgumentException("Expected one surcharge per threshold");
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            if (thresholds[i] < 1 || thresholds[i] > 100 || (i > 0 && thresholds[i] <= thresholds[i - 1])) {
+                throw new IllegalArgumentException("Invalid threshold: " + thresholds[i] + "%");
+            }
+            if (surcharges[i] < -100) {
+                throw new IllegalArgumentException("Invalid surcharge: " + surcharges[i] + "%");
+            }
+        }
+        this.thresholds = thresholds.clone();
+        this.surcharges = surcharges.clone();
+    }
+
+    /**
+     * Starts pricing a flight, using its current fares as the base fares.
+     * Must be called while no seats of the flight are being sold or cancelled (for example at
+     * startup, before the event log is attached), so the starting counts are exact.
+     *
+     * @param bookings the flight's booking service
+     */
+    public void add(BookingService bookings) {
+        FlightPricing flight = new FlightPricing(bookings, bookings.getFares());
+        SalesStats stats = bookings.getStats();
+        synchronized (flight) {
+            for (int zone = 0; zone < flight.sold.length; zone++) {
+                flight.sold[zone] = (int) stats.soldInZone(zone);
+                flight.tiers[zone] = tierOf(flight.sold[zone], flight.aircraft.seatsInZone(zone));
+            }
+            flight.publish();
+        }
+        flights.put(bookings.getFlightNumber(), flight);
+    }
+
+    /**
+     * Stops pricing a flight. Its current fares are kept.
+     *
+     * @param flightNumber the flight number
+     */
+    public void remove(String flightNumber) {
+        flights.remove(flightNumber);
+    }
+
+    /**
+     * Replaces the base fares of a flight (e.g. when fares are reloaded) and publishes them with
+     * the surcharges of the current tiers.
+     *
+     * @param flightNumber the flight number
+     * @param base         the new base fares
+     * @throws IllegalArgumentException if the flight is not priced or the fares are for another aircraft
+     */
+    public void setBaseFares(String flightNumber, FareTable base) {
+        FlightPricing flight = flights.get(flightNumber);
+        if (flight == null) {
+            throw new IllegalArgumentException("Flight " + flightNumber + " is not priced dynamically");
+        }
+        if (base.getAircraft() != flight.aircraft) {
+            throw new IllegalArgumentException("Fares are for " + base.getAircraft().getType()
+                    + ", not " + flight.aircraft.getType());
+        }
+        synchronized (flight) {
+            flight.base = base;
+            flight.publish();
+        }
+    }
+
+    /**
+     * Gets the surcharge a fare zone of a flight currently has.
+     *
+     * @param flightNumber the flight number
+     * @param zone         the fare zone (0-based)
+     * @return The surcharge in %, or 0 if the flight is not priced or the zone is below every tier
+     */
+    public int surcharge(String flightNumber, int zone) {
+        FlightPricing flight = flights.get(flightNumber);
+        if (flight == null) {
+            return 0;
+        }
+        synchronized (flight) {
+            return surchargeOf(flight.tiers[zone]);
+        }
+    }
+
+    /**
+     * Gets the number of fare tables published so far, across all flights.
+     * @return The number of repricings
+     */
+    public long repricings() {
+        return repricings.get();
+    }
+
+    /**
+     * Counts a sale or cancellation and republishes the flight's fares if its zone changed tier.
+     * Called on the event log's subscriber thread.
+     *
+     * @param event      the event
+     * @param endOfBatch ignored
+     */
+    @Override
+    public void onEvent(BookingEvent event, boolean endOfBatch) {
+        int change = switch (event.getType()) {
+            case BOOK -> 1;
+            case CANCEL -> -1;
+            default -> 0;
+        };
+        FlightPricing flight = change == 0 ? null : flights.get(event.getFlightNumber());
+        if (flight == null) {
+            return;
+        }
+        int zone = flight.aircraft.zoneOf(event.getOrdinal());
+        int sold = flight.sold[zone] += change;
+        int tier = tierOf(sold, flight.aircraft.seatsInZone(zone));
+        if (tier != flight.tiers[zone]) {
+            synchronized (flight) {
+                flight.tiers[zone] = tier;
+                flight.publish();
+            }
+        }
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Highest tier whose threshold a zone has reached, or -1 below the first
+    private int tierOf(int sold, int seats) {
+        int tier = -1;
+        while (tier + 1 < thresholds.length && (long) sold * 100 >= (long) thresholds[tier + 1] * seats) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private int surchargeOf(int tier) {
+        return tier < 0 ? 0 : surcharges[tier];
+    }
+
+    // Pricing state of one flight
+    private final class FlightPricing {
+        private final BookingService bookings;
+        private final Aircraft aircraft;
+
+        // Seats sold in each zone (only used on the subscriber thread, and in add())
+        private final int[] sold;
+
+        // Current tier of each zone, and the fares the surcharges apply to (guarded by this)
+        private final int[] tiers;
+        private FareTable base;
+
+        FlightPricing(BookingService bookings, FareTable base) {
+            this.bookings = bookings;
+            this.aircraft = base.getAircraft();
+            this.base = base;
+            this.sold = new int[aircraft.zoneCount()];
+            this.tiers = new int[aircraft.zoneCount()];
+        }
+
+        // Compiles the fares of the current tiers and swaps them in (caller holds the lock)
+        private void publish() {
+            int[] prices = new int[tiers.length];
+            for (int zone = 0; zone < prices.length; zone++) {
+                prices[zone] = (int) Math.round(base.zonePrice(zone) * (100 + surchargeOf(tiers[zone])) / 100.0);
+            }
+            bookings.setFares(new FareTable(aircraft, prices));
+            repricings.incrementAndGet();
+        }
+    }
+}
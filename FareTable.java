@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The FareTable class holds the price of every seat of an {@link Aircraft}, compiled once into
+ * a flat array indexed by seat ordinal, so pricing a seat is a single array read.
+ *
+ * A FareTable is immutable. To change fares, compile a new table and swap it in with
+ * {@link BookingService#setFares(FareTable)}; bookings in progress keep the table they read
+ * and are never blocked.
+ */
+public class FareTable {
+    // The aircraft type these fares apply to
+    private final Aircraft aircraft;
+
+    // Price of each fare zone in pounds sterling
+    private final int[] zonePrices;
+
+    // Price of every seat in pounds sterling, indexed by seat ordinal
+    private final int[] seatPrices;
+
+    /**
+     * Compiles the fares of an aircraft from the price of each of its fare zones.
+     *
+     * @param aircraft   the aircraft type
+     * @param zonePrices the price of each fare zone in £
+     * @throws IllegalArgumentException if there is not exactly one price per zone
+     */
+    public FareTable(Aircraft aircraft, int[] zonePrices) {
+        if (zonePrices.length != aircraft.zoneCount()) {
+            throw new IllegalArgumentException("Expected " + aircraft.zoneCount() + " zone prices, got " + zonePrices.length);
+        }
+        this.aircraft = aircraft;
+        this.zonePrices = zonePrices.clone();
+        this.seatPrices = new int[aircraft.capacity()];
+        for (int ordinal = 0; ordinal < seatPrices.length; ordinal++) {
+            seatPrices[ordinal] = zonePrices[aircraft.zoneOf(ordinal)];
+        }
+    }
+
+    /**
+     * Loads new fares for an aircraft from a layout file. Only the "zone" lines are used, so the
+     * file can be the aircraft's own layout file with updated prices (see {@link Aircraft#load}).
+     *
+     * @param file     the layout file
+     * @param aircraft the aircraft type the fares apply to
+     * @return The compiled fares
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file does not give a price for every zone of the aircraft
+     */
+    public static FareTable load(Path file, Aircraft aircraft) throws IOException {
+        int[] prices = new int[aircraft.zoneCount()];
+        boolean[] found = new boolean[prices.length];
+        for (String line : Files.readAllLines(file)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length == 3 && fields[0].equals("zone")) {
+                int zone = aircraft.zoneIndex(fields[1]);
+                if (zone < 0) {
+                    throw new IllegalArgumentException("Unknown zone " + fields[1] + " for " + aircraft.getType());
+                }
+                prices[zone] = Integer.parseInt(fields[2]);
+                found[zone] = true;
+            }
+        }
+        for (int zone = 0; zone < found.length; zone++) {
+            if (!found[zone]) {
+                throw new IllegalArgumentException("No price for zone " + aircraft.zoneName(zone) + " in " + file);
+            }
+        }
+        return new FareTable(aircraft, prices);
+    }
+
+    /**
+     * Gets the price of a seat.
+     * @param ordinal The seat ordinal
+     * @return The price in £
+     */
+    public int price(int ordinal) {
+        return seatPrices[ordinal];
+    }
+
+    /**
+     * Gets the price of a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The price in £
+     */
+    public int zonePrice(int zone) {
+        return zonePrices[zone];
+    }
+
+    /**
+     * Gets the aircraft type these fares apply to.
+     * @return The aircraft
+     */
+    public Aircraft getAircraft() {
+        return aircraft;
+    }
+}
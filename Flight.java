@@ -0,0 +1,51 @@
+/**
+ * The Flight class represents one departure operated with a given {@link Aircraft} type.
+ * Each flight has its own seat inventory and ticket registry (through its {@link BookingService}),
+ * while the seat layout and fare zones are shared with every other flight of the same type.
+ */
+public class Flight {
+    // The flight number, unique within an inventory (e.g. "PM101-2026-10-17")
+    private final String flightNumber;
+
+    // The aircraft type operating this flight
+    private final Aircraft aircraft;
+
+    // Booking engine holding this flight's seats and tickets
+    private final BookingService bookings;
+
+    /**
+     * Constructs a new Flight with every seat free.
+     *
+     * @param flightNumber the flight number
+     * @param aircraft     the aircraft type operating the flight
+     */
+    public Flight(String flightNumber, Aircraft aircraft) {
+        this.flightNumber = flightNumber;
+        this.aircraft = aircraft;
+        this.bookings = new BookingService(flightNumber, new SeatMap(aircraft), aircraft.getDefaultFares());
+    }
+
+    /**
+     * Gets the flight number.
+     * @return The flight number
+     */
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    /**
+     * Gets the aircraft type operating this flight.
+     * @return The aircraft
+     */
+    public Aircraft getAircraft() {
+        return aircraft;
+    }
+
+    /**
+     * Gets the booking engine of this flight.
+     * @return The booking service
+     */
+    public BookingService getBookings() {
+        return bookings;
+    }
+}
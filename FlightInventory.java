@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The FlightInventory class holds every flight managed by the process, keyed by flight number.
+ * It is safe to use from many threads, and can hold tens of thousands of flights: a flight only
+ * stores its own seat bitmap, counters and tickets, everything else comes from its shared
+ * {@link Aircraft}.
+ */
+public class FlightInventory {
+    // All flights, keyed by flight number
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a new flight with every seat free.
+     *
+     * @param flightNumber the flight number
+     * @param aircraft     the aircraft type operating the flight
+     * @return The new flight
+     * @throws IllegalArgumentException if a flight with that number already exists
+     */
+    public Flight addFlight(String flightNumber, Aircraft aircraft) {
+        Flight flight = new Flight(flightNumber, aircraft);
+        if (flights.putIfAbsent(flightNumber, flight) != null) {
+            throw new IllegalArgumentException("Flight " + flightNumber + " already exists");
+        }
+        return flight;
+    }
+
+    /**
+     * Gets a flight.
+     *
+     * @param flightNumber the flight number
+     * @return The flight, or null if there is no such flight
+     */
+    public Flight getFlight(String flightNumber) {
+        return flights.get(flightNumber);
+    }
+
+    /**
+     * Removes a flight (for example once it has departed).
+     *
+     * @param flightNumber the flight number
+     * @return The removed flight, or null if there was no such flight
+     */
+    public Flight removeFlight(String flightNumber) {
+        return flights.remove(flightNumber);
+    }
+
+    /**
+     * Gets the number of flights.
+     * @return The number of flights
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * Gets all flights.
+     * @return A copy of the flights, in no particular order
+     */
+    public List<Flight> flights() {
+        return new ArrayList<>(flights.values());
+    }
+}
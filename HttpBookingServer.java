@@ -0,0 +1,439 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HttpBookingServer class serves a {@link BookingService} over HTTP with JSON responses,
+ * using the JDK's built-in HTTP server.
+ * - POST /buy?row=A&amp;seat=5&amp;name=..&amp;surname=..&amp;email=..: buys a seat (409 if already sold)
+ * - POST /cancel?row=A&amp;seat=5: cancels a seat (404 if not sold)
+ * - POST /waitlist?zone=..&amp;name=..&amp;surname=..&amp;email=..&amp;priority=0: waits for a seat
+ *   in a fare zone, given by name or 1-based number (202 while waiting, the ticket if a seat
+ *   was free)
+ * - GET /seats: the seating plan, one string per row ('O' free, 'H' held, 'X' sold)
+ * - GET /search?row=A&amp;seat=5, GET /search?email=.. or GET /search?surname=..&amp;limit=20:
+ *   finds tickets (a surname is matched by prefix, ignoring case)
+ * - GET /report: the sales report
+ * - GET /metrics: the counts and latencies of the booking operations (see {@link BookingMetrics})
+ *
+ * /buy and /cancel take an optional requestId: a request sent again with the same ID (an agent
+ * retrying after a timeout) gets the original response instead of being run again. An ID
+ * reused for a different request (another seat or passenger) is rejected with 400.
+ *
+ * Parameters can be given in the query string or as a form-encoded request body. Rows are row
+ * letters (A is the first row) or 1-based row numbers, seats are 1-based seat numbers.
+ *
+ * Each request runs on its own virtual thread when the JVM has them (Java 21 and later), and on
+ * a cached thread pool otherwise, so thousands of agents can be served at the same time.
+ */
+public class HttpBookingServer {
+    // Pending connections the server accepts before refusing new ones
+    private static final int BACKLOG = 4096;
+
+    // Keep-alive connections the server keeps open between requests (the JDK default is 200)
+    private static final int MAX_IDLE_CONNECTIONS = 10_000;
+
+    // Most tickets returned by a surname search when no limit is given
+    private static final int SEARCH_LIMIT = 20;
+
+    static {
+        // The JDK server writes the response headers and body separately; without TCP_NODELAY
+        // the body waits for the client's delayed ACK, adding about 40 ms to every request
+        defaultProperty("sun.net.httpserver.nodelay", "true");
+        // With more agents than idle connections, the server closes connections that clients
+        // are about to reuse, and their next request fails
+        defaultProperty("sun.net.httpserver.maxIdleConnections", Integer.toString(MAX_IDLE_CONNECTIONS));
+    }
+
+    // The booking engine requests are served from
+    private final BookingService bookings;
+
+    // The underlying JDK HTTP server
+    private final HttpServer server;
+
+    // Runs each request on its own thread
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new HttpBookingServer. The server does not accept requests until started.
+     *
+     * @param bookings the booking engine to serve
+     * @param address  the address and port to listen on (port 0 picks a free port)
+     * @throws IOException if the server cannot listen on the address
+     */
+    public HttpBookingServer(BookingService bookings, InetSocketAddress address) throws IOException {
+        this.bookings = bookings;
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = newThreadPerRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/buy", exchange -> handle(exchange, "POST", this::buy));
+        server.createContext("/cancel", exchange -> handle(exchange, "POST", this::cancel));
+        server.createContext("/waitlist", exchange -> handle(exchange, "POST", this::waitlist));
+        server.createContext("/seats", exchange -> handle(exchange, "GET", this::seatingPlan));
+        server.createContext("/search", exchange -> handle(exchange, "GET", this::search));
+        server.createContext("/report", exchange -> handle(exchange, "GET", this::report));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET",
+                params -> new Response(200, bookings.getMetrics().toJson())));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for requests in progress, and stops the
+     * request threads.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // ========== Endpoints ========== //
+
+    private Response buy(Map<String, String> params) {
+        int row = row(params);
+        int seat = seat(params, row);
+        Person person = new Person(required(params, "name"), required(params, "surname"), required(params, "email"));
+        String requestId = params.get("requestId");
+        Ticket ticket = requestId == null ? bookings.buy(row, seat, person) : bookings.buy(requestId, row, seat, person);
+        if (ticket == null) {
+            return error(409, "Seat " + seatName(row, seat) + " is already sold");
+        }
+        return new Response(200, ticketJson(new StringBuilder(), ticket).toString());
+    }
+
+    private Response cancel(Map<String, String> params) {
+        int row = row(params);
+        int seat = seat(params, row);
+        String requestId = params.get("requestId");
+        Ticket ticket = requestId == null ? bookings.cancel(row, seat) : bookings.cancel(requestId, row, seat);
+        if (ticket == null) {
+            return error(404, "Seat " + seatName(row, seat) + " is not sold");
+        }
+        return new Response(200, "{\"seat\":\"" + seatName(row, seat) + "\",\"refund\":" + ticket.getPrice() + "}");
+    }
+
+    private Response waitlist(Map<String, String> params) {
+        int zone = zone(params);
+        Person person = new Person(required(params, "name"), required(params, "surname"), required(params, "email"));
+        String priority = params.get("priority");
+        Waitlist.Entry entry = bookings.joinWaitlist(zone, person, priority == null ? 0 : number(priority, "priority"));
+        Ticket ticket = entry.getTicket().getNow(null);
+        if (ticket != null) {
+            return new Response(200, ticketJson(new StringBuilder(), ticket).toString());
+        }
+        StringBuilder json = new StringBuilder(64).append("{\"zone\":");
+        string(json, bookings.getSeats().getAircraft().zoneName(zone));
+        json.append(",\"waiting\":").append(bookings.getWaitlist().size(zone)).append('}');
+        return new Response(202, json.toString());
+    }
+
+    private Response seatingPlan(Map<String, String> params) {
+        SeatMap seats = bookings.getSeats();
+        StringBuilder json = new StringBuilder(seats.capacity() + 64);
+        json.append("{\"flight\":");
+        string(json, bookings.getFlightNumber());
+        json.append(",\"free\":").append(seats.freeSeats()).append(",\"rows\":[");
+        for (int row = 0; row < seats.rowCount(); row++) {
+            json.append(row == 0 ? "\"" : ",\"");
+            for (int column = 0; column < seats.seatsInRow(row); column++) {
+                json.append(seats.isFree(row, column) ? 'O' : seats.isHeld(row, column) ? 'H' : 'X');
+            }
+            json.append('"');
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    private Response search(Map<String, String> params) {
+        StringBuilder json = new StringBuilder(128);
+        String email = params.get("email");
+        String surname = params.get("surname");
+        if (email != null || surname != null) {
+            List<Ticket> tickets;
+            if (email != null) {
+                tickets = bookings.findTickets(email);
+            } else {
+                String limit = params.get("limit");
+                int max = limit == null ? SEARCH_LIMIT : number(limit, "limit");
+                if (max < 0) {
+                    throw new BadRequestException("Invalid limit: " + limit);
+                }
+                tickets = bookings.findTicketsBySurname(surname, max);
+            }
+            json.append("{\"tickets\":[");
+            for (int i = 0; i < tickets.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                ticketJson(json, tickets.get(i));
+            }
+            return new Response(200, json.append("]}").toString());
+        }
+        int row = row(params);
+        int seat = seat(params, row);
+        Ticket ticket = bookings.findTicket(row, seat);
+        if (ticket == null) {
+            return error(404, "Seat " + seatName(row, seat) + " is not sold");
+        }
+        return new Response(200, ticketJson(json, ticket).toString());
+    }
+
+    private Response report(Map<String, String> params) {
+        SalesReport report = bookings.report();
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"flight\":");
+        string(json, bookings.getFlightNumber());
+        json.append(",\"ticketsSold\":").append(report.getTicketsSold())
+                .append(",\"revenue\":").append(report.getRevenue())
+                .append(",\"loadFactor\":").append(report.getLoadFactor())
+                .append(",\"zones\":[");
+        for (int zone = 0; zone < report.zoneCount(); zone++) {
+            json.append(zone == 0 ? "{\"name\":" : ",{\"name\":");
+            string(json, report.zoneName(zone));
+            json.append(",\"sold\":").append(report.soldInZone(zone))
+                    .append(",\"revenue\":").append(report.revenueInZone(zone))
+                    .append(",\"loadFactor\":").append(report.zoneLoadFactor(zone)).append('}');
+        }
+        json.append("],\"rows\":[");
+        for (int row = 0; row < report.rowCount(); row++) {
+            json.append(row == 0 ? "" : ",").append(report.soldInRow(row));
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    // ========== Request handling ========== //
+
+    // A response status and JSON body
+    private static final class Response {
+        final int status;
+        final String json;
+
+        Response(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    // An endpoint: turns the request parameters into a response
+    private interface Endpoint {
+        Response serve(Map<String, String> params);
+    }
+
+    // Thrown for a missing or invalid request parameter, answered with 400 Bad Request
+    private static final class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String message) {
+            super(message);
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                response = error(405, "Use " + method);
+            } else {
+                response = endpoint.serve(params(exchange));
+            }
+        } catch (BadRequestException | IllegalArgumentException e) {
+            // IllegalArgumentException: rejected by the booking engine, e.g. a reused request ID
+            response = error(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            // The journal or event log is closed: the server is shutting down
+            response = error(503, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            response = error(500, "Internal error");
+        }
+        byte[] body = response.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Parameters from the query string and, for form posts, the request body
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        decode(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            String type = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (body.length > 0 && type != null && type.startsWith("application/x-www-form-urlencoded")) {
+                decode(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void decode(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            try {
+                params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Malformed parameter: " + pair);
+            }
+        }
+    }
+
+    private int row(Map<String, String> params) {
+        String value = required(params, "row");
+        int row;
+        if (value.length() == 1 && Character.isLetter(value.charAt(0))) {
+            row = Character.toUpperCase(value.charAt(0)) - 'A';
+        } else {
+            row = number(value, "row") - 1;
+        }
+        if (row < 0 || row >= bookings.getSeats().rowCount()) {
+            throw new BadRequestException("No such row: " + value);
+        }
+        return row;
+    }
+
+    private int zone(Map<String, String> params) {
+        String value = required(params, "zone");
+        Aircraft aircraft = bookings.getSeats().getAircraft();
+        int zone = aircraft.zoneIndex(value);
+        if (zone < 0 && !value.isEmpty() && Character.isDigit(value.charAt(0))) {
+            zone = number(value, "zone") - 1;
+        }
+        if (zone < 0 || zone >= aircraft.zoneCount()) {
+            throw new BadRequestException("No such zone: " + value);
+        }
+        return zone;
+    }
+
+    private int seat(Map<String, String> params, int row) {
+        int seat = number(required(params, "seat"), "seat");
+        if (seat < 1 || seat > bookings.getSeats().seatsInRow(row)) {
+            throw new BadRequestException("No such seat: " + seatName(row, seat));
+        }
+        return seat;
+    }
+
+    private static int number(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new BadRequestException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    // ========== JSON ========== //
+
+    private static Response error(int status, String message) {
+        StringBuilder json = new StringBuilder(message.length() + 16).append("{\"error\":");
+        string(json, message);
+        return new Response(status, json.append('}').toString());
+    }
+
+    private static StringBuilder ticketJson(StringBuilder json, Ticket ticket) {
+        Person person = ticket.getPerson();
+        json.append("{\"seat\":\"").append(seatName(ticket.getRow(), ticket.getSeat())).append("\",\"price\":")
+                .append(ticket.getPrice()).append(",\"name\":");
+        string(json, person.getName());
+        json.append(",\"surname\":");
+        string(json, person.getSurname());
+        json.append(",\"email\":");
+        string(json, person.getEmail());
+        return json.append('}');
+    }
+
+    // Appends a JSON string literal, escaping quotes, backslashes and control characters
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    // Seat as shown to users: row letter and seat number (e.g. "A5")
+    private static String seatName(int row, int seat) {
+        return row < 26 ? (char) ('A' + row) + Integer.toString(seat) : (row + 1) + "-" + seat;
+    }
+
+    // Sets a JDK HTTP server property unless it was given on the command line
+    private static void defaultProperty(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+
+    // Virtual thread per request where available (Java 21+), otherwise a cached thread pool
+    private static ExecutorService newThreadPerRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "http-booking");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The InventoryShard class is one node of a partitioned seat inventory (see {@link ShardRouter}).
+ * It owns a {@link FlightInventory} that no other shard touches, and runs every request against
+ * it on its own thread, one at a time, the way a separate server would.
+ *
+ * Shards in the same process are not fully independent: their flights all record into
+ * {@link BookingMetrics#getDefault()}, keep passenger names in {@link NameDictionary#shared()}
+ * (whose additions are synchronized) and expire holds on {@link TimingWheel#getDefault()}.
+ * Only the flights themselves are partitioned; a shard moved to another process would get its
+ * own copies of these.
+ */
+public class InventoryShard implements AutoCloseable {
+    // How long close() waits for queued requests to finish
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    // Position of this shard in its router
+    private final int id;
+
+    // The flights owned by this shard, only used from the shard's thread
+    private final FlightInventory inventory = new FlightInventory();
+
+    // The shard's thread, with the queue of requests waiting for it
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new InventoryShard with no flights and starts its thread.
+     *
+     * @param id the position of the shard in its router
+     */
+    public InventoryShard(int id) {
+        this.id = id;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "inventory-shard-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a request to run against the shard's flights on the shard's thread.
+     *
+     * @param request The request
+     * @param <T>     The type of the result
+     * @return The result, completed exceptionally if the request throws
+     * @throws java.util.concurrent.RejectedExecutionException if the shard is closed
+     */
+    public <T> CompletableFuture<T> submit(Function<FlightInventory, T> request) {
+        return CompletableFuture.supplyAsync(() -> request.apply(inventory), executor);
+    }
+
+    /**
+     * Gets the position of this shard in its router.
+     * @return The shard id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Stops the shard once the requests already queued have run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                System.out.println("Inventory shard " + id + " did not finish its requests in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
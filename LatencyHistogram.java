@@ -0,0 +1,143 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts durations in log-linear buckets, so percentiles can be read
+ * without keeping every sample.
+ * - Values below 32 ns have a bucket each
+ * - Above that, every power of two is split into 16 buckets, so a percentile is accurate to
+ *   within about 6% of its value
+ *
+ * Recording a value is a few arithmetic operations and three atomic updates: the bucket, the sum
+ * and the maximum (which only writes when the value is a new maximum). It never allocates and
+ * is safe from any number of threads. The count is not kept
+ * separately but added up from the buckets when it is read.
+ */
+public class LatencyHistogram {
+    // Number of buckets each power of two is split into, as a power of two
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Number of buckets needed to hold any non-negative long
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    // Number of values recorded in each bucket
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // Sum and largest of the values recorded
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds (negative values are recorded as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the number of durations recorded.
+     * @return The count
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the mean of the durations recorded.
+     * @return The mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Gets the longest duration recorded.
+     * @return The maximum in nanoseconds
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Gets a percentile of the durations recorded.
+     *
+     * @param percentile The percentile, from 0 to 100 (e.g. 99.9)
+     * @return The highest value of the bucket holding the percentile, in nanoseconds, or 0 if
+     *         nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Clears every recorded duration. Values recorded while clearing may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Summarises the histogram in microseconds.
+     * @return The count, mean, p50, p99, p99.9 and maximum
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count(), mean() / 1e3, percentile(50) / 1e3, percentile(99) / 1e3,
+                percentile(99.9) / 1e3, max() / 1e3);
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Bucket of a value: the value itself below 2 * SUB_BUCKETS, otherwise the power of two
+    // and the next SUB_BUCKET_BITS bits below the highest set bit
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Highest value that falls into a bucket
+    private static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The LayoutCache class keeps a compiled, binary copy of every aircraft layout file next to it,
+ * so startup reads a few hundred bytes instead of parsing the text layout (see
+ * {@link Aircraft#load(Path)}).
+ *
+ * The cache of "PM-54.layout" is "PM-54.layout.cache". It records the size and modification
+ * time of the layout it was compiled from, and is compiled again whenever the layout changes:
+ * - header: magic number, format version, size and modification time of the layout file
+ * - type name, then every fare zone's name and default price
+ * - number of rows, then every row's length and the fare zone of each of its seats
+ *
+ * The cache is only an optimization: if it cannot be read or written, the layout file is used.
+ */
+public final class LayoutCache {
+    // "PMLC" in ASCII
+    private static final int MAGIC = 0x504D4C43;
+    private static final int VERSION = 1;
+
+    // Appended to the layout file name
+    private static final String EXTENSION = ".cache";
+
+    private LayoutCache() {
+    }
+
+    /**
+     * Loads an aircraft type from the cache of a layout file, compiling the cache first if it is
+     * missing or older than the layout.
+     *
+     * @param layoutFile the layout file
+     * @return The aircraft type
+     * @throws IOException if the layout file cannot be read
+     * @throws IllegalArgumentException if the layout file is not a valid layout
+     */
+    public static Aircraft load(Path layoutFile) throws IOException {
+        BasicFileAttributes layout = Files.readAttributes(layoutFile, BasicFileAttributes.class);
+        Path cache = cacheFile(layoutFile);
+        Aircraft aircraft = read(cache, layout);
+        if (aircraft != null) {
+            return aircraft;
+        }
+        aircraft = Aircraft.load(layoutFile);
+        try {
+            write(cache, aircraft, layout);
+        } catch (IOException e) {
+            // Read-only directory or full disk: the next start parses the layout again
+        }
+        return aircraft;
+    }
+
+    /**
+     * Gets the cache file of a layout file.
+     *
+     * @param layoutFile the layout file
+     * @return The cache file, next to the layout file
+     */
+    public static Path cacheFile(Path layoutFile) {
+        return layoutFile.resolveSibling(layoutFile.getFileName() + EXTENSION);
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Reads a cache, or returns null if it is missing, stale or unreadable
+    private static Aircraft read(Path cache, BasicFileAttributes layout) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != layout.size() || in.readLong() != layout.lastModifiedTime().toMillis()) {
+                return null;
+            }
+            String type = in.readUTF();
+            String[] zoneNames = new String[in.readInt()];
+            int[] zonePrices = new int[zoneNames.length];
+            for (int zone = 0; zone < zoneNames.length; zone++) {
+                zoneNames[zone] = in.readUTF();
+                zonePrices[zone] = in.readInt();
+            }
+            int[][] zones = new int[in.readInt()][];
+            for (int row = 0; row < zones.length; row++) {
+                zones[row] = new int[in.readInt()];
+                for (int column = 0; column < zones[row].length; column++) {
+                    zones[row][column] = in.readByte();
+                }
+            }
+            return new Aircraft(type, zoneNames, zones, zonePrices);
+        } catch (IOException | IllegalArgumentException e) {
+            // Missing, truncated or corrupt: compiled again from the layout
+            return null;
+        }
+    }
+
+    private static void write(Path cache, Aircraft aircraft, BasicFileAttributes layout) throws IOException {
+        Path temp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(layout.size());
+            out.writeLong(layout.lastModifiedTime().toMillis());
+            out.writeUTF(aircraft.getType());
+            out.writeInt(aircraft.zoneCount());
+            for (int zone = 0; zone < aircraft.zoneCount(); zone++) {
+                out.writeUTF(aircraft.zoneName(zone));
+                out.writeInt(aircraft.getDefaultFares().zonePrice(zone));
+            }
+            out.writeInt(aircraft.rowCount());
+            for (int row = 0; row < aircraft.rowCount(); row++) {
+                out.writeInt(aircraft.seatsInRow(row));
+                for (int column = 0; column < aircraft.seatsInRow(row); column++) {
+                    out.writeByte(aircraft.zoneOf(aircraft.ordinal(row, column)));
+                }
+            }
+        }
+        Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The NameDictionary class gives every distinct name a small integer id, so a name that
+ * thousands of passengers share (a common first name or surname) is stored once and each
+ * passenger only keeps its id.
+ *
+ * Ids are never reused or removed. Looking up a name by id is an array read; adding a new name
+ * takes a lock, looking up an existing one does not.
+ *
+ * Because names are never removed, a dictionary grows with every distinct name it has seen,
+ * and the shared one ({@link #shared()}) lives as long as the process: about 60 bytes per name
+ * plus the String itself. That is small for real passenger names, which repeat a lot, but a
+ * long-running process fed generated or unique names keeps every one of them. Give such
+ * stores a dictionary of their own, which goes away with them.
+ */
+public class NameDictionary {
+    // Dictionary shared by every passenger store that is not given its own
+    private static final NameDictionary SHARED = new NameDictionary();
+
+    // Id used for a missing (null) name
+    public static final int NULL_ID = -1;
+
+    // Id of every name added so far
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Name of every id; replaced by a larger copy when full
+    private volatile String[] names = new String[1024];
+
+    // Number of ids given out (guarded by this)
+    private int size;
+
+    /**
+     * Gets the dictionary shared by every passenger store.
+     * @return The shared dictionary
+     */
+    public static NameDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the id of a name, adding the name if it is new.
+     *
+     * @param name The name
+     * @return The id, or {@link #NULL_ID} if the name is null
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Gets the name of an id.
+     *
+     * @param id The id
+     * @return The name, or null for {@link #NULL_ID}
+     */
+    public String nameOf(int id) {
+        return id == NULL_ID ? null : names[id];
+    }
+
+    /**
+     * Gets the number of distinct names.
+     * @return The number of names
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int add(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        int id = size++;
+        current[id] = name;
+        // Publish the array before the id, so whoever finds the id can read the name
+        names = current;
+        ids.put(name, id);
+        return id;
+    }
+}
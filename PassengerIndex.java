@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The PassengerIndex class finds sold tickets by passenger instead of by seat.
+ * - By email: exact match, ignoring case, through a hash map
+ * - By surname prefix: ignoring case, through a sorted map, so a prefix search only visits
+ *   the matching surnames instead of scanning every ticket
+ *
+ * The index is updated on every sale and cancellation (see {@link TicketRegistry}) and is safe
+ * to use from many threads without locking. The keys a ticket is indexed under are captured when
+ * it is added and kept with its seat, so it is removed from the same places even if its
+ * passenger's details were changed in between (a changed passenger is still found under the
+ * old email and surname until the ticket is cancelled).
+ */
+public class PassengerIndex {
+    // Tickets of every passenger, indexed by lower-case email; most emails have one ticket,
+    // so the tickets are kept in a small array that is copied when it changes
+    private final ConcurrentHashMap<String, Ticket[]> byEmail = new ConcurrentHashMap<>();
+
+    // Every ticket, sorted by lower-case surname then seat ordinal
+    private final ConcurrentSkipListMap<Key, Ticket> bySurname = new ConcurrentSkipListMap<>();
+
+    // Keys each seat's ticket was indexed under, by seat ordinal (null when the seat has no
+    // ticket); the array is created on the first sale, so a flight with no sales carries none
+    private volatile AtomicReferenceArray<Key> keys;
+
+    // Number of seats on the aircraft
+    private final int capacity;
+
+    // Lower-case surnames are shared through this dictionary instead of copied for each ticket
+    private final NameDictionary names;
+
+    /**
+     * Constructs a new, empty PassengerIndex using the shared name dictionary.
+     *
+     * @param capacity the number of seats on the aircraft
+     */
+    public PassengerIndex(int capacity) {
+        this(capacity, NameDictionary.shared());
+    }
+
+    /**
+     * Constructs a new, empty PassengerIndex.
+     *
+     * @param capacity the number of seats on the aircraft
+     * @param names    the dictionary lower-case surnames are stored in
+     */
+    public PassengerIndex(int capacity, NameDictionary names) {
+        this.names = names;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the ticket of a seat to the index.
+     *
+     * @param ordinal The seat ordinal
+     * @param ticket  The ticket
+     */
+    public void add(int ordinal, Ticket ticket) {
+        Person person = ticket.getPerson();
+        if (person == null) {
+            return;
+        }
+        String surname = lowerCase(person.getSurname());
+        Key key = new Key(surname == null ? null : names.nameOf(names.idOf(surname)), ordinal,
+                lowerCase(person.getEmail()), ticket);
+        // The seat's previous ticket is always removed before the seat can be sold again, so
+        // the seat is only still indexed when the sale itself is about to fail
+        if (!keys().compareAndSet(ordinal, null, key)) {
+            return;
+        }
+        if (key.email != null) {
+            byEmail.compute(key.email, (email, tickets) -> append(tickets, ticket));
+        }
+        if (key.surname != null) {
+            bySurname.put(key, ticket);
+        }
+    }
+
+    /**
+     * Removes the ticket of a seat from the index.
+     *
+     * @param ordinal The seat ordinal
+     * @param ticket  The ticket
+     */
+    public void remove(int ordinal, Ticket ticket) {
+        AtomicReferenceArray<Key> keys = this.keys;
+        Key key = keys == null ? null : keys.get(ordinal);
+        if (key == null || key.ticket != ticket || !keys.compareAndSet(ordinal, key, null)) {
+            return;
+        }
+        if (key.email != null) {
+            byEmail.computeIfPresent(key.email, (email, tickets) -> without(tickets, ticket));
+        }
+        if (key.surname != null) {
+            bySurname.remove(key, ticket);
+        }
+    }
+
+    /**
+     * Finds all tickets bought with an email address (case-insensitive).
+     *
+     * @param email The passenger's email
+     * @return The tickets, or an empty list if there are none
+     */
+    public List<Ticket> findByEmail(String email) {
+        Ticket[] tickets = email == null ? null : byEmail.get(lowerCase(email));
+        return tickets == null ? Collections.emptyList() : Arrays.asList(tickets.clone());
+    }
+
+    /**
+     * Finds the tickets of passengers whose surname starts with a prefix (case-insensitive).
+     *
+     * @param prefix The start of the surname (an empty prefix matches every passenger)
+     * @param limit  The maximum number of tickets returned
+     * @return The tickets, sorted by surname then seat
+     */
+    public List<Ticket> findBySurnamePrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+        String start = prefix == null ? "" : lowerCase(prefix);
+        List<Ticket> tickets = new ArrayList<>(Math.min(limit, 64));
+        for (Map.Entry<Key, Ticket> entry : bySurname.tailMap(new Key(start, Integer.MIN_VALUE, null, null)).entrySet()) {
+            if (tickets.size() == limit || !entry.getKey().surname.startsWith(start)) {
+                break;
+            }
+            tickets.add(entry.getValue());
+        }
+        return tickets;
+    }
+
+    // ========== Internal helpers ========== //
+
+    private AtomicReferenceArray<Key> keys() {
+        AtomicReferenceArray<Key> keys = this.keys;
+        if (keys == null) {
+            synchronized (this) {
+                keys = this.keys;
+                if (keys == null) {
+                    this.keys = keys = new AtomicReferenceArray<>(capacity);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static String lowerCase(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Ticket[] append(Ticket[] tickets, Ticket ticket) {
+        if (tickets == null) {
+            return new Ticket[]{ticket};
+        }
+        Ticket[] copy = Arrays.copyOf(tickets, tickets.length + 1);
+        copy[tickets.length] = ticket;
+        return copy;
+    }
+
+    // Returns the tickets without one ticket, or null (removing the email) if none are left
+    private static Ticket[] without(Ticket[] tickets, Ticket ticket) {
+        for (int i = 0; i < tickets.length; i++) {
+            if (tickets[i] == ticket) {
+                if (tickets.length == 1) {
+                    return null;
+                }
+                Ticket[] copy = new Ticket[tickets.length - 1];
+                System.arraycopy(tickets, 0, copy, 0, i);
+                System.arraycopy(tickets, i + 1, copy, i, copy.length - i);
+                return copy;
+            }
+        }
+        return tickets;
+    }
+
+    // Keys a ticket was indexed under; also its sort key in the surname index
+    private static final class Key implements Comparable<Key> {
+        private final String surname;
+        private final int ordinal;
+        private final String email;
+        private final Ticket ticket;
+
+        Key(String surname, int ordinal, String email, Ticket ticket) {
+            this.surname = surname;
+            this.ordinal = ordinal;
+            this.email = email;
+            this.ticket = ticket;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int order = surname.compareTo(other.surname);
+            return order != 0 ? order : Integer.compare(ordinal, other.ordinal);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The PassengerStore class keeps the passengers of one flight in columns, one slot per seat
+ * (by seat ordinal), instead of one {@link Person} object with three Strings per ticket.
+ * - First names and surnames are stored as ids in a {@link NameDictionary}, so names that
+ *   many passengers share are stored once
+ * - Emails are stored as UTF-8 byte arrays, without a String around them
+ *
+ * {@link #put(int, Person)} returns a flyweight Person that reads the slot when its getters are
+ * called. When the seat's ticket is cancelled the flyweight is detached: its fields are copied
+ * out of the slot before the slot can be reused, so a ticket that is still referenced (e.g.
+ * queued for the journal) keeps its passenger. Calling a setter also detaches it.
+ *
+ * Every slot has a stamp that changes whenever the slot is written. A flyweight remembers the
+ * stamp of its own passenger and checks it after reading from the slot, so it never returns a
+ * name or email stored for a later passenger of the same seat.
+ *
+ * Costs of the layout:
+ * - {@link Person#getEmail()} on a flyweight decodes a new String on every call; callers that
+ *   read the email repeatedly should keep it
+ * - Names go into the dictionary for good (see {@link NameDictionary}), even once every ticket
+ *   carrying them has been cancelled
+ */
+public class PassengerStore {
+    // Dictionary the names are stored in
+    private final NameDictionary names;
+
+    // First name and surname ids of each seat's passenger
+    private final AtomicIntegerArray nameIds;
+    private final AtomicIntegerArray surnameIds;
+
+    // Email of each seat's passenger as UTF-8 bytes (null when the seat has no passenger)
+    private final AtomicReferenceArray<byte[]> emails;
+
+    // Stamp of each slot: odd while the slot is being written, and different after every write
+    private final AtomicIntegerArray stamps;
+
+    /**
+     * Constructs a new, empty PassengerStore using the shared name dictionary.
+     *
+     * @param capacity the number of seats on the aircraft
+     */
+    public PassengerStore(int capacity) {
+        this(capacity, NameDictionary.shared());
+    }
+
+    /**
+     * Constructs a new, empty PassengerStore.
+     *
+     * @param capacity the number of seats on the aircraft
+     * @param names    the dictionary to store names in
+     */
+    public PassengerStore(int capacity, NameDictionary names) {
+        this.names = names;
+        this.nameIds = new AtomicIntegerArray(capacity);
+        this.surnameIds = new AtomicIntegerArray(capacity);
+        this.emails = new AtomicReferenceArray<>(capacity);
+        this.stamps = new AtomicIntegerArray(capacity);
+    }
+
+    /**
+     * Stores the passenger of a seat, replacing any previous one.
+     * Must only be called by the thread that has just claimed the seat.
+     *
+     * @param ordinal The seat ordinal
+     * @param person  The passenger
+     * @return A flyweight view of the stored passenger
+     */
+    public Person put(int ordinal, Person person) {
+        String email = person.getEmail();
+        byte[] bytes = email == null ? null : email.getBytes(StandardCharsets.UTF_8);
+        int nameId = names.idOf(person.getName());
+        int surnameId = names.idOf(person.getSurname());
+        // The stamp changes before the slot does: a flyweight of an older passenger that reads
+        // a new name sees a new stamp when it checks afterwards
+        stamps.incrementAndGet(ordinal);
+        emails.set(ordinal, bytes);
+        nameIds.set(ordinal, nameId);
+        surnameIds.set(ordinal, surnameId);
+        return new StoredPerson(this, ordinal, stamps.incrementAndGet(ordinal));
+    }
+
+    /**
+     * Removes the passenger of a seat whose ticket was cancelled, detaching the ticket's
+     * flyweight first so it keeps its values.
+     *
+     * @param ordinal The seat ordinal
+     * @param person  The cancelled ticket's passenger
+     */
+    public void remove(int ordinal, Person person) {
+        if (person instanceof StoredPerson && ((StoredPerson) person).store == this) {
+            ((StoredPerson) person).detach();
+        }
+        stamps.incrementAndGet(ordinal);
+        emails.set(ordinal, null);
+        nameIds.set(ordinal, NameDictionary.NULL_ID);
+        surnameIds.set(ordinal, NameDictionary.NULL_ID);
+        stamps.incrementAndGet(ordinal);
+    }
+
+    /**
+     * Gets the name dictionary of this store.
+     * @return The dictionary
+     */
+    public NameDictionary getNames() {
+        return names;
+    }
+
+    // A passenger read from its slot until it is detached
+    private static final class StoredPerson extends Person {
+        private final PassengerStore store;
+        private final int ordinal;
+        private final int stamp;
+        private volatile boolean detached;
+
+        StoredPerson(PassengerStore store, int ordinal, int stamp) {
+            super(null, null, null);
+            this.store = store;
+            this.ordinal = ordinal;
+            this.stamp = stamp;
+        }
+
+        @Override
+        public String getName() {
+            if (!detached) {
+                int id = store.nameIds.get(ordinal);
+                if (current()) {
+                    return store.names.nameOf(id);
+                }
+            }
+            return super.getName();
+        }
+
+        @Override
+        public String getSurname() {
+            if (!detached) {
+                int id = store.surnameIds.get(ordinal);
+                if (current()) {
+                    return store.names.nameOf(id);
+                }
+            }
+            return super.getSurname();
+        }
+
+        @Override
+        public String getEmail() {
+            if (!detached) {
+                byte[] email = store.emails.get(ordinal);
+                if (current()) {
+                    return email == null ? null : new String(email, StandardCharsets.UTF_8);
+                }
+            }
+            return super.getEmail();
+        }
+
+        @Override
+        public void setName(String name) {
+            detach();
+            super.setName(name);
+        }
+
+        @Override
+        public void setSurname(String surname) {
+            detach();
+            super.setSurname(surname);
+        }
+
+        @Override
+        public void setEmail(String email) {
+            detach();
+            super.setEmail(email);
+        }
+
+        // The slot still holds this passenger (checked after reading from it); the stamp would
+        // only come round again after 2^32 writes to the seat
+        private boolean current() {
+            return store.stamps.get(ordinal) == stamp;
+        }
+
+        // Copies the passenger out of the slot into the plain Person fields
+        private synchronized void detach() {
+            if (detached) {
+                return;
+            }
+            super.setName(store.names.nameOf(store.nameIds.get(ordinal)));
+            super.setSurname(store.names.nameOf(store.surnameIds.get(ordinal)));
+            byte[] email = store.emails.get(ordinal);
+            super.setEmail(email == null ? null : new String(email, StandardCharsets.UTF_8));
+            detached = true;
+        }
+    }
+}
@@ -84,10 +84,12 @@ public class Person {
     /**
      * Displays the person's complete information in a readable format.
      * Prints the name, surname, and email address to the standard output.
+     * Reads them through the getters, so passengers stored elsewhere (see
+     * {@link PassengerStore}) print their own details.
      */
     public void printInfo() {
-        System.out.println("Name: " + name);
-        System.out.println("Surname: " + surname);
-        System.out.println("Email: " + email);
+        System.out.println("Name: " + getName());
+        System.out.println("Surname: " + getSurname());
+        System.out.println("Email: " + getEmail());
     }
 }
\ No newline at end of file
@@ -1,4 +1,19 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -7,27 +22,76 @@ import java.util.Scanner;
  * displaying seating plans, and managing ticket information.
  */
 public class PlaneManagement {
-    // Seat pricing configuration (compile-time constants)
-    private static final int yellow_price = 200;  // Price for yellow zone seats (columns 1-5 in all rows)
-    private static final int blue_price = 150;    // Price for blue zone seats (columns 6-9 in all rows)
-    private static final int green_price = 180;    // Price for green zone seats (columns 10-14 in rows A-B, 10-13 in rows C-D)
+    // Flight sold by the console application
+    private static final String FLIGHT_NUMBER = "PM001";
+
+    // Layout file of the aircraft (rows, fare zones and their prices)
+    private static final Path LAYOUT_FILE = Path.of("layouts", "PM-54.layout");
+
+    // Ticket journal configuration: directory holding the journal and snapshot,
+    // records per batch, maximum wait before a batch is written
+    private static final Path JOURNAL_DIR = Path.of("journal");
+    private static final int JOURNAL_BATCH_SIZE = 256;
+    private static final long JOURNAL_FLUSH_MILLIS = 5;
+
+    // Seat changes the event log holds before publishers wait for its subscribers
+    private static final int EVENT_LOG_CAPACITY = 8192;
+
+    // How long a seat is held while the customer enters their details
+    private static final long HOLD_TTL_MILLIS = 5 * 60 * 1000;
+
+    // Commands parsed and applied together in batch mode
+    private static final int BATCH_SIZE = 4096;
+
+    // Port the HTTP booking API listens on when no port is given
+    private static final int HTTP_PORT = 8080;
+
+    // Most tickets listed by a passenger search
+    private static final int SEARCH_LIMIT = 20;
+
+    // System properties that turn on periodic metrics dumps: the file (JSON if it ends in
+    // .json, text otherwise) and the interval in seconds
+    private static final String METRICS_FILE_PROPERTY = "metrics.file";
+    private static final String METRICS_PERIOD_PROPERTY = "metrics.period";
+    private static final long METRICS_PERIOD_SECONDS = 60;
+
+    // System property that turns on dynamic pricing, as THRESHOLD:SURCHARGE percentages
+    // separated by commas (e.g. "70:15,90:30": +15% once a zone is 70% sold, +30% at 90%)
+    private static final String PRICING_PROPERTY = "pricing.tiers";
+
+    // Built-in fallback layout, used when the layout file cannot be read
+    private static final int YELLOW = 0;   // columns 1-5 in all rows, £200
+    private static final int BLUE = 1;     // columns 6-9 in all rows, £150
+    private static final int GREEN = 2;    // remaining columns, £180
 
     /**
-     * Two-dimensional array representing the airplane's seating arrangement.
-     * - First dimension (rows): 4 rows (A-D)
-     * - Second dimension (columns): Varies by row (14 seats in A, 13 in B-D)
-     * - 'O' represents available seat
-     * - 'X' represents booked seat
+     * Layout of the airplane, loaded from the layout file.
+     * - 4 rows (A-D)
+     * - Varies by row (14 seats in A and D, 13 in B and C)
      */
-    private static final char[][] seats = {
-            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O'},  // Row A (14 seats)
-            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O'},        // Row B (13 seats)
-            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O'},        // Row C (13 seats)
-            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O'}   // Row D (14 seats)
-    };
+    private static final Aircraft aircraft = loadAircraft();
+
+    // Seat map of the airplane, occupancy is kept as packed bits (see SeatMap)
+    private static final SeatMap seats = new SeatMap(aircraft);
+
+    // Booking engine that sells seats from the seat map and stores the tickets sold
+    private static final BookingService bookings = new BookingService(FLIGHT_NUMBER, seats, aircraft.getDefaultFares());
+
+    // Renders the seating plan and ticket manifest to the console in bulk writes
+    private static final BookingRenderer renderer = new BookingRenderer(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+
+    // Journal every sale and cancellation is appended to (null if it could not be opened)
+    private static TicketJournal journal;
 
-    // Array to store all tickets sold during the current session
-    private static Ticket[] ticketSold = new Ticket[0];
+    // Log seat changes are published to; the journal and dynamic pricing subscribe to it, so
+    // booking threads never call them directly (null once closed)
+    private static BookingEventLog events;
+
+    // Raises fares as zones fill up (null unless the pricing.tiers property is set)
+    private static DynamicPricing pricing;
+
+    // Sequence number of the last journal record recovered at startup
+    private static long lastSequence;
 
     /**
      * Handles the seat purchasing process.
@@ -77,20 +141,17 @@ public class PlaneManagement {
 
         int row = rowChar - 'A'; // Convert character to array index (A=0, B=1, etc.)
 
-        try {
-            // Check seat availability
-            if (seats[row][column - 1] == 'X') {
-                System.out.println("Seat " + rowChar + column + " is already sold.");
-                return;
-            }
-        } catch (ArrayIndexOutOfBoundsException e) {
+        // Check seat exists in this row
+        if (column > seats.seatsInRow(row)) {
             System.out.println("Invalid seat selection.");
             return;
         }
 
-        // Process available seat
-        if ('O' == seats[row][column - 1]) {
-            System.out.println("Great!.. Seat " + rowChar + column + " is available.");
+        // Hold the seat while the passenger's details are entered, so no other agent can take it
+        SeatHold hold = bookings.hold(row, column, HOLD_TTL_MILLIS);
+        if (hold != null) {
+            System.out.println("Great!.. Seat " + rowChar + column + " is available and held for you for "
+                    + HOLD_TTL_MILLIS / 60000 + " minutes.");
             scanner.nextLine(); // Clear buffer
             
             // Collect passenger information
@@ -101,52 +162,29 @@ public class PlaneManagement {
             System.out.print("Enter your email: ");
             String email = scanner.nextLine();
 
-            // Create passenger and ticket
+            // Create passenger and buy the held seat
             Person person = new Person(name, surname, email);
-            int price = calculatePrice(row, column - 1);
-            Ticket ticket = new Ticket(row, column, price, person);
-            
-            // Complete booking
-            addTicket(ticket);
-            ticket.save();
-            seats[row][column - 1] = 'X';
+            Ticket ticket;
+            try {
+                ticket = bookings.confirm(hold, person);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Details too long to journal, or sales have stopped: free the seat right away
+                bookings.release(hold);
+                System.out.println(e.getMessage());
+                return;
+            }
+            if (ticket == null) {
+                System.out.println("The hold on seat " + rowChar + column + " ran out, please try again.");
+                return;
+            }
+
+            // Complete booking (the ticket is written to the journal in the background)
             System.out.println("Successfully Booked a seat " + rowChar + column);
         } else {
-            System.out.println("Seat " + rowChar + column + " is already sold.");
+            System.out.println("Seat " + rowChar + column + " is already sold or held.");
         }
     }
 
-    /**
-     * Adds a new ticket to the sold tickets array.
-     * @param ticket The Ticket object to be added to the collection
-     */
-    private static void addTicket(Ticket ticket) {
-        Ticket[] newTicketsSold = new Ticket[ticketSold.length + 1];
-        System.arraycopy(ticketSold, 0, newTicketsSold, 0, ticketSold.length);
-        newTicketsSold[ticketSold.length] = ticket;
-        ticketSold = newTicketsSold;
-    }
-
-    /**
-     * Calculates the price for a seat based on its position.
-     * @param row The row index (0-3)
-     * @param column The column index (0-13)
-     * @return The price for the seat
-     */
-    private static int calculatePrice(int row, int column) {
-        char seatChar = (char) ('A' + row);
-        if (column >= 0 && column < 5) { // Yellow seats (columns 1-5)
-            return yellow_price;
-        } else if (column >= 5 && column < 9) { // Blue seats (columns 6-9)
-            return blue_price;
-        } else if ((column >= 9 && column < 14) && (seatChar == 'A' || seatChar == 'B')) { // Green seats for rows A-B
-            return green_price;
-        } else if ((column >= 9 && column < 13) && (seatChar == 'C' || seatChar == 'D')) { // Green seats for rows C-D
-            return green_price;
-        }
-        return 0; // Invalid seat position
-    }
-
     /**
      * Handles seat cancellation process.
      * - Validates seat selection
@@ -194,15 +232,22 @@ public class PlaneManagement {
 
         int row = rowChar - 'A';
 
-        if (column <= seats[row].length) {
+        if (column <= seats.seatsInRow(row)) {
             if (!is_seat_available(row, column)) {
-                seats[row][column - 1] = 'O'; // Mark as available
-                Scanner m = new Scanner(System.in);
                 System.out.println("Do you want to cancel your ticket? (Yes/No) ");
-                String answer = m.next().toLowerCase();
+                String answer = scanner.next().toLowerCase();
                 if (answer.equals("yes")) {
-                    removeTicket(0); // Note: This currently always removes the first ticket - needs improvement
-                    System.out.println("Seat " + rowChar + column + " canceled successfully.");
+                    Ticket cancelled = bookings.cancel(row, column);
+                    if (cancelled != null) {
+                        System.out.println("Seat " + rowChar + column + " canceled successfully.");
+                        Ticket next = bookings.findTicket(row, column);
+                        if (next != null && next != cancelled) {
+                            System.out.println("Seat " + rowChar + column + " was passed on to waitlisted passenger "
+                                    + next.getPerson().getName() + " " + next.getPerson().getSurname() + ".");
+                        }
+                    } else {
+                        System.out.println("Seat " + rowChar + column + " is not booked to cancel.");
+                    }
                 }
             } else {
                 System.out.println("Seat " + rowChar + column + " is not booked to cancel.");
@@ -212,56 +257,104 @@ public class PlaneManagement {
         }
     }
 
-    /**
-     * Removes a ticket from the sold tickets array.
-     * @param index The position of the ticket to be removed
-     */
-    private static void removeTicket(int index) {
-        Ticket[] updatedTickets = new Ticket[ticketSold.length - 1];
-        System.arraycopy(ticketSold, 0, updatedTickets, 0, index);
-        System.arraycopy(ticketSold, index + 1, updatedTickets, index, ticketSold.length - index - 1);
-        ticketSold = updatedTickets;
-    }
-
     /**
      * Finds and displays the first available seat in the plane.
      * Searches row by row from front to back.
      */
     public static void find_first_available() {
         System.out.println("You have chosen the option to find first available seat");
-        boolean found = false;
-        
-        for (int i = 0; i < seats.length; i++) {
-            for (int j = 0; j < seats[i].length; j++) {
-                if (seats[i][j] == 'O') {
-                    System.out.println("First available seat found at row " + (char) ('A' + i) + ", column " + (j + 1));
-                    found = true;
-                    break;
+        int ordinal = seats.firstFree();
+
+        if (ordinal >= 0) {
+            System.out.println("First available seat found at row " + (char) ('A' + seats.rowOf(ordinal)) + ", column " + (seats.columnOf(ordinal) + 1));
+        } else {
+            System.out.println("No available seats found.");
+        }
+    }
+
+    /**
+     * Books a block of adjacent seats in one row for a group.
+     * - Asks for the number of seats and a fare zone (or any zone, or the cheapest zone)
+     * - Books the best block found (front-most row, then left-most) for one contact passenger
+     */
+    public static void book_adjacent_seats() {
+        System.out.println("You have chosen the option to book adjacent seats");
+        Scanner scanner = new Scanner(System.in);
+
+        int count;
+        do {
+            try {
+                System.out.print("Enter the number of seats (1-" + SeatAllocator.MAX_BLOCK + "): ");
+                count = scanner.nextInt();
+                if (count < 1 || count > SeatAllocator.MAX_BLOCK) {
+                    throw new InputMismatchException("Invalid number of seats.");
                 }
+            } catch (InputMismatchException e) {
+                System.out.println(e.getMessage() == null ? "Please enter a number." : e.getMessage());
+                scanner.nextLine();
+                count = -1; // Reset for retry
             }
-            if (found) break;
+        } while (count < 1);
+        scanner.nextLine(); // Clear buffer
+
+        StringBuilder zoneNames = new StringBuilder();
+        for (int zone = 0; zone < aircraft.zoneCount(); zone++) {
+            zoneNames.append(aircraft.zoneName(zone)).append(", ");
         }
-        
-        if (!found) {
-            System.out.println("No available seats found.");
+        System.out.print("Enter the fare zone (" + zoneNames + "any or cheapest): ");
+        String zoneName = scanner.nextLine().trim().toLowerCase();
+        boolean cheapest = zoneName.equals("cheapest");
+        int zone = SeatAllocator.ANY_ZONE;
+        if (!cheapest && !zoneName.isEmpty() && !zoneName.equals("any")) {
+            zone = aircraft.zoneIndex(zoneName);
+            if (zone < 0) {
+                System.out.println("Unknown fare zone: " + zoneName);
+                return;
+            }
         }
+
+        System.out.print("Enter your first name: ");
+        String name = scanner.nextLine();
+        System.out.print("Enter your surname: ");
+        String surname = scanner.nextLine();
+        System.out.print("Enter your email: ");
+        String email = scanner.nextLine();
+
+        Person[] passengers = new Person[count];
+        Arrays.fill(passengers, new Person(name, surname, email));
+        Ticket[] tickets;
+        try {
+            tickets = cheapest ? bookings.buyCheapest(passengers) : bookings.buyAdjacent(passengers, zone);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Details too long to journal, or sales have stopped; no seat was claimed
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (tickets == null) {
+            System.out.println("No block of " + count + " adjacent seats is available.");
+            return;
+        }
+
+        int total = 0;
+        for (Ticket ticket : tickets) {
+            total += ticket.getPrice();
+        }
+        Ticket first = tickets[0];
+        System.out.println("Successfully Booked seats " + (char) ('A' + first.getRow()) + first.getSeat()
+                + "-" + (char) ('A' + first.getRow()) + tickets[tickets.length - 1].getSeat() + " for £" + total);
     }
 
     /**
      * Displays the current seating plan of the airplane.
      * - Shows 'X' for booked seats
+     * - Shows 'H' for seats held by a customer who is still booking
      * - Shows 'O' for available seats
      */
     public static void show_seating_plan() {
         System.out.println("You have chosen the option to show seating plan");
         System.out.println("\n Seating Plan:");
         
-        for (int i = 0; i < seats.length; i++) {
-            for (int j = 0; j < seats[i].length; j++) {
-                System.out.print(seats[i][j] == 'X' ? "X " : "O ");
-            }
-            System.out.println();
-        }
+        renderer.seatingPlan(seats);
     }
 
     /**
@@ -275,31 +368,47 @@ public class PlaneManagement {
      */
     public static void print_tickets_info() {
         System.out.println("You have chosen the option to print ticket information and total sales");
-        int totalSales = 0;
 
-        for (Ticket ticket : ticketSold) {
-            System.out.println("Tickets Information: \n");
-            System.out.println("Seat Number: " + (char) ('A' + ticket.getRow()) + ticket.getSeat());
-            System.out.println("Passenger's Full Name: " + ticket.getPerson().getName() + " " + ticket.getPerson().getSurname());
-            System.out.println("Email: "+ ticket.getPerson().getEmail());
-            System.out.println("Price: £" + ticket.getPrice());
-            totalSales += ticket.getPrice();
-            System.out.println();
-        }
+        renderer.manifest(bookings);
 
-        System.out.println("Total Amount: £" + totalSales);
+        // Totals are kept up to date on every sale and cancellation, no need to add them up here
+        renderer.salesSummary(bookings.report());
     }
 
     /**
-     * Searches for a specific ticket by seat number.
+     * Searches for tickets by seat, by passenger email or by surname.
+     * - Asks which kind of search to run
      * - Validates input
-     * - Checks if seat is booked
-     * - Displays ticket information if found
+     * - Displays the information of every ticket found
      */
     public static void search_ticket() {
         System.out.println("You have chosen the option to search for a ticket");
         Scanner scanner = new Scanner(System.in);
-        
+
+        System.out.print("Search by 1) seat, 2) email or 3) surname: ");
+        String mode = scanner.next();
+        switch (mode) {
+            case "1" -> search_by_seat(scanner);
+            case "2" -> {
+                System.out.print("Enter the passenger's email: ");
+                show_tickets(bookings.findTickets(scanner.next()));
+            }
+            case "3" -> {
+                System.out.print("Enter the surname or its first letters: ");
+                show_tickets(bookings.findTicketsBySurname(scanner.next(), SEARCH_LIMIT));
+            }
+            default -> System.out.println("Invalid option. Please enter 1, 2 or 3.");
+        }
+    }
+
+    /**
+     * Searches for the ticket of a seat.
+     * - Validates input
+     * - Checks if seat is booked
+     * - Displays ticket information if found
+     * @param scanner The scanner to read the seat from
+     */
+    private static void search_by_seat(Scanner scanner) {
         System.out.print("Enter the row letter(A-D): ");
         char rowChar = scanner.next().toUpperCase().charAt(0);
         if (rowChar < 'A' || rowChar > 'D') {
@@ -311,16 +420,11 @@ public class PlaneManagement {
         int column = scanner.nextInt();
         int row = rowChar - 'A';
 
-        if (column >= 1 && column <= seats[row].length) {
+        if (column >= 1 && column <= seats.seatsInRow(row)) {
             if (!is_seat_available(row, column)) {
-                for (Ticket ticket : ticketSold) {
-                    if (ticket.getRow() == row && ticket.getSeat() == column) {
-                        System.out.println("Ticket Information:");
-                        System.out.println("Seat: " + (char) ('A' + ticket.getRow()) + ticket.getSeat());
-                        System.out.println("Passenger's Full Name: " + ticket.getPerson().getName() + " " + ticket.getPerson().getSurname());
-                        System.out.println("Price: £" + ticket.getPrice());
-                        return;
-                    }
+                Ticket ticket = bookings.findTicket(row, column);
+                if (ticket != null) {
+                    show_ticket(ticket);
                 }
             } else {
                 System.out.println("This seat is available.");
@@ -330,6 +434,42 @@ public class PlaneManagement {
         }
     }
 
+    /**
+     * Displays the tickets found by a passenger search.
+     * @param tickets The tickets found
+     */
+    private static void show_tickets(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            System.out.println("No tickets found.");
+            return;
+        }
+        for (Ticket ticket : tickets) {
+            show_ticket(ticket);
+        }
+        if (tickets.size() == SEARCH_LIMIT) {
+            System.out.println("Showing the first " + SEARCH_LIMIT + " tickets; type more letters to narrow the search.");
+        }
+    }
+
+    /**
+     * Displays the information of one ticket.
+     * @param ticket The ticket
+     */
+    private static void show_ticket(Ticket ticket) {
+        System.out.println("Ticket Information:");
+        System.out.println("Seat: " + (char) ('A' + ticket.getRow()) + ticket.getSeat());
+        System.out.println("Passenger's Full Name: " + ticket.getPerson().getName() + " " + ticket.getPerson().getSurname());
+        System.out.println("Price: £" + ticket.getPrice());
+    }
+
+    /**
+     * Displays the counts and latencies of the booking operations since the application started.
+     */
+    public static void show_metrics() {
+        System.out.println("Operation metrics (latencies in microseconds):");
+        System.out.print(bookings.getMetrics().toText());
+    }
+
     /**
      * Checks if a seat is available.
      * @param row The row index (0-3)
@@ -337,19 +477,15 @@ public class PlaneManagement {
      * @return true if seat is available, false if booked
      */
     public static boolean is_seat_available(int row, int column) {
-        return seats[row][column - 1] == 'O';
+        return bookings.isAvailable(row, column);
     }
 
     /**
-     * Initializes all seats to available status ('O').
+     * Initializes all seats to available status.
      * Typically called at program startup.
      */
     public static void initializeSeats() {
-        for (int i = 0; i < seats.length; i++) {
-            for (int j = 0; j < seats[i].length; j++) {
-                seats[i][j] = 'O';
-            }
-        }
+        seats.clear();
     }
 
     /**
@@ -367,20 +503,335 @@ public class PlaneManagement {
                 4) Show seating plan
                 5) Print ticket
                 6) Search ticket
+                7) Book adjacent seats
+                8) Show metrics
+                9) Reload fares
                 0) Quit
                                     
                 *************************************************
                 """);
     }
 
+    /**
+     * Loads the aircraft layout from the layout file, through its compiled cache (see
+     * {@link LayoutCache}). Falls back to the built-in layout if the file cannot be read.
+     * @return The aircraft
+     */
+    private static Aircraft loadAircraft() {
+        try {
+            return LayoutCache.load(LAYOUT_FILE);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not load " + LAYOUT_FILE + " (" + e.getMessage() + "), using the built-in layout");
+            return new Aircraft("PM-54", new String[]{"yellow", "blue", "green"}, new int[][]{
+                    {YELLOW, YELLOW, YELLOW, YELLOW, YELLOW, BLUE, BLUE, BLUE, BLUE, GREEN, GREEN, GREEN, GREEN, GREEN},  // Row A (14 seats)
+                    {YELLOW, YELLOW, YELLOW, YELLOW, YELLOW, BLUE, BLUE, BLUE, BLUE, GREEN, GREEN, GREEN, GREEN},         // Row B (13 seats)
+                    {YELLOW, YELLOW, YELLOW, YELLOW, YELLOW, BLUE, BLUE, BLUE, BLUE, GREEN, GREEN, GREEN, GREEN},         // Row C (13 seats)
+                    {YELLOW, YELLOW, YELLOW, YELLOW, YELLOW, BLUE, BLUE, BLUE, BLUE, GREEN, GREEN, GREEN, GREEN, GREEN}   // Row D (14 seats)
+            }, new int[]{200, 150, 180});
+        }
+    }
+
+    /**
+     * Reloads seat prices from the layout file (menu option 9), e.g. after the fares in it were
+     * edited while the application is running. The new fares are swapped in atomically, so
+     * bookings in progress are not blocked.
+     */
+    public static void reload_fares() {
+        try {
+            FareTable fares = FareTable.load(LAYOUT_FILE, aircraft);
+            if (pricing != null) {
+                pricing.setBaseFares(FLIGHT_NUMBER, fares);
+            } else {
+                bookings.setFares(fares);
+            }
+            System.out.println("Fares reloaded from " + LAYOUT_FILE);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("An error occurred while reloading fares from: " + LAYOUT_FILE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rebuilds the seat map and sold tickets from the snapshot and journal written by earlier runs,
+     * then writes a fresh snapshot so the next startup only has to read this run's journal.
+     * If recovery fails the application starts with every seat available.
+     */
+    public static void recoverBookings() {
+        try {
+            lastSequence = BookingRecovery.recover(JOURNAL_DIR, flight -> FLIGHT_NUMBER.equals(flight) ? bookings : null);
+            BookingRecovery.snapshot(JOURNAL_DIR, lastSequence, List.of(bookings));
+            if (bookings.ticketCount() > 0) {
+                System.out.println("Recovered " + bookings.ticketCount() + " sold tickets");
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred while recovering bookings from: " + JOURNAL_DIR);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts writing the metrics to the file named by the metrics.file system property, every
+     * metrics.period seconds. Does nothing if the property is not set.
+     */
+    public static void startMetricsDump() {
+        String file = System.getProperty(METRICS_FILE_PROPERTY);
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        try {
+            long seconds = Long.parseLong(System.getProperty(METRICS_PERIOD_PROPERTY, Long.toString(METRICS_PERIOD_SECONDS)));
+            bookings.getMetrics().dumpEvery(Path.of(file), seconds * 1000, file.endsWith(".json"));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid metrics settings, not writing metrics to: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Opens the ticket journal. It is subscribed to the event log by {@link #openEventLog()}.
+     * If the journal cannot be opened the application keeps running without it.
+     */
+    public static void openJournal() {
+        try {
+            journal = new TicketJournal(JOURNAL_DIR, JOURNAL_BATCH_SIZE, JOURNAL_FLUSH_MILLIS,
+                    TicketJournal.Durability.BATCH, lastSequence);
+        } catch (IOException e) {
+            System.out.println("An error occurred while opening the ticket journal: " + JOURNAL_DIR);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates the event log the booking engine publishes seat changes to, and subscribes the
+     * journal (if open) and dynamic pricing (if the pricing.tiers property is set) to it.
+     * Must be called before any seat is sold.
+     */
+    public static void openEventLog() {
+        events = new BookingEventLog(EVENT_LOG_CAPACITY);
+        if (journal != null) {
+            events.subscribe("journal", journal);
+        }
+        String tiers = System.getProperty(PRICING_PROPERTY);
+        if (tiers != null && !tiers.isBlank()) {
+            try {
+                String[] entries = tiers.split(",");
+                int[] thresholds = new int[entries.length];
+                int[] surcharges = new int[entries.length];
+                for (int i = 0; i < entries.length; i++) {
+                    String[] tier = entries[i].trim().split(":");
+                    thresholds[i] = Integer.parseInt(tier[0].trim());
+                    surcharges[i] = Integer.parseInt(tier[1].trim());
+                }
+                pricing = new DynamicPricing(thresholds, surcharges);
+                pricing.add(bookings);
+                events.subscribe("pricing", pricing);
+            } catch (RuntimeException e) {
+                System.out.println("Invalid pricing tiers, using fixed fares: " + tiers);
+                e.printStackTrace();
+                pricing = null;
+            }
+        }
+        bookings.setEventLog(events);
+    }
+
+    /**
+     * Hands the last published seat changes to the subscribers, then writes any pending journal
+     * records to disk and closes the journal.
+     */
+    public static void closeJournal() {
+        if (events != null) {
+            bookings.setEventLog(null);
+            events.close();
+            events = null;
+        }
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("An error occurred while closing the ticket journal: " + JOURNAL_DIR);
+            e.printStackTrace();
+        }
+        journal = null;
+    }
+
+    /**
+     * Runs a command file through the booking engine without prompting (see {@link BatchProcessor}
+     * for the file format), then prints the throughput and the latency of the commands.
+     *
+     * @param commands The command file
+     * @param results  The file to write one result line per command to, or null for the console
+     */
+    public static void run_batch(Path commands, Path results) {
+        BatchProcessor processor = new BatchProcessor(bookings, BATCH_SIZE);
+        long start = System.nanoTime();
+        try (BufferedReader in = Files.newBufferedReader(commands, StandardCharsets.UTF_8)) {
+            if (results == null) {
+                // Not closed, so the console stays open; run() flushes it
+                processor.run(in, new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+            } else {
+                try (Writer out = Files.newBufferedWriter(results, StandardCharsets.UTF_8)) {
+                    processor.run(in, out);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred while running the command file: " + commands);
+            e.printStackTrace();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Processed %d commands (%d invalid) in %.2f s: %.0f commands/s%n",
+                processor.getCommands(), processor.getErrors(), seconds, processor.getCommands() / seconds);
+        System.out.println("Latency per command: " + processor.getLatencies());
+    }
+
+    /**
+     * Serves the booking engine over HTTP on localhost (see {@link HttpBookingServer} for the
+     * endpoints) until Enter is pressed.
+     *
+     * @param port The port to listen on
+     */
+    public static void run_http(int port) {
+        HttpBookingServer server;
+        try {
+            server = new HttpBookingServer(bookings, new InetSocketAddress("localhost", port));
+        } catch (IOException e) {
+            System.out.println("An error occurred while starting the HTTP server on port: " + port);
+            e.printStackTrace();
+            return;
+        }
+        // Ctrl-C also stops the server and writes pending journal records
+        Thread shutdown = new Thread(() -> {
+            server.stop();
+            closeJournal();
+        });
+        Runtime.getRuntime().addShutdownHook(shutdown);
+        server.start();
+        System.out.println("Serving flight " + FLIGHT_NUMBER + " on http://localhost:" + server.getPort() + "/ (press Enter to stop)");
+        try {
+            int c;
+            do {
+                c = System.in.read();
+            } while (c != '\n' && c != -1);
+            if (c == -1) {
+                // No console to read Enter from: serve until the process is stopped
+                Thread.currentThread().join();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Runtime.getRuntime().removeShutdownHook(shutdown);
+        server.stop();
+    }
+
+    /**
+     * Archives the flight's tickets for sales analytics (see {@link TicketArchive}), as a file
+     * named after the date and the flight in the archive directory.
+     *
+     * @param directory The archive directory, created if needed
+     * @param date      The date of the flight
+     */
+    public static void run_archive(Path directory, LocalDate date) {
+        Path file = directory.resolve(date + "-" + FLIGHT_NUMBER + ArchiveAnalytics.EXTENSION);
+        try {
+            Files.createDirectories(directory);
+            TicketArchive.write(file, date, List.of(bookings));
+            System.out.println("Archived " + bookings.ticketCount() + " tickets of flight " + FLIGHT_NUMBER + " to " + file);
+        } catch (IOException e) {
+            System.out.println("An error occurred while writing the ticket archive: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints the revenue per date, per zone and per row of the ticket archives in a directory,
+     * for all dates or a range of dates (see {@link ArchiveAnalytics}).
+     *
+     * @param directory The archive directory
+     * @param from      The first date included, or null for no limit
+     * @param to        The last date included, or null for no limit
+     */
+    public static void run_analytics(Path directory, LocalDate from, LocalDate to) {
+        try {
+            ArchiveAnalytics analytics = new ArchiveAnalytics(ArchiveAnalytics.list(directory));
+            long start = System.nanoTime();
+            System.out.println("Tickets: " + analytics.ticketCount(from, to));
+            System.out.println("\nRevenue per date:");
+            for (Map.Entry<LocalDate, Long> date : analytics.revenueByDate(from, to).entrySet()) {
+                System.out.println("  " + date.getKey() + ": £" + date.getValue());
+            }
+            System.out.println("\nRevenue per zone:");
+            for (Map.Entry<String, Long> zone : analytics.revenueByZone(from, to).entrySet()) {
+                System.out.println("  " + zone.getKey() + ": £" + zone.getValue());
+            }
+            System.out.println("\nRevenue per row:");
+            long[] rows = analytics.revenueByRow(from, to);
+            for (int row = 0; row < rows.length; row++) {
+                System.out.println("  " + (char) ('A' + row) + ": £" + rows[row]);
+            }
+            System.out.printf("%nQueried in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.out.println("An error occurred while reading the ticket archives: " + directory);
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Main program entry point.
-     * @param args Command line arguments (not used)
+     * - No arguments: runs the interactive menu
+     * - "--batch COMMANDS [RESULTS]": runs a command file instead (see {@link #run_batch})
+     * - "--http [PORT]": serves the booking API over HTTP instead (see {@link #run_http})
+     * - "--archive DIRECTORY [DATE]": archives the flight's tickets (see {@link #run_archive})
+     * - "--analytics DIRECTORY [FROM TO]": queries the ticket archives (see {@link #run_analytics})
+     * @param args Command line arguments
      */
     public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-        System.out.println("\n\n'Welcome to the Plane Management application'\n");
+        String mode = args.length > 0 ? args[0] : "";
+        boolean valid = switch (mode) {
+            case "" -> true;
+            case "--batch" -> args.length == 2 || args.length == 3;
+            case "--http" -> args.length == 1 || (args.length == 2 && args[1].matches("\\d{1,5}"));
+            case "--archive" -> (args.length == 2 || args.length == 3) && dates(args, 2);
+            case "--analytics" -> (args.length == 2 || args.length == 4) && dates(args, 2);
+            default -> false;
+        };
+        if (!valid) {
+            System.out.println("Usage: java PlaneManagement [--batch COMMANDS [RESULTS] | --http [PORT]"
+                    + " | --archive DIRECTORY [DATE] | --analytics DIRECTORY [FROM TO]]");
+            return;
+        }
+        if (mode.equals("--analytics")) {
+            run_analytics(Path.of(args[1]), args.length > 2 ? LocalDate.parse(args[2]) : null,
+                    args.length > 3 ? LocalDate.parse(args[3]) : null);
+            return;
+        }
+        if (mode.isEmpty()) {
+            System.out.println("\n\n'Welcome to the Plane Management application'\n");
+        }
         initializeSeats();
+        startMetricsDump();
+        recoverBookings();
+        openJournal();
+        openEventLog();
+        if (mode.equals("--batch")) {
+            run_batch(Path.of(args[1]), args.length > 2 ? Path.of(args[2]) : null);
+            closeJournal();
+            return;
+        }
+        if (mode.equals("--archive")) {
+            run_archive(Path.of(args[1]), args.length > 2 ? LocalDate.parse(args[2]) : LocalDate.now());
+            closeJournal();
+            return;
+        }
+        if (mode.equals("--http")) {
+            run_http(args.length > 1 ? Integer.parseInt(args[1]) : HTTP_PORT);
+            closeJournal();
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
 
         int option;
         do {
@@ -401,9 +852,26 @@ public class PlaneManagement {
                 case 4 -> show_seating_plan();
                 case 5 -> print_tickets_info();
                 case 6 -> search_ticket();
+                case 7 -> book_adjacent_seats();
+                case 8 -> show_metrics();
+                case 9 -> reload_fares();
                 case 0 -> System.out.println("End");
                 default -> System.out.println("Invalid option");
             }
         } while (option != 0);
+
+        closeJournal();
+    }
+
+    // Checks that the arguments from the given index on are dates (YYYY-MM-DD)
+    private static boolean dates(String[] args, int first) {
+        try {
+            for (int i = first; i < args.length; i++) {
+                LocalDate.parse(args[i]);
+            }
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The RequestCache class remembers the outcome of recent requests by their client request ID,
+ * so a request that is sent again (an agent retrying after a timeout) gets the original outcome
+ * instead of being run a second time.
+ * - Lookups are a single hash map read
+ * - Requests are also queued in the order they arrived; the oldest are evicted when the cache
+ *   holds too many, and once they are older than the time to live
+ * - A request sent again while the first one is still running waits for its outcome
+ * - A request ID reused for a different request (another kind of operation, or other
+ *   parameters, compared through a 64-bit fingerprint) is rejected rather than answered with
+ *   the outcome of the first request
+ *
+ * Requests that throw are not remembered: the exception is passed to the callers waiting for
+ * them, and the next attempt runs the request again.
+ *
+ * @param <T> the type of the outcomes
+ */
+public class RequestCache<T> {
+    // Most requests remembered, and how long each is remembered for
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Requests by ID, and the same requests in arrival order
+    private final ConcurrentHashMap<String, Request<T>> requests = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Request<T>> arrivals = new ConcurrentLinkedQueue<>();
+
+    // Requests in the arrival queue (expired and failed ones included until they are evicted)
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Requests answered from the cache, and requests run
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // One remembered request
+    private static final class Request<T> {
+        final String id;
+        final String operation;
+        final long fingerprint;
+        final long arrivedNanos;
+        final CompletableFuture<T> outcome = new CompletableFuture<>();
+
+        Request(String id, String operation, long fingerprint, long arrivedNanos) {
+            this.id = id;
+            this.operation = operation;
+            this.fingerprint = fingerprint;
+            this.arrivedNanos = arrivedNanos;
+        }
+    }
+
+    /**
+     * Constructs a new, empty RequestCache.
+     *
+     * @param maxSize   the most requests remembered
+     * @param ttlMillis how long a request is remembered, in milliseconds
+     * @throws IllegalArgumentException if the size or time to live is not positive
+     */
+    public RequestCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Invalid request cache: " + maxSize + " requests, " + ttlMillis + " ms");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Computes the fingerprint of a request's parameters, for {@link #execute}: a 64-bit FNV-1a
+     * hash of their string forms, in order.
+     *
+     * @param parameters the parameters (nulls allowed)
+     * @return The fingerprint
+     */
+    public static long fingerprint(Object... parameters) {
+        long hash = 0xCBF29CE484222325L;
+        for (Object parameter : parameters) {
+            String value = String.valueOf(parameter);
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+            }
+            // Separator, so ("ab", "c") and ("a", "bc") differ; null differs from "null"
+            hash = (hash ^ (parameter == null ? 0x10000 : 0x10001)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Runs a request, unless a request with the same ID was run recently.
+     *
+     * @param requestId   the client request ID
+     * @param operation   the kind of request (e.g. "buy"), which a reused ID must match
+     * @param fingerprint the fingerprint of the request's parameters (see {@link #fingerprint}),
+     *                    which a reused ID must also match
+     * @param request     runs the request
+     * @return The outcome of the request, or of the earlier request with the same ID
+     * @throws IllegalArgumentException if the ID was used recently for another kind of request, or
+     *                                  for the same kind with other parameters
+     */
+    public T execute(String requestId, String operation, long fingerprint, Supplier<T> request) {
+        long now = System.nanoTime();
+        Request<T> earlier = requests.get(requestId);
+        if (earlier != null && now - earlier.arrivedNanos >= ttlNanos) {
+            requests.remove(requestId, earlier);
+            earlier = null;
+        }
+        Request<T> created = null;
+        if (earlier == null) {
+            created = new Request<>(requestId, operation, fingerprint, now);
+            earlier = requests.putIfAbsent(requestId, created);
+        }
+        if (earlier != null) {
+            if (!earlier.operation.equals(operation)) {
+                throw new IllegalArgumentException("Request " + requestId + " was a " + earlier.operation + ", not a " + operation);
+            }
+            if (earlier.fingerprint != fingerprint) {
+                throw new IllegalArgumentException("Request " + requestId + " was a " + operation + " with other parameters");
+            }
+            hits.increment();
+            return outcome(earlier);
+        }
+
+        misses.increment();
+        arrivals.offer(created);
+        size.incrementAndGet();
+        evict(now);
+        T outcome;
+        try {
+            outcome = request.get();
+        } catch (Throwable e) {
+            // Errors too: a request left pending would block every retry of it for good
+            requests.remove(requestId, created);
+            created.outcome.completeExceptionally(e);
+            throw e;
+        }
+        created.outcome.complete(outcome);
+        return outcome;
+    }
+
+    /**
+     * Gets the number of requests remembered, including expired ones not evicted yet.
+     * @return The number of requests
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of requests answered from the cache.
+     * @return The number of hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of requests that were run.
+     * @return The number of misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Forgets the oldest requests while there are too many or they have expired
+    private void evict(long now) {
+        Request<T> oldest;
+        while ((oldest = arrivals.peek()) != null
+                && (size.get() > maxSize || now - oldest.arrivedNanos >= ttlNanos)) {
+            if (arrivals.remove(oldest)) {
+                size.decrementAndGet();
+                requests.remove(oldest.id, oldest);
+            }
+        }
+    }
+
+    // Waits for a request's outcome, rethrowing what it threw
+    private static <T> T outcome(Request<T> request) {
+        try {
+            return request.outcome.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * The SalesReport class is an immutable copy of a flight's sales totals, taken by
+ * {@link SalesStats#report()}. It can be kept, printed or sent anywhere without affecting
+ * sales in progress.
+ */
+public class SalesReport {
+    // The aircraft type the seats belong to
+    private final Aircraft aircraft;
+
+    // Revenue of all tickets sold, in £
+    private final long revenue;
+
+    // Seats sold and revenue in £, per fare zone
+    private final long[] soldByZone;
+    private final long[] revenueByZone;
+
+    // Seats sold per row
+    private final long[] soldByRow;
+
+    // Total number of seats sold
+    private final long ticketsSold;
+
+    SalesReport(Aircraft aircraft, long revenue, long[] soldByZone, long[] revenueByZone, long[] soldByRow) {
+        this.aircraft = aircraft;
+        this.revenue = revenue;
+        this.soldByZone = soldByZone;
+        this.revenueByZone = revenueByZone;
+        this.soldByRow = soldByRow;
+        long sold = 0;
+        for (long zoneTotal : soldByZone) {
+            sold += zoneTotal;
+        }
+        this.ticketsSold = sold;
+    }
+
+    /**
+     * Gets the revenue of all tickets sold.
+     * @return The revenue in £
+     */
+    public long getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Gets the number of tickets sold.
+     * @return The number of tickets
+     */
+    public long getTicketsSold() {
+        return ticketsSold;
+    }
+
+    /**
+     * Gets the share of all seats that are sold.
+     * @return The load factor, from 0 to 1 (0 for an aircraft without seats)
+     */
+    public double getLoadFactor() {
+        int capacity = aircraft.capacity();
+        return capacity == 0 ? 0 : (double) ticketsSold / capacity;
+    }
+
+    /**
+     * Gets the number of fare zones.
+     * @return The number of zones
+     */
+    public int zoneCount() {
+        return soldByZone.length;
+    }
+
+    /**
+     * Gets the name of a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The zone name
+     */
+    public String zoneName(int zone) {
+        return aircraft.zoneName(zone);
+    }
+
+    /**
+     * Gets the number of seats sold in a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The number of seats sold
+     */
+    public long soldInZone(int zone) {
+        return soldByZone[zone];
+    }
+
+    /**
+     * Gets the revenue of a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The revenue in £
+     */
+    public long revenueInZone(int zone) {
+        return revenueByZone[zone];
+    }
+
+    /**
+     * Gets the share of a fare zone's seats that are sold.
+     * @param zone The fare zone (0-based)
+     * @return The load factor, from 0 to 1 (0 for a zone without seats)
+     */
+    public double zoneLoadFactor(int zone) {
+        int seats = aircraft.seatsInZone(zone);
+        return seats == 0 ? 0 : (double) soldByZone[zone] / seats;
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return The number of rows
+     */
+    public int rowCount() {
+        return soldByRow.length;
+    }
+
+    /**
+     * Gets the number of seats sold in a row.
+     * @param row The row index (0-based)
+     * @return The number of seats sold
+     */
+    public long soldInRow(int row) {
+        return soldByRow[row];
+    }
+
+    /**
+     * Gets the share of a row's seats that are sold.
+     * @param row The row index (0-based)
+     * @return The load factor, from 0 to 1 (0 for a row without seats)
+     */
+    public double rowLoadFactor(int row) {
+        int seats = aircraft.seatsInRow(row);
+        return seats == 0 ? 0 : (double) soldByRow[row] / seats;
+    }
+}
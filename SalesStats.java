@@ -0,0 +1,142 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SalesStats class keeps running sales totals for one flight: revenue, seats sold per
+ * fare zone and per row, and revenue per zone. The totals are updated on every sale and
+ * cancellation instead of being recomputed from the sold tickets.
+ *
+ * Every total is a {@link LongAdder}, so agents selling at the same time update separate
+ * cells and do not contend. Each total can be read in constant time from any thread;
+ * {@link #report()} copies them all into an immutable {@link SalesReport}.
+ */
+public class SalesStats {
+    // The aircraft type the seats belong to
+    private final Aircraft aircraft;
+
+    // Revenue of all tickets sold, in £
+    private final LongAdder revenue = new LongAdder();
+
+    // Seats sold and revenue in £, per fare zone
+    private final LongAdder[] zoneSold;
+    private final LongAdder[] zoneRevenue;
+
+    // Seats sold per row
+    private final LongAdder[] rowSold;
+
+    /**
+     * Constructs new SalesStats with nothing sold.
+     *
+     * @param aircraft the aircraft type of the flight
+     */
+    public SalesStats(Aircraft aircraft) {
+        this.aircraft = aircraft;
+        this.zoneSold = adders(aircraft.zoneCount());
+        this.zoneRevenue = adders(aircraft.zoneCount());
+        this.rowSold = adders(aircraft.rowCount());
+    }
+
+    /**
+     * Adds a sale to the totals.
+     *
+     * @param ordinal The seat ordinal
+     * @param price   The price the seat was sold for, in £
+     */
+    public void recordSale(int ordinal, int price) {
+        int zone = aircraft.zoneOf(ordinal);
+        revenue.add(price);
+        zoneRevenue[zone].add(price);
+        zoneSold[zone].increment();
+        rowSold[aircraft.rowOf(ordinal)].increment();
+    }
+
+    /**
+     * Removes a cancelled sale from the totals.
+     *
+     * @param ordinal The seat ordinal
+     * @param price   The price the seat was sold for, in £
+     */
+    public void recordCancellation(int ordinal, int price) {
+        int zone = aircraft.zoneOf(ordinal);
+        revenue.add(-price);
+        zoneRevenue[zone].add(-price);
+        zoneSold[zone].decrement();
+        rowSold[aircraft.rowOf(ordinal)].decrement();
+    }
+
+    /**
+     * Gets the revenue of all tickets sold.
+     * @return The revenue in £
+     */
+    public long revenue() {
+        return revenue.sum();
+    }
+
+    /**
+     * Gets the number of seats sold in a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The number of seats sold
+     */
+    public long soldInZone(int zone) {
+        return zoneSold[zone].sum();
+    }
+
+    /**
+     * Gets the revenue of a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The revenue in £
+     */
+    public long revenueInZone(int zone) {
+        return zoneRevenue[zone].sum();
+    }
+
+    /**
+     * Gets the number of seats sold in a row.
+     * @param row The row index (0-based)
+     * @return The number of seats sold
+     */
+    public long soldInRow(int row) {
+        return rowSold[row].sum();
+    }
+
+    /**
+     * Gets the share of a row's seats that are sold.
+     * @param row The row index (0-based)
+     * @return The load factor, from 0 to 1 (0 for a row without seats)
+     */
+    public double rowLoadFactor(int row) {
+        int seats = aircraft.seatsInRow(row);
+        return seats == 0 ? 0 : (double) soldInRow(row) / seats;
+    }
+
+    /**
+     * Copies the current totals into a report.
+     * Sales made while the report is being taken may be counted in some totals and not yet
+     * in others, as with any read of several {@link LongAdder}s.
+     *
+     * @return The sales report
+     */
+    public SalesReport report() {
+        long[] soldByZone = sums(zoneSold);
+        long[] revenueByZone = sums(zoneRevenue);
+        long[] soldByRow = sums(rowSold);
+        return new SalesReport(aircraft, revenue.sum(), soldByZone, revenueByZone, soldByRow);
+    }
+
+    // ========== Internal helpers ========== //
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * The SeatAllocator class finds and books blocks of adjacent free seats on a {@link SeatMap}.
+ * - {@link #allocateAdjacent(int, int)}: the best block of N adjacent seats, in any zone or
+ *   within one fare zone
+ * - {@link #allocateCheapest(int, FareTable)}: the best block in the cheapest zone that has one
+ *
+ * The best block is the one in the front-most row, and the left-most one in that row.
+ *
+ * The search works on whole row words rather than seat by seat: the free seats of a row word
+ * are ANDed with shifted copies of themselves (doubling the run length each step), which
+ * leaves a bit set exactly where a run of N free seats starts. Zone searches AND in the
+ * precomputed seat mask of the zone first. Rows longer than 64 seats are searched as one long
+ * bit string, with each word's shifted copy filled in from the next word.
+ *
+ * The chosen seats are booked in the same call with a compare-and-set on their row word, so a
+ * block is either booked entirely or not at all. If another agent takes one of the seats first,
+ * the search is repeated.
+ */
+public class SeatAllocator {
+    // Longest block that can be allocated at once
+    public static final int MAX_BLOCK = 64;
+
+    // Any fare zone
+    public static final int ANY_ZONE = -1;
+
+    // The seat map seats are allocated from
+    private final SeatMap seats;
+
+    // Layout of the aircraft
+    private final Aircraft aircraft;
+
+    /**
+     * Constructs a new SeatAllocator.
+     *
+     * @param seats the seat map to allocate seats from
+     */
+    public SeatAllocator(SeatMap seats) {
+        this.seats = seats;
+        this.aircraft = seats.getAircraft();
+    }
+
+    /**
+     * Finds the best block of adjacent free seats without booking it.
+     * Under concurrent bookings the result is a snapshot.
+     *
+     * @param count The number of seats (1 to {@link #MAX_BLOCK})
+     * @param zone  The fare zone all seats must be in, or {@link #ANY_ZONE}
+     * @return The ordinal of the first seat of the block (the others follow it in the same row),
+     *         or -1 if there is no such block
+     */
+    public int findAdjacent(int count, int zone) {
+        checkRequest(count, zone);
+        for (int row = 0; row < aircraft.rowCount(); row++) {
+            int start = blockStart(row, count, zone);
+            if (start >= 0) {
+                return aircraft.rowOffsets[row] + start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds and books the best block of adjacent free seats.
+     *
+     * @param count The number of seats (1 to {@link #MAX_BLOCK})
+     * @param zone  The fare zone all seats must be in, or {@link #ANY_ZONE}
+     * @return The ordinal of the first seat of the booked block (the others follow it in the
+     *         same row), or -1 if there is no such block
+     */
+    public int allocateAdjacent(int count, int zone) {
+        checkRequest(count, zone);
+        if (zone != ANY_ZONE && seats.freeInZone(zone) < count) {
+            return -1;
+        }
+        for (int row = 0; row < aircraft.rowCount(); row++) {
+            while (seats.freeInRow(row) >= count) {
+                int start = blockStart(row, count, zone);
+                if (start < 0) {
+                    break;
+                }
+                if (claimBlock(row, start, count)) {
+                    return aircraft.rowOffsets[row] + start;
+                }
+                // Another agent took one of the seats; search this row again
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds and books the best block of adjacent free seats in the cheapest fare zone that
+     * has one.
+     *
+     * @param count The number of seats (1 to {@link #MAX_BLOCK})
+     * @param fares The current fares, which decide which zone is cheapest
+     * @return The ordinal of the first seat of the booked block, or -1 if no zone has such a block
+     */
+    public int allocateCheapest(int count, FareTable fares) {
+        int zones = aircraft.zoneCount();
+        boolean[] tried = new boolean[zones];
+        for (int attempt = 0; attempt < zones; attempt++) {
+            int cheapest = -1;
+            for (int zone = 0; zone < zones; zone++) {
+                if (!tried[zone] && (cheapest < 0 || fares.zonePrice(zone) < fares.zonePrice(cheapest))) {
+                    cheapest = zone;
+                }
+            }
+            tried[cheapest] = true;
+            int ordinal = allocateAdjacent(count, cheapest);
+            if (ordinal >= 0) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Releases a block booked by this allocator, e.g. when selling it failed.
+     *
+     * @param ordinal The ordinal of the first seat of the block
+     * @param count   The number of seats
+     */
+    public void releaseBlock(int ordinal, int count) {
+        int row = aircraft.rowOf(ordinal);
+        int start = aircraft.columnOf(ordinal);
+        for (int column = start; column < start + count; ) {
+            int word = column >>> 6;
+            int inWord = Math.min(start + count, (word + 1) << 6) - column;
+            seats.unclaim(row, word, mask(column & 63, inWord));
+            column += inWord;
+        }
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Column of the left-most run of count free seats in a row (within the zone), or -1
+    private int blockStart(int row, int count, int zone) {
+        if (seats.freeInRow(row) < count) {
+            return -1;
+        }
+        int words = aircraft.wordsPerRow;
+        if (words == 1) {
+            long free = seats.freeWord(row, 0);
+            if (zone != ANY_ZONE) {
+                free &= aircraft.zoneMasks[zone * aircraft.rowCount() + row];
+            }
+            long starts = runStarts(free, count);
+            return starts == 0 ? -1 : Long.numberOfTrailingZeros(starts);
+        }
+
+        long[] free = new long[words];
+        int zoneBase = (zone * aircraft.rowCount() + row) * words;
+        for (int w = 0; w < words; w++) {
+            free[w] = seats.freeWord(row, w);
+            if (zone != ANY_ZONE) {
+                free[w] &= aircraft.zoneMasks[zoneBase + w];
+            }
+        }
+        // Same doubling as runStarts, with each word's shifted copy filled in from the next word
+        for (int have = 1; have < count; ) {
+            int step = Math.min(have, count - have);
+            for (int w = 0; w < words; w++) {
+                long next = w + 1 < words ? free[w + 1] : 0;
+                free[w] &= (free[w] >>> step) | (next << (64 - step));
+            }
+            have += step;
+        }
+        for (int w = 0; w < words; w++) {
+            if (free[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(free[w]);
+            }
+        }
+        return -1;
+    }
+
+    // Bits where a run of count set bits starts, found in log2(count) shift-ANDs
+    private static long runStarts(long free, int count) {
+        for (int have = 1; have < count; ) {
+            int step = Math.min(have, count - have);
+            free &= free >>> step;
+            have += step;
+        }
+        return free;
+    }
+
+    // Books the seats start..start+count-1 of a row, all or none
+    private boolean claimBlock(int row, int start, int count) {
+        int firstWord = start >>> 6;
+        int lastWord = (start + count - 1) >>> 6;
+        if (firstWord == lastWord) {
+            return seats.claim(row, firstWord, mask(start & 63, count));
+        }
+        // The block crosses a word boundary (rows over 64 seats): claim the left part, then
+        // the right part, and give the left part back if the right part is taken
+        int left = 64 - (start & 63);
+        if (!seats.claim(row, firstWord, mask(start & 63, left))) {
+            return false;
+        }
+        if (!seats.claim(row, lastWord, mask(0, count - left))) {
+            seats.unclaim(row, firstWord, mask(start & 63, left));
+            return false;
+        }
+        return true;
+    }
+
+    // count set bits starting at bit
+    private static long mask(int bit, int count) {
+        return (count == 64 ? -1L : (1L << count) - 1) << bit;
+    }
+
+    private void checkRequest(int count, int zone) {
+        if (count < 1 || count > MAX_BLOCK) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK + ": " + count);
+        }
+        if (zone != ANY_ZONE && (zone < 0 || zone >= aircraft.zoneCount())) {
+            throw new IllegalArgumentException("Invalid fare zone: " + zone);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * The SeatHold class is a temporary hold on one seat, given out by
+ * {@link BookingService#hold(int, int, long)}. While the hold lasts nobody else can buy the seat;
+ * it ends when it is confirmed (the seat is sold to the holder), released, or when its time
+ * runs out, whichever comes first.
+ */
+public final class SeatHold {
+    // Seat ordinal of the held seat
+    final int ordinal;
+
+    // The row index (0-based) and seat number (1-based) of the held seat
+    private final int row;
+    private final int seat;
+
+    // When the hold runs out, in System.currentTimeMillis() terms
+    private final long expiresAt;
+
+    // Expiry task, cancelled when the hold is confirmed or released
+    volatile TimingWheel.Timeout timeout;
+
+    SeatHold(int ordinal, int row, int seat, long expiresAt) {
+        this.ordinal = ordinal;
+        this.row = row;
+        this.seat = seat;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Gets the row of the held seat.
+     * @return The row index (0-based)
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the seat number of the held seat.
+     * @return The seat number (1-based)
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Gets the time the hold runs out.
+     * @return The expiry time in milliseconds since the epoch
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
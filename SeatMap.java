@@ -0,0 +1,427 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SeatMap class keeps track of which seats on an aircraft are booked.
+ * Occupancy is stored as packed bits in {@code long} words (one bit per seat, a set bit
+ * means the seat is booked) so that booking, releasing and availability checks are O(1)
+ * and the first free seat is found with {@link Long#numberOfTrailingZeros(long)} instead
+ * of comparing seats one by one.
+ *
+ * Each seat belongs to a fare zone. Free seat counts are kept per row and per zone and are
+ * updated on every book/release, so they can be read in constant time.
+ *
+ * Rows can have different lengths and there is no limit on the number of rows or seats
+ * per row, so the same engine works for the small 4-row plane and for widebody layouts.
+ * The layout itself comes from the {@link Aircraft}; a SeatMap only holds the occupancy.
+ *
+ * The map is safe to use from many threads without locking. Seats are claimed and released
+ * with a compare-and-set on the row word that holds them, so two threads can never both
+ * book the same seat, and threads booking seats in different rows never touch the same word.
+ * The counters are updated right after the seat itself and may briefly lag behind it.
+ *
+ * A seat can also be held (see {@link #hold(int, int)}): it is booked in the occupancy bits, so
+ * nobody else can take it, and also marked in a second bitmap so it can be shown as held rather
+ * than sold until the hold is confirmed or released.
+ */
+public class SeatMap {
+    // Layout of the aircraft, shared by every flight of the same type
+    private final Aircraft aircraft;
+
+    // Occupancy bits, wordsPerRow words per row, a set bit means the seat is booked
+    private final AtomicLongArray occupied;
+
+    // Held bits, laid out like the occupancy bits; a held seat is also set in occupied
+    private final AtomicLongArray held;
+
+    // One bit per row, set while the row still has at least one free seat (a search hint)
+    private final AtomicLongArray rowsWithFreeSeats;
+
+    // Free seat counters kept up to date on every book/release
+    private final AtomicIntegerArray freeInRow;
+    private final AtomicIntegerArray freeInZone;
+    private final AtomicInteger freeSeats = new AtomicInteger();
+
+    /**
+     * Constructs a new SeatMap for an aircraft type with every seat free.
+     *
+     * @param aircraft the aircraft type, which gives the rows and the fare zone of every seat
+     */
+    public SeatMap(Aircraft aircraft) {
+        int rows = aircraft.rowCount();
+        this.aircraft = aircraft;
+        occupied = new AtomicLongArray(rows * aircraft.wordsPerRow);
+        held = new AtomicLongArray(rows * aircraft.wordsPerRow);
+        rowsWithFreeSeats = new AtomicLongArray((rows + 63) >>> 6);
+        freeInRow = new AtomicIntegerArray(rows);
+        freeInZone = new AtomicIntegerArray(aircraft.zoneCount());
+        clear();
+    }
+
+    /**
+     * Marks every seat as free and resets all the counters.
+     * Must not be called while other threads are booking or releasing seats.
+     */
+    public void clear() {
+        for (int i = 0; i < occupied.length(); i++) {
+            occupied.set(i, 0L);
+            held.set(i, 0L);
+        }
+        for (int i = 0; i < rowsWithFreeSeats.length(); i++) {
+            rowsWithFreeSeats.set(i, 0L);
+        }
+        for (int row = 0; row < aircraft.rowCount(); row++) {
+            freeInRow.set(row, aircraft.seatsInRow(row));
+            if (aircraft.seatsInRow(row) > 0) {
+                setRowBit(row);
+            }
+        }
+        for (int zone = 0; zone < aircraft.zoneCount(); zone++) {
+            freeInZone.set(zone, aircraft.seatsInZone(zone));
+        }
+        freeSeats.set(aircraft.capacity());
+    }
+
+    /**
+     * Books a seat.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return true if the seat was free and is now booked, false if it was already booked
+     */
+    public boolean book(int row, int column) {
+        int word = wordIndex(row, column);
+        long bit = 1L << column;
+        long current;
+        do {
+            current = occupied.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!occupied.compareAndSet(word, current, current | bit));
+        seatTaken(row, aircraft.zoneOfSeat[aircraft.rowOffsets[row] + column]);
+        return true;
+    }
+
+    /**
+     * Releases a booked seat so that it can be sold again.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return true if the seat was booked and is now free, false if it was already free
+     */
+    public boolean release(int row, int column) {
+        int word = wordIndex(row, column);
+        long bit = 1L << column;
+        long current;
+        do {
+            current = occupied.get(word);
+            if ((current & bit) == 0) {
+                return false;
+            }
+        } while (!occupied.compareAndSet(word, current, current & ~bit));
+        seatFreed(row, aircraft.zoneOfSeat[aircraft.rowOffsets[row] + column]);
+        return true;
+    }
+
+    /**
+     * Checks if a seat is free.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return true if the seat is free, false if it is booked
+     */
+    public boolean isFree(int row, int column) {
+        return (occupied.get(wordIndex(row, column)) & (1L << column)) == 0;
+    }
+
+    /**
+     * Holds a free seat: books it so nobody else can, and marks it as held.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return true if the seat was free and is now held, false if it was already booked or held
+     */
+    public boolean hold(int row, int column) {
+        if (!book(row, column)) {
+            return false;
+        }
+        held.getAndAccumulate(wordIndex(row, column), 1L << column, (current, bit) -> current | bit);
+        return true;
+    }
+
+    /**
+     * Removes the held mark of a seat. The seat stays booked: release it as well to free it,
+     * or leave it booked when the hold turned into a sale.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     */
+    public void unhold(int row, int column) {
+        held.getAndAccumulate(wordIndex(row, column), ~(1L << column), (current, bits) -> current & bits);
+    }
+
+    /**
+     * Checks if a seat is held.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return true if the seat is held, false if it is free or sold
+     */
+    public boolean isHeld(int row, int column) {
+        return (held.get(wordIndex(row, column)) & (1L << column)) != 0;
+    }
+
+    /**
+     * Finds the first free seat in row-major order (front to back, left to right).
+     * Full rows are skipped using the row bitmap, so normally only one row is actually scanned.
+     * Under concurrent bookings the result is a snapshot and the seat may be taken by the
+     * time the caller tries to book it.
+     *
+     * @return the ordinal of the first free seat, or -1 if the plane is full
+     */
+    public int firstFree() {
+        for (int i = 0; i < rowsWithFreeSeats.length(); i++) {
+            long rows = rowsWithFreeSeats.get(i);
+            while (rows != 0) {
+                int row = (i << 6) + Long.numberOfTrailingZeros(rows);
+                int base = row * aircraft.wordsPerRow;
+                for (int w = 0; w < aircraft.wordsPerRow; w++) {
+                    long free = ~occupied.get(base + w) & aircraft.seatMasks[base + w];
+                    if (free != 0) {
+                        return aircraft.rowOffsets[row] + (w << 6) + Long.numberOfTrailingZeros(free);
+                    }
+                }
+                rows &= rows - 1;
+            }
+        }
+        return -1;
+    }
+
+    // ========== Seat blocks ========== //
+
+    /**
+     * Gets the free seats of one word of a row, as a bitmask (bit i is column word * 64 + i).
+     * Under concurrent bookings the result is a snapshot.
+     *
+     * @param row  The row index (0-based)
+     * @param word The word of the row (0 for columns 0-63, 1 for columns 64-127, ...)
+     * @return The free seats of the word
+     */
+    long freeWord(int row, int word) {
+        int index = row * aircraft.wordsPerRow + word;
+        return ~occupied.get(index) & aircraft.seatMasks[index];
+    }
+
+    /**
+     * Books several seats of one row word with a single compare-and-set, so either all of them
+     * are booked or none is.
+     *
+     * @param row  The row index (0-based)
+     * @param word The word of the row
+     * @param mask The seats to book (must all be real seats)
+     * @return true if every seat was free and is now booked, false if any of them was already booked
+     */
+    boolean claim(int row, int word, long mask) {
+        int index = row * aircraft.wordsPerRow + word;
+        long current;
+        do {
+            current = occupied.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!occupied.compareAndSet(index, current, current | mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            int column = (word << 6) + Long.numberOfTrailingZeros(bits);
+            seatTaken(row, aircraft.zoneOfSeat[aircraft.rowOffsets[row] + column]);
+        }
+        return true;
+    }
+
+    /**
+     * Releases several seats of one row word booked by {@link #claim(int, int, long)}.
+     *
+     * @param row  The row index (0-based)
+     * @param word The word of the row
+     * @param mask The seats to release (must all be booked)
+     */
+    void unclaim(int row, int word, long mask) {
+        int index = row * aircraft.wordsPerRow + word;
+        long current;
+        do {
+            current = occupied.get(index);
+        } while (!occupied.compareAndSet(index, current, current & ~mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            int column = (word << 6) + Long.numberOfTrailingZeros(bits);
+            seatFreed(row, aircraft.zoneOfSeat[aircraft.rowOffsets[row] + column]);
+        }
+    }
+
+    // ========== Counters ========== //
+
+    /**
+     * Gets the number of free seats in a row.
+     * @param row The row index (0-based)
+     * @return The number of free seats in the row
+     */
+    public int freeInRow(int row) {
+        return freeInRow.get(row);
+    }
+
+    /**
+     * Gets the number of free seats in a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The number of free seats in the zone
+     */
+    public int freeInZone(int zone) {
+        return freeInZone.get(zone);
+    }
+
+    /**
+     * Gets the number of free seats on the whole plane.
+     * @return The number of free seats
+     */
+    public int freeSeats() {
+        return freeSeats.get();
+    }
+
+    // ========== Layout ========== //
+
+    /**
+     * Gets the aircraft type this seat map was built for.
+     * @return The aircraft
+     */
+    public Aircraft getAircraft() {
+        return aircraft;
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return The number of rows
+     */
+    public int rowCount() {
+        return aircraft.rowCount();
+    }
+
+    /**
+     * Gets the number of seats in a row.
+     * @param row The row index (0-based)
+     * @return The number of seats in the row
+     */
+    public int seatsInRow(int row) {
+        return aircraft.seatsInRow(row);
+    }
+
+    /**
+     * Gets the total number of seats on the plane.
+     * @return The number of seats
+     */
+    public int capacity() {
+        return aircraft.capacity();
+    }
+
+    /**
+     * Gets the number of fare zones.
+     * @return The number of zones
+     */
+    public int zoneCount() {
+        return aircraft.zoneCount();
+    }
+
+    /**
+     * Gets the number of seats in a fare zone.
+     * @param zone The fare zone (0-based)
+     * @return The number of seats in the zone
+     */
+    public int seatsInZone(int zone) {
+        return aircraft.seatsInZone(zone);
+    }
+
+    /**
+     * Gets the fare zone of a seat.
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return The fare zone (0-based)
+     */
+    public int zoneOf(int row, int column) {
+        return aircraft.zoneOf(aircraft.ordinal(row, column));
+    }
+
+    /**
+     * Converts a row and column into a seat ordinal (the seat's position in row-major order).
+     * @param row The row index (0-based)
+     * @param column The column index (0-based)
+     * @return The seat ordinal
+     */
+    public int ordinal(int row, int column) {
+        return aircraft.ordinal(row, column);
+    }
+
+    /**
+     * Gets the row index of a seat ordinal.
+     * @param ordinal The seat ordinal
+     * @return The row index (0-based)
+     */
+    public int rowOf(int ordinal) {
+        return aircraft.rowOf(ordinal);
+    }
+
+    /**
+     * Gets the column index of a seat ordinal.
+     * @param ordinal The seat ordinal
+     * @return The column index (0-based)
+     */
+    public int columnOf(int ordinal) {
+        return aircraft.columnOf(ordinal);
+    }
+
+    // ========== Internal helpers ========== //
+
+    private int wordIndex(int row, int column) {
+        if (column < 0 || column >= aircraft.rowLengths[row]) {
+            throw new IndexOutOfBoundsException("Invalid seat: row " + row + ", column " + column);
+        }
+        return row * aircraft.wordsPerRow + (column >>> 6);
+    }
+
+    private void seatTaken(int row, int zone) {
+        freeSeats.decrementAndGet();
+        freeInZone.decrementAndGet(zone);
+        if (freeInRow.decrementAndGet(row) == 0) {
+            syncRowBit(row);
+        }
+    }
+
+    private void seatFreed(int row, int zone) {
+        freeSeats.incrementAndGet();
+        freeInZone.incrementAndGet(zone);
+        if (freeInRow.getAndIncrement(row) == 0) {
+            syncRowBit(row);
+        }
+    }
+
+    // Makes the row bit agree with the row counter. A thread emptying the row and a thread
+    // freeing a seat in it can race, so keep going until the counter is stable after the write.
+    private void syncRowBit(int row) {
+        int free;
+        do {
+            free = freeInRow.get(row);
+            if (free > 0) {
+                setRowBit(row);
+            } else {
+                clearRowBit(row);
+            }
+        } while (freeInRow.get(row) != free);
+    }
+
+    private void setRowBit(int row) {
+        long bit = 1L << row;
+        long current;
+        do {
+            current = rowsWithFreeSeats.get(row >>> 6);
+        } while ((current & bit) == 0 && !rowsWithFreeSeats.compareAndSet(row >>> 6, current, current | bit));
+    }
+
+    private void clearRowBit(int row) {
+        long bit = 1L << row;
+        long current;
+        do {
+            current = rowsWithFreeSeats.get(row >>> 6);
+        } while ((current & bit) != 0 && !rowsWithFreeSeats.compareAndSet(row >>> 6, current, current & ~bit));
+    }
+}
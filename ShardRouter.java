@@ -0,0 +1,301 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * The ShardRouter class partitions the seat inventory by flight across several
+ * {@link InventoryShard} nodes, so no single node holds every flight.
+ * - Requests for one flight (add, buy, cancel, find) go to the shard that owns it, chosen from
+ *   a hash of the flight number
+ * - Requests about every flight (sales totals, first free seat anywhere) are sent to every
+ *   shard at once and their answers combined (scatter-gather)
+ *
+ * Every request returns a {@link CompletableFuture}, so callers can wait for the answer or keep
+ * several requests in flight. Errors (such as an unknown flight) complete the future
+ * exceptionally with an {@link IllegalArgumentException}.
+ *
+ * Shards in one process still share the default metrics, the shared name dictionary and the
+ * default timing wheel (see {@link InventoryShard}), so they do not scale as separate machines
+ * would.
+ */
+public class ShardRouter implements AutoCloseable {
+    // The shards, indexed by shard id
+    private final InventoryShard[] shards;
+
+    /**
+     * The sales totals of every flight, gathered from all shards.
+     */
+    public static final class Totals {
+        private final int flights;
+        private final long capacity;
+        private final long ticketsSold;
+        private final long revenue;
+
+        Totals(int flights, long capacity, long ticketsSold, long revenue) {
+            this.flights = flights;
+            this.capacity = capacity;
+            this.ticketsSold = ticketsSold;
+            this.revenue = revenue;
+        }
+
+        /**
+         * Gets the number of flights.
+         * @return The number of flights
+         */
+        public int getFlights() {
+            return flights;
+        }
+
+        /**
+         * Gets the number of seats on every flight.
+         * @return The number of seats on every flight
+         */
+        public long getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * Gets the number of tickets sold on every flight.
+         * @return The number of tickets sold on every flight
+         */
+        public long getTicketsSold() {
+            return ticketsSold;
+        }
+
+        /**
+         * Gets the revenue of every flight in £.
+         * @return The revenue of every flight in £
+         */
+        public long getRevenue() {
+            return revenue;
+        }
+
+        /**
+         * Gets the share of all seats that are sold, from 0 to 1.
+         * @return The share of all seats that are sold, from 0 to 1
+         */
+        public double getLoadFactor() {
+            return capacity == 0 ? 0 : (double) ticketsSold / capacity;
+        }
+
+        private Totals plus(Totals other) {
+            return new Totals(flights + other.flights, capacity + other.capacity,
+                    ticketsSold + other.ticketsSold, revenue + other.revenue);
+        }
+    }
+
+    /**
+     * A free seat on a flight.
+     */
+    public static final class FreeSeat {
+        private final String flightNumber;
+        private final int row;
+        private final int seat;
+
+        FreeSeat(String flightNumber, int row, int seat) {
+            this.flightNumber = flightNumber;
+            this.row = row;
+            this.seat = seat;
+        }
+
+        /**
+         * Gets the flight number.
+         * @return The flight number
+         */
+        public String getFlightNumber() {
+            return flightNumber;
+        }
+
+        /**
+         * Gets the row index (0-based).
+         * @return The row index (0-based)
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Gets the seat number (1-based).
+         * @return The seat number (1-based)
+         */
+        public int getSeat() {
+            return seat;
+        }
+    }
+
+    /**
+     * Constructs a new ShardRouter and starts its shards.
+     *
+     * @param shardCount the number of shards
+     * @throws IllegalArgumentException if the shard count is not positive
+     */
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Invalid shard count: " + shardCount);
+        }
+        shards = new InventoryShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new InventoryShard(i);
+        }
+    }
+
+    // ========== Requests for one flight ========== //
+
+    /**
+     * Adds a new flight, with every seat free, to the shard that owns it.
+     *
+     * @param flightNumber the flight number
+     * @param aircraft     the aircraft type operating the flight
+     * @return Completed once the flight is added
+     */
+    public CompletableFuture<Void> addFlight(String flightNumber, Aircraft aircraft) {
+        return shardOf(flightNumber).submit(inventory -> {
+            inventory.addFlight(flightNumber, aircraft);
+            return null;
+        });
+    }
+
+    /**
+     * Buys a seat on a flight.
+     *
+     * @param flightNumber The flight number
+     * @param row          The row index (0-based)
+     * @param seat         The seat number (1-based)
+     * @param person       The passenger
+     * @return The new ticket, or null if the seat is already sold
+     */
+    public CompletableFuture<Ticket> buy(String flightNumber, int row, int seat, Person person) {
+        return onFlight(flightNumber, bookings -> bookings.buy(row, seat, person));
+    }
+
+    /**
+     * Cancels a sold seat on a flight.
+     *
+     * @param flightNumber The flight number
+     * @param row          The row index (0-based)
+     * @param seat         The seat number (1-based)
+     * @return The cancelled ticket, or null if the seat has no ticket
+     */
+    public CompletableFuture<Ticket> cancel(String flightNumber, int row, int seat) {
+        return onFlight(flightNumber, bookings -> bookings.cancel(row, seat));
+    }
+
+    /**
+     * Finds the ticket sold for a seat on a flight.
+     *
+     * @param flightNumber The flight number
+     * @param row          The row index (0-based)
+     * @param seat         The seat number (1-based)
+     * @return The ticket, or null if the seat has no ticket
+     */
+    public CompletableFuture<Ticket> findTicket(String flightNumber, int row, int seat) {
+        return onFlight(flightNumber, bookings -> bookings.findTicket(row, seat));
+    }
+
+    // ========== Requests for every flight ========== //
+
+    /**
+     * Adds up the sales of every flight on every shard.
+     * @return The totals
+     */
+    public CompletableFuture<Totals> salesTotals() {
+        return gather(inventory -> {
+            List<Flight> flights = inventory.flights();
+            long capacity = 0;
+            long sold = 0;
+            long revenue = 0;
+            for (Flight flight : flights) {
+                BookingService bookings = flight.getBookings();
+                capacity += flight.getAircraft().capacity();
+                sold += bookings.ticketCount();
+                revenue += bookings.getStats().revenue();
+            }
+            return new Totals(flights.size(), capacity, sold, revenue);
+        }, Totals::plus);
+    }
+
+    /**
+     * Finds the first free seat of the first flight (by flight number) that has one.
+     * @return The seat, or null if every flight is full
+     */
+    public CompletableFuture<FreeSeat> firstAvailable() {
+        return gather(inventory -> {
+            FreeSeat first = null;
+            for (Flight flight : inventory.flights()) {
+                if (first == null || flight.getFlightNumber().compareTo(first.flightNumber) < 0) {
+                    SeatMap seats = flight.getBookings().getSeats();
+                    int ordinal = seats.firstFree();
+                    if (ordinal >= 0) {
+                        first = new FreeSeat(flight.getFlightNumber(), seats.rowOf(ordinal), seats.columnOf(ordinal) + 1);
+                    }
+                }
+            }
+            return first;
+        }, ShardRouter::earlier);
+    }
+
+    // ========== Shards ========== //
+
+    /**
+     * Gets the number of shards.
+     * @return The shard count
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Gets the shard that owns a flight.
+     *
+     * @param flightNumber the flight number
+     * @return The shard
+     */
+    public InventoryShard shardOf(String flightNumber) {
+        return shards[Math.floorMod(flightNumber.hashCode(), shards.length)];
+    }
+
+    /**
+     * Stops every shard once the requests already queued have run.
+     */
+    @Override
+    public void close() {
+        for (InventoryShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Runs a request against one flight's booking service on the shard that owns it
+    private <T> CompletableFuture<T> onFlight(String flightNumber, Function<BookingService, T> request) {
+        return shardOf(flightNumber).submit(inventory -> {
+            Flight flight = inventory.getFlight(flightNumber);
+            if (flight == null) {
+                throw new IllegalArgumentException("No such flight: " + flightNumber);
+            }
+            return request.apply(flight.getBookings());
+        });
+    }
+
+    // Sends a request to every shard and combines the answers as they arrive
+    private <T> CompletableFuture<T> gather(Function<FlightInventory, T> request, BinaryOperator<T> combine) {
+        List<CompletableFuture<T>> answers = new ArrayList<>(shards.length);
+        for (InventoryShard shard : shards) {
+            answers.add(shard.submit(request));
+        }
+        CompletableFuture<T> result = answers.get(0);
+        for (int i = 1; i < answers.size(); i++) {
+            result = result.thenCombine(answers.get(i), combine);
+        }
+        return result;
+    }
+
+    private static FreeSeat earlier(FreeSeat a, FreeSeat b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.flightNumber.compareTo(b.flightNumber) <= 0 ? a : b;
+    }
+}
@@ -1,5 +1,6 @@
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * The Ticket class represents an airplane ticket with associated seat information,
@@ -46,19 +47,32 @@ public class Ticket {
      * Uses FileWriter with try-with-resources for automatic resource management.
      */
     public void save() {
+        save(Path.of(""));
+    }
+
+    /**
+     * Saves the ticket information to a text file named after the seat, in the given directory.
+     *
+     * @param directory The directory to create the file in
+     */
+    public void save(Path directory) {
         // Generate filename based on seat location (e.g., "A1.txt")
-        String filename = (char) ('A' + row) + Integer.toString(seat) + ".txt";
+        Path filename = directory.resolve((char) ('A' + getRow()) + Integer.toString(getSeat()) + ".txt");
+        long start = System.nanoTime();
 
-        try (FileWriter writer = new FileWriter(filename)) {
+        try (FileWriter writer = new FileWriter(filename.toFile())) {
             // Write formatted ticket information to the file
             writer.write("Ticket Information:\n");
-            writer.write("Seat: " + (char) ('A' + row) + seat + "\n");
+            Person person = getPerson();
+            writer.write("Seat: " + (char) ('A' + getRow()) + getSeat() + "\n");
             writer.write("Passenger's Full Name: " + person.getName() + " " + person.getSurname() + "\n");
             writer.write("Email: " + person.getEmail() + "\n");
-            writer.write("Price: £" + prices + "\n");
+            writer.write("Price: £" + getPrice() + "\n");
             
             System.out.println("Ticket saved to file: " + filename);
+            BookingMetrics.getDefault().record(BookingMetrics.Operation.TICKET_SAVE, start, true);
         } catch (IOException e) {
+            BookingMetrics.getDefault().recordFailure(BookingMetrics.Operation.TICKET_SAVE, start);
             // Handle file I/O errors
             System.out.println("An error occurred while saving the ticket to file: " + filename);
             e.printStackTrace(); // Print stack trace for debugging purposes
@@ -139,10 +153,10 @@ public class Ticket {
      */
     public void printTicketInfo() {
         System.out.println("Ticket Information:");
-        System.out.println("Row: " + (char)('A' + row)); // Convert to letter for display
-        System.out.println("Seat: " + seat);
-        System.out.println("Price: £" + prices);
+        System.out.println("Row: " + (char)('A' + getRow())); // Convert to letter for display
+        System.out.println("Seat: " + getSeat());
+        System.out.println("Price: £" + getPrice());
         System.out.println("Person Information:");
-        person.printInfo(); // Delegate to Person's print method
+        getPerson().printInfo(); // Delegate to Person's print method
     }
 }
\ No newline at end of file
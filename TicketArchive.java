@@ -0,0 +1,479 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TicketArchive class writes and reads an archive of the tickets of completed flights, for
+ * sales analytics over years of history (see {@link ArchiveAnalytics}). One archive file holds
+ * the flights of one date.
+ *
+ * Tickets are stored by column rather than by record, so a query reads only the columns it
+ * needs: revenue per zone reads one byte of zone and one byte of price per ticket, and never
+ * touches the passengers. The file is read through a {@link MappedByteBuffer}, so columns that
+ * are not read are not even loaded from disk.
+ * - header: magic number, format version, date (epoch day), number of tickets, flights, zones
+ *   and strings, offset of the string table
+ * - column directory: the offset of every column, in {@link Column} order
+ * - flight table: the flight number (string index) of every flight
+ * - zone table: for every fare zone, its name (string index), the number of prices sold in it
+ *   and those prices; zones are merged by name across the flights of the file
+ * - columns, one value per ticket: flight (2 bytes), row and seat (1 byte each), zone (1 byte),
+ *   price (1 byte, an index into the zone's prices), name, surname and email (string indexes)
+ * - string table: the end offset of every string, then all strings as UTF-8, each name or email
+ *   stored only once however many tickets use it
+ *
+ * An archive is written to a temporary file, forced to disk and then moved into place, like
+ * {@link BookingSnapshot}, and is never modified afterwards.
+ */
+public class TicketArchive {
+    // "PMTA" in ASCII
+    private static final int MAGIC = 0x504D5441;
+    private static final int VERSION = 1;
+
+    // Size of the header, in bytes
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 4 + 4 + 8;
+
+    // Most prices one zone can have, and most flights, zones, rows and seats one file can hold
+    private static final int MAX_PRICES = 256;
+    private static final int MAX_ZONES = 256;
+    private static final int MAX_FLIGHTS = 1 << 16;
+    private static final int MAX_ROWS = 256;
+    private static final int MAX_SEATS = 255;
+
+    /**
+     * The columns of an archive, in file order.
+     */
+    public enum Column {
+        FLIGHT(2), ROW(1), SEAT(1), ZONE(1), PRICE(1), NAME(4), SURNAME(4), EMAIL(4);
+
+        // Bytes per ticket
+        private final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+
+        /**
+         * Gets the size of one value of the column.
+         * @return The number of bytes per ticket
+         */
+        public int getWidth() {
+            return width;
+        }
+    }
+
+    // The mapped archive file
+    private final MappedByteBuffer data;
+    private final LocalDate date;
+    private final int ticketCount;
+
+    // Offset of every column, in Column order
+    private final int[] columns = new int[Column.values().length];
+
+    // Flight numbers and zone names, and the prices sold in every zone
+    private final String[] flights;
+    private final String[] zones;
+    private final int[][] prices;
+
+    // Start of the string table
+    private final int stringsOffset;
+    private final int stringCount;
+
+    private TicketArchive(MappedByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a ticket archive");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported archive version " + data.getInt(4));
+        }
+        date = LocalDate.ofEpochDay(data.getInt(8));
+        ticketCount = data.getInt(12);
+        int flightCount = data.getInt(16);
+        int zoneCount = data.getInt(20);
+        stringCount = data.getInt(24);
+        stringsOffset = (int) data.getLong(28);
+
+        int offset = HEADER_SIZE;
+        for (int c = 0; c < columns.length; c++, offset += 8) {
+            columns[c] = (int) data.getLong(offset);
+        }
+        flights = new String[flightCount];
+        for (int f = 0; f < flightCount; f++, offset += 4) {
+            flights[f] = string(data.getInt(offset));
+        }
+        zones = new String[zoneCount];
+        prices = new int[zoneCount][];
+        for (int z = 0; z < zoneCount; z++) {
+            zones[z] = string(data.getInt(offset));
+            prices[z] = new int[data.getInt(offset + 4)];
+            offset += 8;
+            for (int p = 0; p < prices[z].length; p++, offset += 4) {
+                prices[z][p] = data.getInt(offset);
+            }
+        }
+    }
+
+    // ========== Reading ========== //
+
+    /**
+     * Maps an archive file into memory.
+     *
+     * @param file the archive file
+     * @return The archive
+     * @throws IOException if the file cannot be read, is not an archive, or is over 2 GB
+     */
+    public static TicketArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new TicketArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Gets the date of the flights in the archive.
+     * @return The date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the number of tickets in the archive.
+     * @return The number of tickets
+     */
+    public int ticketCount() {
+        return ticketCount;
+    }
+
+    /**
+     * Gets the number of flights in the archive.
+     * @return The number of flights
+     */
+    public int flightCount() {
+        return flights.length;
+    }
+
+    /**
+     * Gets the flight number of a flight.
+     * @param flight The flight index (0-based)
+     * @return The flight number
+     */
+    public String flightNumber(int flight) {
+        return flights[flight];
+    }
+
+    /**
+     * Gets the number of fare zones in the archive.
+     * @return The number of zones
+     */
+    public int zoneCount() {
+        return zones.length;
+    }
+
+    /**
+     * Gets the name of a fare zone.
+     * @param zone The zone index in the archive (0-based)
+     * @return The zone name
+     */
+    public String zoneName(int zone) {
+        return zones[zone];
+    }
+
+    /**
+     * Gets the flight a ticket was sold on.
+     * @param index The ticket index (0-based)
+     * @return The flight index (0-based)
+     */
+    public int flight(int index) {
+        return data.getShort(position(Column.FLIGHT, index)) & 0xFFFF;
+    }
+
+    /**
+     * Gets the fare zone of a ticket's seat.
+     * @param index The ticket index (0-based)
+     * @return The zone index in the archive (0-based)
+     */
+    public int zone(int index) {
+        return data.get(position(Column.ZONE, index)) & 0xFF;
+    }
+
+    /**
+     * Decodes a whole ticket, reading every column.
+     *
+     * @param index The ticket index (0-based)
+     * @return The ticket
+     */
+    public Ticket ticket(int index) {
+        int zone = zone(index);
+        Person person = new Person(string(data.getInt(position(Column.NAME, index))),
+                string(data.getInt(position(Column.SURNAME, index))), string(data.getInt(position(Column.EMAIL, index))));
+        return new Ticket(data.get(position(Column.ROW, index)) & 0xFF, data.get(position(Column.SEAT, index)) & 0xFF,
+                prices[zone][data.get(position(Column.PRICE, index)) & 0xFF], person);
+    }
+
+    // ========== Column scans ========== //
+
+    /**
+     * Adds up the revenue of every zone, reading only the zone and price columns.
+     * @return The revenue of every zone, by zone index in the archive
+     */
+    public long[] revenueByZone() {
+        // Count the tickets of every zone and price, then multiply: no lookup per ticket
+        int zoneColumn = columns[Column.ZONE.ordinal()];
+        int priceColumn = columns[Column.PRICE.ordinal()];
+        long[] counts = new long[zones.length * MAX_PRICES];
+        for (int i = 0; i < ticketCount; i++) {
+            counts[(data.get(zoneColumn + i) & 0xFF) * MAX_PRICES + (data.get(priceColumn + i) & 0xFF)]++;
+        }
+        long[] revenue = new long[zones.length];
+        for (int z = 0; z < zones.length; z++) {
+            for (int p = 0; p < prices[z].length; p++) {
+                revenue[z] += counts[z * MAX_PRICES + p] * prices[z][p];
+            }
+        }
+        return revenue;
+    }
+
+    /**
+     * Adds up the revenue of every row, reading only the row, zone and price columns.
+     * @return The revenue of every row, by row index (as long as the furthest row sold)
+     */
+    public long[] revenueByRow() {
+        int rowColumn = columns[Column.ROW.ordinal()];
+        int zoneColumn = columns[Column.ZONE.ordinal()];
+        int priceColumn = columns[Column.PRICE.ordinal()];
+        long[] revenue = new long[MAX_ROWS];
+        int rows = 0;
+        for (int i = 0; i < ticketCount; i++) {
+            int row = data.get(rowColumn + i) & 0xFF;
+            revenue[row] += prices[data.get(zoneColumn + i) & 0xFF][data.get(priceColumn + i) & 0xFF];
+            rows = Math.max(rows, row + 1);
+        }
+        return Arrays.copyOf(revenue, rows);
+    }
+
+    /**
+     * Adds up the revenue of every ticket, reading only the zone and price columns.
+     * @return The total revenue
+     */
+    public long revenue() {
+        long total = 0;
+        for (long zone : revenueByZone()) {
+            total += zone;
+        }
+        return total;
+    }
+
+    // ========== Writing ========== //
+
+    /**
+     * Writes the tickets sold on a date's flights to an archive.
+     *
+     * @param file    the archive file (replaced if it exists)
+     * @param date    the date of the flights
+     * @param flights the booking services of the flights, whose current tickets are archived
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if there are over 65536 flights, over 256 differently
+     *                                  named fare zones, over 256 rows or 255 seats in a row, or
+     *                                  over 256 different prices in a zone
+     */
+    public static void write(Path file, LocalDate date, Collection<BookingService> flights) throws IOException {
+        if (flights.size() > MAX_FLIGHTS) {
+            throw new IllegalArgumentException("Too many flights for one archive: " + flights.size());
+        }
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> zoneIndex = new HashMap<>();
+        List<String> zoneNames = new ArrayList<>();
+        List<Map<Integer, Integer>> zonePrices = new ArrayList<>();
+        int[] flightNumbers = new int[flights.size()];
+
+        // Tickets of every flight, read once so the columns agree
+        List<Ticket[]> tickets = new ArrayList<>(flights.size());
+        int count = 0;
+        for (BookingService bookings : flights) {
+            Aircraft aircraft = bookings.getSeats().getAircraft();
+            if (aircraft.rowCount() > MAX_ROWS) {
+                throw new IllegalArgumentException("Too many rows to archive: " + aircraft.getType());
+            }
+            Ticket[] sold = bookings.tickets();
+            tickets.add(sold);
+            count += sold.length;
+            flightNumbers[tickets.size() - 1] = intern(bookings.getFlightNumber(), stringIndex, strings);
+        }
+
+        byte[][] columns = new byte[Column.values().length][];
+        for (Column column : Column.values()) {
+            columns[column.ordinal()] = new byte[count * column.getWidth()];
+        }
+        int i = 0;
+        int f = 0;
+        for (BookingService bookings : flights) {
+            Aircraft aircraft = bookings.getSeats().getAircraft();
+            for (Ticket ticket : tickets.get(f)) {
+                if (ticket.getSeat() > MAX_SEATS) {
+                    throw new IllegalArgumentException("Too many seats in a row to archive: " + aircraft.getType());
+                }
+                String name = aircraft.zoneName(aircraft.zoneOf(aircraft.ordinal(ticket.getRow(), ticket.getSeat() - 1)));
+                Integer zone = zoneIndex.get(name);
+                if (zone == null) {
+                    if (zoneNames.size() == MAX_ZONES) {
+                        throw new IllegalArgumentException("Over " + MAX_ZONES + " fare zones to archive, adding " + name);
+                    }
+                    zone = zoneNames.size();
+                    zoneIndex.put(name, zone);
+                    zoneNames.add(name);
+                    zonePrices.add(new HashMap<>());
+                }
+                Map<Integer, Integer> priceIndex = zonePrices.get(zone);
+                Integer price = priceIndex.get(ticket.getPrice());
+                if (price == null) {
+                    if (priceIndex.size() == MAX_PRICES) {
+                        throw new IllegalArgumentException("Over " + MAX_PRICES + " prices in zone " + name);
+                    }
+                    price = priceIndex.size();
+                    priceIndex.put(ticket.getPrice(), price);
+                }
+                Person person = ticket.getPerson();
+                putShort(columns[Column.FLIGHT.ordinal()], i, f);
+                columns[Column.ROW.ordinal()][i] = (byte) ticket.getRow();
+                columns[Column.SEAT.ordinal()][i] = (byte) ticket.getSeat();
+                columns[Column.ZONE.ordinal()][i] = (byte) (int) zone;
+                columns[Column.PRICE.ordinal()][i] = (byte) (int) price;
+                putInt(columns[Column.NAME.ordinal()], i, intern(person.getName(), stringIndex, strings));
+                putInt(columns[Column.SURNAME.ordinal()], i, intern(person.getSurname(), stringIndex, strings));
+                putInt(columns[Column.EMAIL.ordinal()], i, intern(person.getEmail(), stringIndex, strings));
+                i++;
+            }
+            f++;
+        }
+        for (String name : zoneNames) {
+            intern(name, stringIndex, strings);
+        }
+
+        // Lay out the file: header, column directory, flight and zone tables, columns, strings
+        long offset = HEADER_SIZE + Column.values().length * 8L + flights.size() * 4L;
+        for (Map<Integer, Integer> priceIndex : zonePrices) {
+            offset += 8 + priceIndex.size() * 4L;
+        }
+        long[] columnOffsets = new long[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            columnOffsets[c] = offset;
+            offset += columns[c].length;
+        }
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long stringBytes = 0;
+        for (String value : strings) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(utf8);
+            stringBytes += utf8.length;
+        }
+        if (offset + (strings.size() + 1L) * 4 + stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Archive would be too large to map: " + file);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt((int) date.toEpochDay());
+            out.writeInt(count);
+            out.writeInt(flights.size());
+            out.writeInt(zoneNames.size());
+            out.writeInt(strings.size());
+            out.writeLong(offset);
+            for (long columnOffset : columnOffsets) {
+                out.writeLong(columnOffset);
+            }
+            for (int flightNumber : flightNumbers) {
+                out.writeInt(flightNumber);
+            }
+            for (int z = 0; z < zoneNames.size(); z++) {
+                Map<Integer, Integer> priceIndex = zonePrices.get(z);
+                int[] byIndex = new int[priceIndex.size()];
+                priceIndex.forEach((price, index) -> byIndex[index] = price);
+                out.writeInt(stringIndex.get(zoneNames.get(z)));
+                out.writeInt(byIndex.length);
+                for (int price : byIndex) {
+                    out.writeInt(price);
+                }
+            }
+            for (byte[] column : columns) {
+                out.write(column);
+            }
+            int end = 0;
+            out.writeInt(end);
+            for (byte[] utf8 : encoded) {
+                end += utf8.length;
+                out.writeInt(end);
+            }
+            for (byte[] utf8 : encoded) {
+                out.write(utf8);
+            }
+            // On disk before it replaces the old archive, so a crash leaves one or the other
+            out.flush();
+            channel.force(true);
+        }
+        BookingSnapshot.replace(temp, file);
+    }
+
+    // ========== Internal helpers ========== //
+
+    private int position(Column column, int index) {
+        if (index < 0 || index >= ticketCount) {
+            throw new IndexOutOfBoundsException("Invalid ticket index: " + index);
+        }
+        return columns[column.ordinal()] + index * column.getWidth();
+    }
+
+    private String string(int index) {
+        int bytes = stringsOffset + (stringCount + 1) * 4;
+        int start = data.getInt(stringsOffset + index * 4);
+        int end = data.getInt(stringsOffset + (index + 1) * 4);
+        byte[] utf8 = new byte[end - start];
+        data.get(bytes + start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int intern(String value, Map<String, Integer> stringIndex, List<String> strings) {
+        String key = value == null ? "" : value;
+        Integer index = stringIndex.get(key);
+        if (index == null) {
+            index = strings.size();
+            stringIndex.put(key, index);
+            strings.add(key);
+        }
+        return index;
+    }
+
+    private static void putShort(byte[] column, int index, int value) {
+        column[index * 2] = (byte) (value >>> 8);
+        column[index * 2 + 1] = (byte) value;
+    }
+
+    private static void putInt(byte[] column, int index, int value) {
+        column[index * 4] = (byte) (value >>> 24);
+        column[index * 4 + 1] = (byte) (value >>> 16);
+        column[index * 4 + 2] = (byte) (value >>> 8);
+        column[index * 4 + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,550 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * The TicketJournal class is an append-only log of every ticket sold and cancelled.
+ * Booking threads (or a {@link BookingEventLog} subscriber thread) only put a record on a
+ * queue; a background writer thread takes records off
+ * the queue and writes them to the journal in batches (group commit), so a sale never waits
+ * for file creation or disk I/O.
+ *
+ * A batch is written when it reaches the batch size, or when the flush interval has passed
+ * since its first record, whichever comes first. The {@link Durability} mode decides whether
+ * the file is forced to disk once per batch or after every record.
+ *
+ * The journal is a directory of segment files named after the sequence number of their first
+ * record (e.g. "journal-00000000000000000001.log"). A new segment is started every time the
+ * journal is opened and whenever {@link #roll()} is called, so a segment that was being written
+ * during a crash is never appended to again, and closed segments can be compacted into a
+ * snapshot and deleted (see {@link BookingRecovery}).
+ *
+ * Each record is written as:
+ * - length of the payload (int)
+ * - payload: sequence number (long), type (byte), row (short), seat (short), price (int),
+ *   then flight number, name, surname and email (each a short length and UTF-8 bytes)
+ * - CRC32 of the payload (int)
+ */
+public class TicketJournal implements AutoCloseable, BookingEventLog.Handler {
+    // Record types
+    public static final byte BOOK = 1;
+    public static final byte CANCEL = 2;
+
+    // Longest string that always fits a short length once encoded as UTF-8
+    private static final int MAX_STRING_LENGTH = Short.MAX_VALUE / 3;
+
+    // Size of a payload with four empty strings
+    private static final int MIN_PAYLOAD = 8 + 1 + 2 + 2 + 4 + 4 * 2;
+
+    // Segment file names: prefix, 20-digit first sequence number, suffix
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * When the journal file is forced to disk.
+     */
+    public enum Durability {
+        // Force once after every batch (faster, a crash can lose the last batch)
+        BATCH,
+        // Force after every record (slower, a crash loses at most the record being written)
+        RECORD
+    }
+
+    /**
+     * Receives the records read back from a journal segment.
+     */
+    public interface RecordHandler {
+        /**
+         * Called once for every record, in journal order.
+         *
+         * @param sequence     the sequence number of the record
+         * @param type         {@link #BOOK} or {@link #CANCEL}
+         * @param flightNumber the flight the ticket belongs to
+         * @param ticket       the ticket sold or cancelled
+         */
+        void onRecord(long sequence, byte type, String flightNumber, Ticket ticket);
+    }
+
+    // A record waiting to be written, or a roll request for the writer thread
+    private static final class Entry {
+        final byte type;
+        final String flightNumber;
+        final Ticket ticket;
+        final CompletableFuture<Long> rolled;
+
+        Entry(byte type, String flightNumber, Ticket ticket, CompletableFuture<Long> rolled) {
+            this.type = type;
+            this.flightNumber = flightNumber;
+            this.ticket = ticket;
+            this.rolled = rolled;
+        }
+    }
+
+    // Put on the queue by close() to tell the writer thread to stop
+    private static final Entry SHUTDOWN = new Entry((byte) 0, null, null, null);
+
+    private final Path directory;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Durability durability;
+
+    // Records appended by booking threads and not yet written
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+
+    // Background thread that writes batches to the file
+    private final Thread writer;
+
+    // Segment currently written (only used by the writer thread after construction)
+    private Path file;
+    private FileChannel channel;
+
+    // Reusable buffer the current batch is encoded into (only used by the writer thread)
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32 crc = new CRC32();
+
+    // Sequence number of the last record written (only changed by the writer thread)
+    private volatile long lastSequence;
+    private volatile boolean closed;
+
+    // Calls to append() and roll() in progress; close() waits for them before shutting down the
+    // writer, so a record accepted just before closing is still written
+    private final AtomicInteger appending = new AtomicInteger();
+
+    /**
+     * Opens a journal directory, starts a new segment after the given sequence number and starts
+     * the writer thread. Segments already in the directory are kept.
+     *
+     * @param directory           the journal directory (created if missing)
+     * @param batchSize           the maximum number of records written in one batch
+     * @param flushIntervalMillis the maximum time a record waits before its batch is written
+     * @param durability          when the file is forced to disk
+     * @param lastSequence        the sequence number of the last record already journaled
+     *                            (see {@link BookingRecovery#recover})
+     * @throws IOException if the directory or the new segment cannot be created
+     */
+    public TicketJournal(Path directory, int batchSize, long flushIntervalMillis, Durability durability,
+                         long lastSequence) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.durability = durability;
+        this.lastSequence = lastSequence;
+        openSegment();
+        this.writer = new Thread(this::writeLoop, "ticket-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Checks that a sale can be journaled: the flight number and the passenger's name, surname
+     * and email must each fit a record. Booking services call this before claiming a seat, so a
+     * sale is never rejected by the journal once its seat is taken.
+     *
+     * @param flightNumber the flight
+     * @param person       the passenger
+     * @throws IllegalArgumentException if a name, email or the flight number is too long
+     */
+    public static void checkRecord(String flightNumber, Person person) {
+        checkLength(flightNumber);
+        checkLength(person.getName());
+        checkLength(person.getSurname());
+        checkLength(person.getEmail());
+    }
+
+    /**
+     * Appends a record to the journal. Returns immediately; the record is written by the
+     * background writer thread.
+     *
+     * A closed journal does not throw: the record is dropped and false returned, because the
+     * caller has already made the change the record describes. Check {@link #isClosed()} before
+     * making it instead.
+     *
+     * @param type         {@link #BOOK} or {@link #CANCEL}
+     * @param flightNumber the flight the ticket belongs to
+     * @param ticket       the ticket sold or cancelled
+     * @return true if the record will be written, false if the journal is closed
+     * @throws IllegalArgumentException if a name, email or the flight number is too long
+     */
+    public boolean append(byte type, String flightNumber, Ticket ticket) {
+        checkRecord(flightNumber, ticket.getPerson());
+        appending.incrementAndGet();
+        try {
+            if (closed) {
+                return false;
+            }
+            queue.add(new Entry(type, flightNumber, ticket, null));
+            return true;
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Appends sales and cancellations published to a {@link BookingEventLog}, so the journal can
+     * subscribe to the log instead of being called by the booking threads. Holds are not
+     * journaled.
+     *
+     * @param event      the event
+     * @param endOfBatch ignored; the writer thread batches records itself
+     */
+    @Override
+    public void onEvent(BookingEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case BOOK -> append(BOOK, event.getFlightNumber(), event.getTicket());
+            case CANCEL -> append(CANCEL, event.getFlightNumber(), event.getTicket());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one once every record appended so far has
+     * been written. Segments starting before the returned sequence number are then complete
+     * and will not change any more.
+     *
+     * @return completes with the sequence number the new segment starts at
+     * @throws IllegalStateException if the journal is closed
+     */
+    public CompletableFuture<Long> roll() {
+        appending.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal " + directory + " is closed");
+            }
+            CompletableFuture<Long> rolled = new CompletableFuture<>();
+            queue.add(new Entry((byte) 0, null, null, rolled));
+            return rolled;
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Checks if the journal has been closed, after which records are no longer written.
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the sequence number of the last record written to the file.
+     * @return The last written sequence number
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the journal directory.
+     * @return The directory path
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes every record still queued, forces the file to disk and closes it.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Records accepted before closed was set go in ahead of the shutdown marker
+        while (appending.get() > 0) {
+            Thread.onSpinWait();
+        }
+        queue.add(SHUTDOWN);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    // ========== Reading ========== //
+
+    /**
+     * Lists the segment files of a journal directory.
+     *
+     * @param directory the journal directory
+     * @return The segment files, oldest first (empty if the directory does not exist)
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        // Names hold a fixed-width sequence number, so name order is sequence order
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Gets the sequence number of the first record of a segment, from its file name.
+     *
+     * @param segment the segment file
+     * @return The first sequence number
+     */
+    public static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Reads every record of a segment, in order. Reading stops at the first incomplete or
+     * corrupted record, which is what a crash in the middle of a write leaves behind.
+     *
+     * @param segment the segment file
+     * @param handler receives the records
+     * @return The sequence number of the last record read, or 0 if the segment is empty
+     * @throws IOException if the file cannot be read
+     */
+    public static long read(Path segment, RecordHandler handler) throws IOException {
+        long last = 0;
+        CRC32 checksum = new CRC32();
+        ByteBuffer in = ByteBuffer.allocate(1 << 20);
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+            in.flip();
+            while (true) {
+                if (in.remaining() < 4 && !fill(file, in, 4)) {
+                    return last;
+                }
+                int payload = in.getInt(in.position());
+                if (payload < MIN_PAYLOAD || payload > MIN_PAYLOAD + 4 * 3 * MAX_STRING_LENGTH) {
+                    return last;
+                }
+                if (in.remaining() < payload + 8) {
+                    if (in.capacity() < payload + 8) {
+                        ByteBuffer larger = ByteBuffer.allocate(Integer.highestOneBit(payload + 8) << 1);
+                        larger.put(in).flip();
+                        in = larger;
+                    }
+                    if (!fill(file, in, payload + 8)) {
+                        return last;
+                    }
+                }
+
+                int start = in.position() + 4;
+                checksum.reset();
+                checksum.update(in.array(), start, payload);
+                if ((int) checksum.getValue() != in.getInt(start + payload)) {
+                    return last;
+                }
+
+                in.position(start);
+                long sequence = in.getLong();
+                byte type = in.get();
+                int row = in.getShort();
+                int seat = in.getShort();
+                int price = in.getInt();
+                String flightNumber = getString(in);
+                String name = getString(in);
+                String surname = getString(in);
+                String email = getString(in);
+                in.position(start + payload + 4);
+
+                handler.onRecord(sequence, type, flightNumber, new Ticket(row, seat, price, new Person(name, surname, email)));
+                last = sequence;
+            }
+        }
+    }
+
+    // Moves the unread bytes to the front of the buffer and reads until at least `needed` are available
+    private static boolean fill(FileChannel file, ByteBuffer in, int needed) throws IOException {
+        in.compact();
+        while (in.position() < needed) {
+            if (file.read(in) < 0) {
+                in.flip();
+                return false;
+            }
+        }
+        in.flip();
+        return true;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // ========== Writer thread ========== //
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Nobody interrupts the writer on purpose; keep going until close()
+            }
+            if (batch.remove(SHUTDOWN)) {
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            System.out.println("An error occurred while flushing the journal: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    // Waits for a first record, then keeps collecting until the batch is full or the interval is over
+    private void collectBatch(List<Entry> batch) throws InterruptedException {
+        Entry first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize && batch.get(batch.size() - 1) != SHUTDOWN) {
+            if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                long remaining = deadline - System.nanoTime();
+                Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            } else if (batch.contains(SHUTDOWN)) {
+                return;
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        long start = System.nanoTime();
+        try {
+            buffer.clear();
+            for (Entry entry : batch) {
+                if (entry.rolled != null) {
+                    writeBuffer();
+                    channel.force(false);
+                    channel.close();
+                    openSegment();
+                    entry.rolled.complete(lastSequence + 1);
+                    continue;
+                }
+                encode(entry, lastSequence + 1);
+                if (durability == Durability.RECORD) {
+                    writeBuffer();
+                    channel.force(false);
+                }
+                lastSequence++;
+            }
+            if (durability == Durability.BATCH) {
+                writeBuffer();
+                channel.force(false);
+            }
+            BookingMetrics.getDefault().record(BookingMetrics.Operation.JOURNAL_WRITE, start, true);
+        } catch (IOException e) {
+            BookingMetrics.getDefault().recordFailure(BookingMetrics.Operation.JOURNAL_WRITE, start);
+            System.out.println("An error occurred while writing " + batch.size() + " records to the journal: " + file);
+            e.printStackTrace();
+            for (Entry entry : batch) {
+                if (entry.rolled != null) {
+                    entry.rolled.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openSegment() throws IOException {
+        file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, lastSequence + 1, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // ========== Record encoding ========== //
+
+    private void encode(Entry entry, long sequence) throws IOException {
+        Ticket ticket = entry.ticket;
+        Person person = ticket.getPerson();
+        byte[] flightNumber = utf8(entry.flightNumber);
+        byte[] name = utf8(person.getName());
+        byte[] surname = utf8(person.getSurname());
+        byte[] email = utf8(person.getEmail());
+        int payload = MIN_PAYLOAD + flightNumber.length + name.length + surname.length + email.length;
+
+        if (buffer.remaining() < payload + 8) {
+            writeBuffer();
+            if (buffer.capacity() < payload + 8) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(payload + 8) << 1);
+            }
+        }
+
+        buffer.putInt(payload);
+        int start = buffer.position();
+        buffer.putLong(sequence)
+                .put(entry.type)
+                .putShort((short) ticket.getRow())
+                .putShort((short) ticket.getSeat())
+                .putInt(ticket.getPrice());
+        putString(flightNumber);
+        putString(name);
+        putString(surname);
+        putString(email);
+
+        ByteBuffer written = buffer.duplicate();
+        written.position(start).limit(start + payload);
+        crc.reset();
+        crc.update(written);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private void putString(byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void checkLength(String value) {
+        if (value != null && value.length() > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException("Value too long for the journal: " + value.length() + " characters");
+        }
+    }
+}
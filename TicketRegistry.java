@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The TicketRegistry class stores the tickets sold for one aircraft.
+ * Tickets are kept in a dense array indexed by seat ordinal (see {@link SeatMap#ordinal(int, int)}),
+ * so adding, removing and finding the ticket of a seat are all constant time and a seat can hold
+ * at most one ticket. A {@link PassengerIndex} finds tickets by passenger email and surname.
+ *
+ * The registry is safe to use from many threads without locking.
+ */
+public class TicketRegistry {
+    // Ticket of every seat, indexed by seat ordinal (null when the seat has no ticket)
+    private final AtomicReferenceArray<Ticket> bySeat;
+
+    // Tickets indexed by passenger email and surname
+    private final PassengerIndex passengers;
+
+    // Number of tickets currently stored
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructs a new, empty TicketRegistry.
+     *
+     * @param capacity the number of seats on the aircraft
+     */
+    public TicketRegistry(int capacity) {
+        bySeat = new AtomicReferenceArray<>(capacity);
+        passengers = new PassengerIndex(capacity);
+    }
+
+    /**
+     * Stores the ticket of a seat.
+     * The ticket is added to the passenger index before it becomes visible by seat, so a
+     * concurrent {@link #remove(int)} always finds it in both places.
+     *
+     * @param ordinal The seat ordinal
+     * @param ticket  The ticket to store
+     * @return true if stored, false if the seat already has a ticket
+     */
+    public boolean put(int ordinal, Ticket ticket) {
+        passengers.add(ordinal, ticket);
+        if (!bySeat.compareAndSet(ordinal, null, ticket)) {
+            passengers.remove(ordinal, ticket);
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes the ticket of a seat.
+     *
+     * @param ordinal The seat ordinal
+     * @return The removed ticket, or null if the seat had no ticket
+     */
+    public Ticket remove(int ordinal) {
+        Ticket ticket = bySeat.getAndSet(ordinal, null);
+        if (ticket != null) {
+            size.decrementAndGet();
+            passengers.remove(ordinal, ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Gets the ticket of a seat.
+     *
+     * @param ordinal The seat ordinal
+     * @return The ticket, or null if the seat has no ticket
+     */
+    public Ticket get(int ordinal) {
+        return bySeat.get(ordinal);
+    }
+
+    /**
+     * Finds all tickets bought with an email address (case-insensitive).
+     *
+     * @param email The passenger's email
+     * @return The tickets, or an empty list if there are none
+     */
+    public List<Ticket> findByEmail(String email) {
+        return passengers.findByEmail(email);
+    }
+
+    /**
+     * Finds the tickets of passengers whose surname starts with a prefix (case-insensitive).
+     *
+     * @param prefix The start of the surname
+     * @param limit  The maximum number of tickets returned
+     * @return The tickets, sorted by surname then seat
+     */
+    public List<Ticket> findBySurnamePrefix(String prefix, int limit) {
+        return passengers.findBySurnamePrefix(prefix, limit);
+    }
+
+    /**
+     * Gets the number of tickets stored.
+     * @return The number of tickets
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the seat capacity of the registry.
+     * @return The number of seats
+     */
+    public int capacity() {
+        return bySeat.length();
+    }
+
+    /**
+     * Gets all stored tickets.
+     * @return The tickets, in seat order
+     */
+    public Ticket[] toArray() {
+        List<Ticket> tickets = new ArrayList<>(size());
+        for (int ordinal = 0; ordinal < bySeat.length(); ordinal++) {
+            Ticket ticket = bySeat.get(ordinal);
+            if (ticket != null) {
+                tickets.add(ticket);
+            }
+        }
+        return tickets.toArray(new Ticket[0]);
+    }
+}
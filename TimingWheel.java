@@ -0,0 +1,214 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TimingWheel class runs tasks after a delay, using a hashed timing wheel: a ring of
+ * buckets, one per tick, that a single background thread steps through.
+ * - Scheduling puts the task on a queue, cancelling sets a flag: both are O(1) and lock-free
+ * - On each tick the wheel thread moves newly scheduled tasks into the bucket of the tick they
+ *   are due in, then runs the due tasks of the current bucket only
+ *
+ * A task due more than one turn of the wheel ahead waits in its bucket with a count of the
+ * turns left, so the work per tick depends on the tasks in one bucket, not on how many tasks
+ * are outstanding. Cancelled tasks are dropped when their bucket is next visited.
+ *
+ * Tasks run on the wheel thread, up to one tick late, and must be short.
+ */
+public class TimingWheel implements AutoCloseable {
+    // Shared wheel used when no other wheel is given, created on first use
+    private static volatile TimingWheel defaultWheel;
+
+    // Tick length of the shared wheel, and its number of buckets
+    private static final long DEFAULT_TICK_MILLIS = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    /**
+     * A scheduled task, which can be cancelled until it has run.
+     */
+    public static final class Timeout {
+        // The task to run
+        private final Runnable task;
+
+        // When the task is due, in System.nanoTime() terms
+        private final long deadline;
+
+        // Turns of the wheel left before the task is due (wheel thread only)
+        private long rounds;
+
+        // Next timeout in the same bucket (wheel thread only)
+        private Timeout next;
+
+        // Set once the task is cancelled
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task. Has no effect if the task has already run.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Checks if the task was cancelled.
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    // Length of a tick in nanoseconds
+    private final long tickNanos;
+
+    // Buckets of timeouts, one per tick of a turn (wheel thread only)
+    private final Timeout[] buckets;
+
+    // Number of buckets minus one (the number of buckets is a power of two)
+    private final int mask;
+
+    // Timeouts scheduled since the last tick, moved into buckets by the wheel thread
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    // Thread stepping through the buckets
+    private final Thread worker;
+
+    // Time of tick 0
+    private final long startTime;
+
+    // Ticks processed so far (wheel thread only)
+    private long tick;
+
+    // Set by close() to stop the wheel thread
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new TimingWheel and starts its thread.
+     *
+     * @param tickMillis the length of a tick, which is also the precision of the delays
+     * @param wheelSize  the number of buckets (rounded up to a power of two)
+     */
+    public TimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Gets the wheel shared by everything that does not have its own, starting it on first use.
+     * @return The shared wheel
+     */
+    public static TimingWheel getDefault() {
+        TimingWheel wheel = defaultWheel;
+        if (wheel == null) {
+            synchronized (TimingWheel.class) {
+                wheel = defaultWheel;
+                if (wheel == null) {
+                    wheel = new TimingWheel(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+                    defaultWheel = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task        the task
+     * @param delayMillis the delay in milliseconds
+     * @return A handle to cancel the task with
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (closed) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Tasks that have not run yet never run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    // ========== Wheel thread ========== //
+
+    private void run() {
+        while (!closed) {
+            long nextTick = startTime + (tick + 1) * tickNanos;
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (closed) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            tick++;
+            transferScheduled();
+            expire(buckets[(int) (tick & mask)], (int) (tick & mask));
+        }
+    }
+
+    // Moves newly scheduled timeouts into the bucket of the tick they are due in
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // Due at the first tick at or after the deadline, and never in the past
+            long due = Math.max(tick, (timeout.deadline - startTime + tickNanos - 1) / tickNanos);
+            timeout.rounds = (due - tick) / buckets.length;
+            int bucket = (int) (due & mask);
+            timeout.next = buckets[bucket];
+            buckets[bucket] = timeout;
+        }
+    }
+
+    // Runs the due timeouts of a bucket, drops the cancelled ones, and keeps the rest
+    private void expire(Timeout head, int bucket) {
+        Timeout kept = null;
+        for (Timeout timeout = head; timeout != null; ) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                timeout.next = null;
+            } else if (timeout.rounds <= 0) {
+                timeout.next = null;
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                timeout.rounds--;
+                timeout.next = kept;
+                kept = timeout;
+            }
+            timeout = next;
+        }
+        buckets[bucket] = kept;
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Waitlist class queues passengers waiting for a seat in a fare zone of one flight, for
+ * {@link BookingService} to hand cancelled seats to (see
+ * {@link BookingService#joinWaitlist(int, Person, int)}).
+ *
+ * Every zone has its own queue, ordered by priority (highest first) and then by the order
+ * passengers joined in, so a queue where everybody has the same priority is first come, first
+ * served. The queues are lock-free skip lists: any number of agents can join, withdraw and be
+ * served at the same time.
+ *
+ * An entry is served or withdrawn exactly once, whichever comes first: both are a
+ * compare-and-set on its state, so an entry taken off the head of a queue just as it is
+ * withdrawn is skipped.
+ */
+public class Waitlist {
+    // Orders entries by priority, highest first (reversed rather than negated, which would
+    // overflow for Integer.MIN_VALUE), then by when they joined
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getPriority).reversed()
+            .thenComparingLong(entry -> entry.sequence);
+
+    // Entry states
+    private static final int WAITING = 0;
+    private static final int SERVED = 1;
+    private static final int WITHDRAWN = 2;
+
+    // One queue per fare zone
+    private final List<ConcurrentSkipListSet<Entry>> queues;
+
+    // Entries waiting in each zone; counted just after they are queued, so briefly behind
+    private final AtomicIntegerArray waiting;
+
+    // Order entries joined in, breaking ties between equal priorities
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructs a new, empty Waitlist.
+     *
+     * @param zoneCount the number of fare zones of the flight
+     */
+    public Waitlist(int zoneCount) {
+        List<ConcurrentSkipListSet<Entry>> queues = new ArrayList<>(zoneCount);
+        for (int zone = 0; zone < zoneCount; zone++) {
+            queues.add(new ConcurrentSkipListSet<>(ORDER));
+        }
+        this.queues = List.copyOf(queues);
+        this.waiting = new AtomicIntegerArray(zoneCount);
+    }
+
+    /**
+     * A passenger waiting for a seat in a fare zone.
+     */
+    public final class Entry {
+        // The passenger and the zone they wait for
+        private final Person person;
+        private final int zone;
+
+        // Higher priorities are served first
+        private final int priority;
+
+        // Position among the entries of the same priority
+        private final long sequence;
+
+        // When the passenger joined, in System.nanoTime() terms
+        private final long joinedNanos;
+
+        // WAITING, SERVED or WITHDRAWN
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        // Completed with the ticket when served, or with null when withdrawn
+        private final CompletableFuture<Ticket> ticket = new CompletableFuture<>();
+
+        Entry(Person person, int zone, int priority, long sequence) {
+            this.person = person;
+            this.zone = zone;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.joinedNanos = System.nanoTime();
+        }
+
+        /**
+         * Leaves the waitlist, unless a seat has already been handed to the passenger.
+         * @return true if withdrawn, false if already served or withdrawn
+         */
+        public boolean withdraw() {
+            if (!state.compareAndSet(WAITING, WITHDRAWN)) {
+                return false;
+            }
+            waiting.decrementAndGet(zone);
+            queues.get(zone).remove(this);
+            ticket.complete(null);
+            return true;
+        }
+
+        /**
+         * Gets the ticket of the seat handed to the passenger.
+         * @return A future completed with the ticket, or with null if the entry is withdrawn
+         */
+        public CompletableFuture<Ticket> getTicket() {
+            return ticket;
+        }
+
+        /**
+         * Checks if the passenger is still waiting.
+         * @return true if neither served nor withdrawn
+         */
+        public boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+
+        /**
+         * Gets the waiting passenger.
+         * @return The passenger
+         */
+        public Person getPerson() {
+            return person;
+        }
+
+        /**
+         * Gets the fare zone the passenger waits for.
+         * @return The fare zone (0-based)
+         */
+        public int getZone() {
+            return zone;
+        }
+
+        /**
+         * Gets the priority of the entry.
+         * @return The priority (higher is served first)
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Gets the time the passenger joined the waitlist.
+         * @return The time in System.nanoTime() terms
+         */
+        public long getJoinedNanos() {
+            return joinedNanos;
+        }
+
+        // Marks the entry served; false if it was withdrawn first
+        private boolean claim() {
+            if (!state.compareAndSet(WAITING, SERVED)) {
+                return false;
+            }
+            waiting.decrementAndGet(zone);
+            return true;
+        }
+
+        // Completes the entry with the ticket of the seat it was handed
+        void served(Ticket issued) {
+            ticket.complete(issued);
+        }
+    }
+
+    /**
+     * Adds a passenger to the end of their priority in a zone's queue.
+     *
+     * @param zone     The fare zone (0-based)
+     * @param person   The passenger
+     * @param priority The priority (higher is served first)
+     * @return The new entry
+     * @throws IllegalArgumentException if the zone does not exist
+     */
+    public Entry join(int zone, Person person, int priority) {
+        if (zone < 0 || zone >= queues.size()) {
+            throw new IllegalArgumentException("Invalid zone: " + zone);
+        }
+        Entry entry = new Entry(person, zone, priority, sequence.getAndIncrement());
+        queues.get(zone).add(entry);
+        waiting.incrementAndGet(zone);
+        return entry;
+    }
+
+    /**
+     * Takes the next waiting passenger of a zone off its queue, marking them served.
+     *
+     * @param zone The fare zone (0-based)
+     * @return The entry, or null if nobody is waiting
+     */
+    public Entry next(int zone) {
+        ConcurrentSkipListSet<Entry> queue = queues.get(zone);
+        Entry entry;
+        while ((entry = queue.pollFirst()) != null) {
+            if (entry.claim()) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if nobody is waiting in a zone.
+     *
+     * @param zone The fare zone (0-based)
+     * @return true if the zone's queue has no waiting passenger
+     */
+    public boolean isEmpty(int zone) {
+        return waiting.get(zone) <= 0;
+    }
+
+    /**
+     * Gets the number of passengers waiting in a zone.
+     *
+     * @param zone The fare zone (0-based)
+     * @return The number of waiting passengers
+     */
+    public int size(int zone) {
+        return Math.max(0, waiting.get(zone));
+    }
+
+    /**
+     * Gets the number of fare zones.
+     * @return The number of zones
+     */
+    public int zoneCount() {
+        return queues.size();
+    }
+}
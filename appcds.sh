@@ -0,0 +1,36 @@
+#!/bin/sh
+# Packages the application for fast startup: compiles it into planemanagement.jar, then records
+# the classes a booking run loads into an AppCDS archive, planemanagement.jsa, which later runs
+# map instead of loading and verifying every class again.
+#
+# The training run buys, searches and cancels a seat in a scratch directory holding a copy of
+# the layouts, so the real journal is left alone; it also compiles the layout caches.
+#
+# The archive only matches the jar it was recorded from, at the same absolute path, and the JDK
+# that recorded it. Run this script again after changing the code or the JDK.
+set -e
+
+cd "$(dirname "$0")"
+HOME_DIR=$(pwd)
+JAR="$HOME_DIR/planemanagement.jar"
+ARCHIVE="$HOME_DIR/planemanagement.jsa"
+
+rm -rf out
+javac -encoding UTF-8 -d out *.java
+jar --create --file "$JAR" --main-class PlaneManagement -C out .
+
+for layout in layouts/*.layout; do
+    rm -f "$layout.cache"
+done
+
+SCRATCH=$(mktemp -d)
+trap 'rm -rf "$SCRATCH"' EXIT
+cp -rp layouts "$SCRATCH"
+printf 'buy,A,1,Training,Run,training@run.com\nsearch,A,1\ncancel,A,1\n' > "$SCRATCH/training.csv"
+
+rm -f "$ARCHIVE"
+(cd "$SCRATCH" && java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" PlaneManagement --batch training.csv > /dev/null)
+cp -p "$SCRATCH"/layouts/*.cache layouts/
+
+echo "Start the application with:"
+echo "  java -XX:SharedArchiveFile=$ARCHIVE -cp $JAR PlaneManagement"
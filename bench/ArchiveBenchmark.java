@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks {@link TicketArchive} and {@link ArchiveAnalytics} on a large history of sales.
+ * - Builds a few days of flights, sold at three fare levels, and archives them again and
+ *   again under consecutive dates until the history holds the requested number of tickets
+ * - Reports archive size per ticket, and the time and scan rate of revenue per zone, per row
+ *   and per date range, on one thread and on the common fork-join pool
+ * - Compares with decoding every ticket of a few files, the way a row-by-row format is read
+ * - Checks every query against the totals of the days that were archived
+ *
+ * Usage: java -cp out:bench ArchiveBenchmark [tickets] [flightsPerDay] [directory]
+ */
+public class ArchiveBenchmark {
+    // Distinct days of flights, archived in turn
+    private static final int DAYS = 7;
+
+    // Times every query is run; only the last run is reported
+    private static final int ROUNDS = 5;
+
+    // First date of the history
+    private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        long tickets = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        int flightsPerDay = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Path directory = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("archive-bench");
+        Files.createDirectories(directory);
+
+        Aircraft aircraft = widebody();
+        Random random = new Random(42);
+        List<List<BookingService>> days = new ArrayList<>();
+        long[] dayTickets = new long[DAYS];
+        long[][] dayZoneRevenue = new long[DAYS][aircraft.zoneCount()];
+        long[][] dayRowRevenue = new long[DAYS][aircraft.rowCount()];
+        for (int day = 0; day < DAYS; day++) {
+            List<BookingService> flights = new ArrayList<>(flightsPerDay);
+            for (int f = 0; f < flightsPerDay; f++) {
+                BookingService bookings = sell(aircraft, "PM" + (1000 + f), random);
+                flights.add(bookings);
+                for (Ticket ticket : bookings.tickets()) {
+                    dayTickets[day]++;
+                    dayZoneRevenue[day][aircraft.zoneOf(aircraft.ordinal(ticket.getRow(), ticket.getSeat() - 1))] += ticket.getPrice();
+                    dayRowRevenue[day][ticket.getRow()] += ticket.getPrice();
+                }
+            }
+            days.add(flights);
+        }
+
+        // Write archives until the history is big enough
+        long written = 0;
+        long bytes = 0;
+        int files = 0;
+        long[] zoneRevenue = new long[aircraft.zoneCount()];
+        long[] rowRevenue = new long[aircraft.rowCount()];
+        long rangeRevenue = 0;
+        LocalDate rangeFrom = FIRST_DATE.plusDays(30);
+        LocalDate rangeTo = FIRST_DATE.plusDays(59);
+        long start = System.nanoTime();
+        while (written < tickets) {
+            int day = files % DAYS;
+            LocalDate date = FIRST_DATE.plusDays(files);
+            Path file = directory.resolve(date + ArchiveAnalytics.EXTENSION);
+            TicketArchive.write(file, date, days.get(day));
+            bytes += Files.size(file);
+            written += dayTickets[day];
+            for (int zone = 0; zone < zoneRevenue.length; zone++) {
+                zoneRevenue[zone] += dayZoneRevenue[day][zone];
+                if (!date.isBefore(rangeFrom) && !date.isAfter(rangeTo)) {
+                    rangeRevenue += dayZoneRevenue[day][zone];
+                }
+            }
+            for (int row = 0; row < rowRevenue.length; row++) {
+                rowRevenue[row] += dayRowRevenue[day][row];
+            }
+            files++;
+        }
+        double writeSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Archived %,d tickets in %d files (%d flights a day) in %.1f s: %.0f tickets/s, %.1f bytes/ticket%n",
+                written, files, flightsPerDay, writeSeconds, written / writeSeconds, (double) bytes / written);
+        System.out.printf("  a row-by-row snapshot record is 20 bytes/ticket; the columns analytics read are %d%n",
+                TicketArchive.Column.ROW.getWidth() + TicketArchive.Column.ZONE.getWidth() + TicketArchive.Column.PRICE.getWidth());
+        days.clear();
+
+        List<Path> archives = ArchiveAnalytics.list(directory);
+        boolean correct = true;
+        ForkJoinPool single = new ForkJoinPool(1);
+        for (ForkJoinPool pool : new ForkJoinPool[]{single, ForkJoinPool.commonPool()}) {
+            ArchiveAnalytics analytics = new ArchiveAnalytics(archives, pool);
+            String threads = pool.getParallelism() + (pool.getParallelism() == 1 ? " thread" : " threads");
+            for (int round = 0; round < ROUNDS; round++) {
+                boolean report = round == ROUNDS - 1;
+                Map<String, Long> byZone = time(report, "revenue per zone, " + threads, written, () -> analytics.revenueByZone(null, null));
+                long[] byRow = time(report, "revenue per row, " + threads, written, () -> analytics.revenueByRow(null, null));
+                Map<LocalDate, Long> byDate = time(report, "revenue per date, 30 days, " + threads,
+                        written * 30 / files, () -> analytics.revenueByDate(rangeFrom, rangeTo));
+                if (report) {
+                    correct &= check("revenue per zone", zoneRevenue, new long[]{byZone.get(aircraft.zoneName(0)), byZone.get(aircraft.zoneName(1))});
+                    correct &= check("revenue per row", rowRevenue, byRow);
+                    correct &= check("revenue over 30 days", new long[]{rangeRevenue},
+                            new long[]{byDate.values().stream().mapToLong(Long::longValue).sum()});
+                }
+            }
+        }
+        single.shutdown();
+
+        // Decoding whole tickets, as a row-by-row format has to
+        List<Path> sample = archives.subList(0, Math.min(DAYS, archives.size()));
+        long sampleTickets = 0;
+        for (Path file : sample) {
+            sampleTickets += TicketArchive.open(file).ticketCount();
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            time(round == ROUNDS - 1, "revenue per zone, decoding tickets", sampleTickets, () -> {
+                long[] revenue = new long[aircraft.zoneCount()];
+                for (Path file : sample) {
+                    TicketArchive archive = TicketArchive.open(file);
+                    for (int i = 0; i < archive.ticketCount(); i++) {
+                        revenue[archive.zone(i)] += archive.ticket(i).getPrice();
+                    }
+                }
+                return revenue;
+            });
+        }
+
+        if (args.length <= 2) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println(correct ? "OK: every query matches the archived sales" : "FAILED: a query does not match the archived sales");
+        if (!correct) {
+            System.exit(1);
+        }
+    }
+
+    // Sells 60 to 100% of a flight's seats to passengers from a pool of regular travellers,
+    // at the base fares, then 15% and 30% above them
+    private static BookingService sell(Aircraft aircraft, String flightNumber, Random random) {
+        BookingService bookings = new BookingService(flightNumber, new SeatMap(aircraft), aircraft.getDefaultFares());
+        int[] order = new int[aircraft.capacity()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int sold = order.length * (60 + random.nextInt(41)) / 100;
+        for (int i = 0; i < sold; i++) {
+            if (i == sold * 7 / 10 || i == sold * 9 / 10) {
+                bookings.setFares(surcharged(aircraft, i == sold * 7 / 10 ? 15 : 30));
+            }
+            int traveller = random.nextInt(20_000);
+            Person person = new Person("Name" + traveller % 3000, "Surname" + traveller % 5000, "traveller" + traveller + "@example.com");
+            bookings.buy(aircraft.rowOf(order[i]), aircraft.columnOf(order[i]) + 1, person);
+        }
+        return bookings;
+    }
+
+    private static FareTable surcharged(Aircraft aircraft, int percent) {
+        int[] prices = new int[aircraft.zoneCount()];
+        for (int zone = 0; zone < prices.length; zone++) {
+            prices[zone] = aircraft.getDefaultFares().zonePrice(zone) * (100 + percent) / 100;
+        }
+        return new FareTable(aircraft, prices);
+    }
+
+    private interface Query<T> {
+        T run() throws IOException;
+    }
+
+    private static <T> T time(boolean report, String name, long tickets, Query<T> query) throws IOException {
+        long start = System.nanoTime();
+        T result = query.run();
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%-40s %8.1f ms %8.0f M tickets/s%n", name, nanos / 1e6, tickets * 1e3 / nanos);
+        }
+        return result;
+    }
+
+    private static boolean check(String name, long[] expected, long[] actual) {
+        if (Arrays.equals(expected, actual)) {
+            return true;
+        }
+        System.out.println("  " + name + ": expected " + Arrays.toString(expected) + ", got " + Arrays.toString(actual));
+        return false;
+    }
+
+    // 40 rows of 9 seats: 4 business rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
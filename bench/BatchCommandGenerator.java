@@ -0,0 +1,42 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a command file of random buy, cancel and search commands for the PM-54 seat layout,
+ * to load-test batch mode (java PlaneManagement --batch FILE RESULTS).
+ * About half of the commands are purchases, a quarter cancellations and a quarter searches.
+ *
+ * Usage: java -cp out:bench BatchCommandGenerator [commands] [file]
+ */
+public class BatchCommandGenerator {
+    // Seats in each row of the PM-54 layout
+    private static final int[] ROW_LENGTHS = {14, 13, 13, 14};
+
+    public static void main(String[] args) throws IOException {
+        long commands = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        Path file = Path.of(args.length > 1 ? args[1] : "commands.csv");
+        SplittableRandom random = new SplittableRandom(42);
+
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# command,row,seat[,name,surname,email]\n");
+            for (long i = 0; i < commands; i++) {
+                int row = random.nextInt(ROW_LENGTHS.length);
+                char rowLetter = (char) ('A' + row);
+                int seat = random.nextInt(ROW_LENGTHS[row]) + 1;
+                int kind = random.nextInt(4);
+                if (kind < 2) {
+                    out.write("buy," + rowLetter + "," + seat + ",Passenger,No" + i + ",p" + i + "@example.com\n");
+                } else if (kind == 2) {
+                    out.write("cancel," + rowLetter + "," + seat + "\n");
+                } else {
+                    out.write("search," + rowLetter + "," + seat + "\n");
+                }
+            }
+        }
+        System.out.println("Wrote " + commands + " commands to " + file);
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A small benchmark harness for the bench/ programs, in place of JMH.
+ * - Runs an operation on a number of threads for a warmup period, then for several timed
+ *   iterations, and reports the throughput and the time per operation
+ * - Keeps every result in a sink so the JIT cannot drop the work being measured
+ *
+ * The operation is called in a tight loop; the stop flag is only read every
+ * {@link #CHECK_EVERY} calls so that reading it does not dominate short operations.
+ */
+public final class Bench {
+    // Calls between two reads of the stop flag
+    private static final int CHECK_EVERY = 256;
+
+    /**
+     * One benchmarked operation.
+     */
+    public interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @param thread the index of the calling thread (0-based), for per-thread state
+         * @return any value computed by the operation, added to the sink
+         */
+        long run(int thread);
+    }
+
+    // Duration of the warmup and of each timed iteration, in milliseconds
+    private final long warmupMillis;
+    private final long iterationMillis;
+
+    // Number of timed iterations
+    private final int iterations;
+
+    // Keeps results alive so the JIT cannot drop the measured work
+    private static volatile long sink;
+
+    // Where results are printed, even while an operation has redirected System.out
+    private static final PrintStream out = System.out;
+
+    /**
+     * Constructs a new Bench.
+     *
+     * @param warmupMillis    how long to run before measuring
+     * @param iterationMillis how long each timed iteration runs
+     * @param iterations      the number of timed iterations
+     */
+    public Bench(long warmupMillis, long iterationMillis, int iterations) {
+        this.warmupMillis = warmupMillis;
+        this.iterationMillis = iterationMillis;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Measures an operation and prints one line with its average and best throughput.
+     *
+     * @param name      the name printed for the operation
+     * @param threads   the number of threads calling the operation at the same time
+     * @param operation the operation
+     * @return The average throughput in operations per second
+     */
+    public double run(String name, int threads, Operation operation) throws InterruptedException {
+        measure(threads, warmupMillis, operation);
+        double total = 0;
+        double best = 0;
+        for (int i = 0; i < iterations; i++) {
+            double opsPerSecond = measure(threads, iterationMillis, operation);
+            total += opsPerSecond;
+            best = Math.max(best, opsPerSecond);
+        }
+        double average = total / iterations;
+        print(name, threads, average, best);
+        return average;
+    }
+
+    /**
+     * Times a fixed amount of work done once on the calling thread and prints its throughput.
+     * Used for operations that only finish when some background work is done (e.g. a journal
+     * that has to be drained and closed).
+     *
+     * @param name       the name printed for the operation
+     * @param operations the number of operations the work performs
+     * @param work       the work to time
+     * @return The throughput in operations per second
+     */
+    public static double once(String name, long operations, Work work) throws Exception {
+        long start = System.nanoTime();
+        work.run();
+        double opsPerSecond = operations * 1e9 / (System.nanoTime() - start);
+        print(name, 1, opsPerSecond, opsPerSecond);
+        return opsPerSecond;
+    }
+
+    /**
+     * Work timed by {@link #once(String, long, Work)}.
+     */
+    public interface Work {
+        void run() throws Exception;
+    }
+
+    // ========== Internal helpers ========== //
+
+    // Runs the operation on every thread for a period, returns operations per second
+    private static double measure(int threads, long millis, Operation operation) throws InterruptedException {
+        long[] counts = new long[threads];
+        long[] sums = new long[threads];
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        Stop flag = new Stop();
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                long sum = 0;
+                while (!flag.stopped) {
+                    for (int i = 0; i < CHECK_EVERY; i++) {
+                        sum += operation.run(thread);
+                    }
+                    count += CHECK_EVERY;
+                }
+                counts[thread] = count;
+                sums[thread] = sum;
+            });
+            workers[t].start();
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        Thread.sleep(millis);
+        flag.stopped = true;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            total += counts[t];
+            sink += sums[t];
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    private static void print(String name, int threads, double average, double best) {
+        out.printf("%-32s %3d thread%s %,16.0f ops/s (best %,.0f) %10.1f ns/op%n", name, threads,
+                threads == 1 ? " " : "s", average, best, threads * 1e9 / average);
+    }
+
+    // Stop flag shared by the threads of one measurement
+    private static final class Stop {
+        volatile boolean stopped;
+    }
+}
@@ -0,0 +1,160 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the booking hot paths at a realistic number of sold tickets.
+ * - Seat availability, seat price and first-free-seat lookups
+ * - Ticket registry churn (buying and cancelling random seats)
+ * - Ticket lookups by seat (search_ticket) and by email
+ * - Saving tickets to text files (Ticket.save) against appending them to the journal
+ *
+ * Each lookup is run single-threaded and multi-threaded. Tickets are spread over as many
+ * 360-seat flights as needed, with every flight about 80% full.
+ * Large ticket counts need a larger heap (about 1 GB per million tickets).
+ *
+ * Usage: java -cp out:bench BookingPathBenchmark [tickets] [threads] [iterationMillis]
+ */
+public class BookingPathBenchmark {
+    // Share of each flight's seats that are sold before measuring
+    private static final double LOAD_FACTOR = 0.8;
+
+    // Tickets written by the Ticket.save and journal benchmarks
+    private static final int SAVED_TICKETS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int tickets = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1_000;
+
+        Aircraft aircraft = widebody();
+        int perFlight = (int) (aircraft.capacity() * LOAD_FACTOR);
+        int flightCount = Math.max(1, (tickets + perFlight - 1) / perFlight);
+        BookingService[] flights = sell(aircraft, flightCount, tickets);
+        System.out.printf("%d tickets on %d flights of %d seats%n%n", tickets, flightCount, aircraft.capacity());
+
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        int capacity = aircraft.capacity();
+
+        for (int n : new int[]{1, threads}) {
+            bench.run("isAvailable", n, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                BookingService bookings = flights[random.nextInt(flights.length)];
+                int ordinal = random.nextInt(capacity);
+                return bookings.isAvailable(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1) ? 1 : 0;
+            });
+            bench.run("price", n, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                BookingService bookings = flights[random.nextInt(flights.length)];
+                int ordinal = random.nextInt(capacity);
+                return bookings.price(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1);
+            });
+            bench.run("firstFree", n, thread ->
+                    flights[ThreadLocalRandom.current().nextInt(flights.length)].getSeats().firstFree());
+            bench.run("findTicket (search_ticket)", n, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                BookingService bookings = flights[random.nextInt(flights.length)];
+                int ordinal = random.nextInt(capacity);
+                return bookings.findTicket(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1) != null ? 1 : 0;
+            });
+            bench.run("findTickets by email", n, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int flight = random.nextInt(flights.length);
+                return flights[flight].findTickets(email(flight, random.nextInt(perFlight))).size();
+            });
+            bench.run("buy/cancel churn", n, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int flight = random.nextInt(flights.length);
+                BookingService bookings = flights[flight];
+                int ordinal = random.nextInt(capacity);
+                int row = aircraft.rowOf(ordinal);
+                int seat = aircraft.columnOf(ordinal) + 1;
+                Ticket ticket = bookings.cancel(row, seat);
+                if (ticket == null) {
+                    ticket = bookings.buy(row, seat, passenger(flight, ordinal));
+                } else {
+                    bookings.buy(row, seat, ticket.getPerson());
+                }
+                return ticket == null ? 0 : 1;
+            });
+            System.out.println();
+        }
+
+        saveAgainstJournal(flights[0]);
+    }
+
+    // Saves the same tickets to text files and to a journal, one after the other
+    private static void saveAgainstJournal(BookingService bookings) throws Exception {
+        Ticket[] sold = bookings.tickets();
+        Path directory = Files.createTempDirectory("booking-benchmark");
+        PrintStream console = System.out;
+        try {
+            Path files = Files.createDirectory(directory.resolve("tickets"));
+            // Ticket.save prints a line per ticket, which is not what is being measured
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                Bench.once("Ticket.save", SAVED_TICKETS, () -> {
+                    for (int i = 0; i < SAVED_TICKETS; i++) {
+                        sold[i % sold.length].save(files);
+                    }
+                });
+            } finally {
+                System.setOut(console);
+            }
+
+            Path journalDirectory = Files.createDirectory(directory.resolve("journal"));
+            Bench.once("TicketJournal.append + close", SAVED_TICKETS, () -> {
+                try (TicketJournal journal = new TicketJournal(journalDirectory, 256, 5,
+                        TicketJournal.Durability.BATCH, 0)) {
+                    for (int i = 0; i < SAVED_TICKETS; i++) {
+                        journal.append(TicketJournal.BOOK, bookings.getFlightNumber(), sold[i % sold.length]);
+                    }
+                }
+            });
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Creates the flights and sells random seats until the requested number of tickets is sold
+    private static BookingService[] sell(Aircraft aircraft, int flightCount, int tickets) {
+        BookingService[] flights = new BookingService[flightCount];
+        SplittableRandom random = new SplittableRandom(42);
+        int remaining = tickets;
+        for (int f = 0; f < flightCount; f++) {
+            flights[f] = new Flight("PM" + f, aircraft).getBookings();
+            int toSell = Math.min(remaining, (int) (aircraft.capacity() * LOAD_FACTOR));
+            for (int sold = 0; sold < toSell; ) {
+                int ordinal = random.nextInt(aircraft.capacity());
+                if (flights[f].buy(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1, passenger(f, sold)) != null) {
+                    sold++;
+                }
+            }
+            remaining -= toSell;
+        }
+        return flights;
+    }
+
+    private static Person passenger(int flight, int number) {
+        return new Person("Bench", "Passenger", email(flight, number));
+    }
+
+    private static String email(int flight, int number) {
+        return "p" + number + "." + flight + "@bench.com";
+    }
+
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stress check for {@link BookingService} under many concurrent sales agents.
+ * Every thread buys and cancels random seats on a widebody layout for a fixed time and counts
+ * the buys and cancels that succeeded for each seat. At the end, for every seat:
+ * - successful buys minus successful cancels must be 0 or 1 (no double-booking, no lost cancellation)
+ * - that balance must match what the seat map says
+ * - there must be exactly one stored ticket for every booked seat
+ *
+ * Usage: java -cp out:bench ConcurrentBookingStress [threads] [seconds]
+ */
+public class ConcurrentBookingStress {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // 60 rows of 10 seats, a typical widebody economy cabin
+        int[][] zones = new int[60][10];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 10 ? 0 : 1);
+        }
+        Aircraft aircraft = new Aircraft("STRESS-600", zones, new int[]{200, 100});
+        SeatMap seats = new SeatMap(aircraft);
+        BookingService bookings = new BookingService("STRESS", seats, aircraft.getDefaultFares());
+        Person person = new Person("Stress", "Test", "stress@test.com");
+
+        int capacity = seats.capacity();
+        int[][] balances = new int[threads][capacity];
+        long[] operations = new long[threads];
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int[] balance = balances[id];
+                long count = 0;
+                while (running.get()) {
+                    int ordinal = random.nextInt(capacity);
+                    int row = seats.rowOf(ordinal);
+                    int seat = seats.columnOf(ordinal) + 1;
+                    if (random.nextBoolean()) {
+                        if (bookings.buy(row, seat, person) != null) {
+                            balance[ordinal]++;
+                        }
+                    } else if (bookings.cancel(row, seat) != null) {
+                        balance[ordinal]--;
+                    }
+                    count++;
+                }
+                operations[id] = count;
+                done.countDown();
+            });
+            worker.start();
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+
+        int[] ticketsPerSeat = new int[capacity];
+        long revenue = 0;
+        Ticket[] sold = bookings.tickets();
+        for (Ticket ticket : sold) {
+            ticketsPerSeat[seats.ordinal(ticket.getRow(), ticket.getSeat() - 1)]++;
+            revenue += ticket.getPrice();
+        }
+
+        int failures = 0;
+        for (int ordinal = 0; ordinal < capacity; ordinal++) {
+            int balance = 0;
+            for (int t = 0; t < threads; t++) {
+                balance += balances[t][ordinal];
+            }
+            boolean booked = !seats.isFree(seats.rowOf(ordinal), seats.columnOf(ordinal));
+            if (balance < 0 || balance > 1 || (balance == 1) != booked || ticketsPerSeat[ordinal] != balance) {
+                System.out.println("Seat " + ordinal + ": balance " + balance + ", booked " + booked
+                        + ", tickets " + ticketsPerSeat[ordinal]);
+                failures++;
+            }
+        }
+
+        SalesReport report = bookings.report();
+        if (report.getRevenue() != revenue || report.getTicketsSold() != sold.length) {
+            System.out.println("Sales totals: " + report.getTicketsSold() + " tickets, £" + report.getRevenue()
+                    + "; tickets held: " + sold.length + ", £" + revenue);
+            failures++;
+        }
+
+        long total = 0;
+        for (long count : operations) {
+            total += count;
+        }
+        System.out.printf("%d threads, %d operations in %d s (%.0f ops/s)%n",
+                threads, total, seconds, total / (double) seconds);
+        System.out.println(failures == 0 ? "OK: no double-bookings or lost cancellations" : "FAILED: " + failures + " seats inconsistent");
+        if (failures != 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks {@link DynamicPricing} on many flights sharing one {@link BookingEventLog}.
+ * - Seat price lookups with fixed fares and with dynamic fares (both a single read)
+ * - Buy/cancel churn with and without the pricing subscriber
+ * - How many fare tables were published compared with the number of sales
+ * - After the log is drained, every zone's price must match the tier of its final occupancy
+ *
+ * Usage: java -cp out:bench DynamicPricingBenchmark [flights] [threads] [iterationMillis]
+ */
+public class DynamicPricingBenchmark {
+    // +15% once a zone is 70% sold, +30% at 90%
+    private static final int[] THRESHOLDS = {70, 90};
+    private static final int[] SURCHARGES = {15, 30};
+
+    public static void main(String[] args) throws Exception {
+        int flightCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1_000;
+
+        Aircraft aircraft = widebody();
+        int capacity = aircraft.capacity();
+        Person person = new Person("Dynamic", "Pricing", "dynamic@pricing.com");
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        boolean correct = true;
+
+        for (boolean dynamic : new boolean[]{false, true}) {
+            String mode = dynamic ? "dynamic fares" : "fixed fares";
+            BookingService[] flights = new BookingService[flightCount];
+            DynamicPricing pricing = new DynamicPricing(THRESHOLDS, SURCHARGES);
+            try (BookingEventLog log = new BookingEventLog(8192)) {
+                for (int f = 0; f < flightCount; f++) {
+                    flights[f] = new BookingService("PM" + f, new SeatMap(aircraft), aircraft.getDefaultFares());
+                    if (dynamic) {
+                        pricing.add(flights[f]);
+                    }
+                    flights[f].setEventLog(log);
+                }
+                if (dynamic) {
+                    log.subscribe("pricing", pricing);
+                }
+
+                bench.run("buy/cancel churn, " + mode, threads, thread -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    BookingService bookings = flights[random.nextInt(flightCount)];
+                    int ordinal = random.nextInt(capacity);
+                    int row = aircraft.rowOf(ordinal);
+                    int seat = aircraft.columnOf(ordinal) + 1;
+                    // Buy more often than cancel, so zones climb through the tiers
+                    if (random.nextInt(3) == 0) {
+                        return bookings.cancel(row, seat) != null ? 1 : 0;
+                    }
+                    return bookings.buy(row, seat, person) != null ? 1 : 0;
+                });
+                bench.run("price lookup, " + mode, threads, thread -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int ordinal = random.nextInt(capacity);
+                    return flights[random.nextInt(flightCount)].price(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1);
+                });
+                log.drain();
+                if (dynamic) {
+                    System.out.printf("  %d seat changes, %d fare tables published%n", log.published(), pricing.repricings());
+                    correct = check(flights, aircraft);
+                }
+            }
+        }
+        System.out.println(correct ? "OK: every zone is priced for its occupancy" : "FAILED: zones priced for the wrong tier");
+        if (!correct) {
+            System.exit(1);
+        }
+    }
+
+    // Checks every zone's current price against the tier of its final occupancy
+    private static boolean check(BookingService[] flights, Aircraft aircraft) {
+        int wrong = 0;
+        for (BookingService bookings : flights) {
+            for (int zone = 0; zone < aircraft.zoneCount(); zone++) {
+                long sold = bookings.getStats().soldInZone(zone);
+                int surcharge = 0;
+                for (int tier = 0; tier < THRESHOLDS.length; tier++) {
+                    if (sold * 100 >= (long) THRESHOLDS[tier] * aircraft.seatsInZone(zone)) {
+                        surcharge = SURCHARGES[tier];
+                    }
+                }
+                long expected = Math.round(aircraft.getDefaultFares().zonePrice(zone) * (100 + surcharge) / 100.0);
+                if (bookings.getFares().zonePrice(zone) != expected) {
+                    wrong++;
+                }
+            }
+        }
+        if (wrong > 0) {
+            System.out.println("  " + wrong + " zones priced for the wrong tier");
+        }
+        return wrong == 0;
+    }
+
+    // 40 rows of 9 seats: 4 business rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
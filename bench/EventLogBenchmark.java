@@ -0,0 +1,126 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the {@link BookingEventLog} and checks its ordering guarantees.
+ * - Raw publishing throughput with 1 to 3 subscribers, each checking that it sees every
+ *   sequence number once and in order
+ * - Buy/cancel churn with the journal called by the booking threads, against the journal
+ *   subscribed to the event log
+ * - While churning, a subscriber checks that every seat's events alternate correctly
+ *   (a sale only on a free seat, a cancellation only on a sold one)
+ * - How long events wait before subscribers handle them
+ *
+ * Usage: java -cp out:bench EventLogBenchmark [threads] [iterationMillis] [capacity]
+ */
+public class EventLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 8192;
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        boolean ordered = true;
+
+        for (int subscribers = 1; subscribers <= 3; subscribers++) {
+            try (BookingEventLog log = new BookingEventLog(capacity)) {
+                AtomicLong gaps = new AtomicLong();
+                for (int s = 0; s < subscribers; s++) {
+                    long[] expected = {0};
+                    log.subscribe("check-" + s, (event, endOfBatch) -> {
+                        if (event.getSequence() != expected[0]++) {
+                            gaps.incrementAndGet();
+                            expected[0] = event.getSequence() + 1;
+                        }
+                    });
+                }
+                bench.run("publish, " + subscribers + " subscribers", threads, thread ->
+                        log.publish(BookingEvent.Type.HOLD, "PM1", thread, 0, 1, null));
+                log.drain();
+                if (gaps.get() != 0) {
+                    System.out.println("  " + gaps.get() + " events out of order");
+                    ordered = false;
+                }
+            }
+        }
+        System.out.println();
+
+        Aircraft aircraft = widebody();
+        Person person = new Person("Event", "Log", "event@log.com");
+        Path directory = Files.createTempDirectory("event-log-benchmark");
+        try {
+            try (TicketJournal journal = journal(directory.resolve("direct"))) {
+                BookingService bookings = new BookingService("PM1", new SeatMap(aircraft), aircraft.getDefaultFares());
+                bookings.setJournal(journal);
+                bench.run("buy/cancel, journal on booking thread", threads, thread -> churn(bookings, aircraft, person));
+            }
+
+            BookingMetrics.getDefault().latencies(BookingMetrics.Operation.EVENT_DELIVERY).reset();
+            try (TicketJournal journal = journal(directory.resolve("events"));
+                 BookingEventLog log = new BookingEventLog(capacity)) {
+                SeatOrderCheck check = new SeatOrderCheck(aircraft.capacity());
+                log.subscribe("journal", journal);
+                log.subscribe("order-check", check);
+                BookingService bookings = new BookingService("PM1", new SeatMap(aircraft), aircraft.getDefaultFares());
+                bookings.setEventLog(log);
+                bench.run("buy/cancel, journal subscribed to log", threads, thread -> churn(bookings, aircraft, person));
+                log.drain();
+                System.out.printf("  %d events, %d seat-order violations%n", log.published(), check.violations);
+                ordered &= check.violations == 0;
+            }
+            System.out.println("  event delivery: " + BookingMetrics.getDefault().latencies(BookingMetrics.Operation.EVENT_DELIVERY));
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+
+        System.out.println(ordered ? "OK: events delivered in order" : "FAILED: events out of order");
+        if (!ordered) {
+            System.exit(1);
+        }
+    }
+
+    private static long churn(BookingService bookings, Aircraft aircraft, Person person) {
+        int ordinal = ThreadLocalRandom.current().nextInt(aircraft.capacity());
+        int row = aircraft.rowOf(ordinal);
+        int seat = aircraft.columnOf(ordinal) + 1;
+        return bookings.cancel(row, seat) == null && bookings.buy(row, seat, person) != null ? 1 : 0;
+    }
+
+    private static TicketJournal journal(Path directory) throws Exception {
+        return new TicketJournal(directory, 256, 5, TicketJournal.Durability.BATCH, 0);
+    }
+
+    // Checks that each seat's sales and cancellations alternate, starting with a sale
+    private static final class SeatOrderCheck implements BookingEventLog.Handler {
+        private final boolean[] sold;
+        private long violations;
+
+        SeatOrderCheck(int capacity) {
+            sold = new boolean[capacity];
+        }
+
+        @Override
+        public void onEvent(BookingEvent event, boolean endOfBatch) {
+            boolean booking = event.getType() == BookingEvent.Type.BOOK;
+            if (sold[event.getOrdinal()] == booking) {
+                violations++;
+            }
+            sold[event.getOrdinal()] = booking;
+        }
+    }
+
+    // 40 rows of 9 seats: 4 business rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
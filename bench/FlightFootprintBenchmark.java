@@ -0,0 +1,54 @@
+/**
+ * Measures the heap footprint of a {@link FlightInventory}.
+ * Creates many flights of a widebody type, then books some of their seats, and prints the
+ * retained heap per flight and per booked ticket.
+ *
+ * Usage: java -cp out:bench FlightFootprintBenchmark [flights] [ticketsPerFlight]
+ */
+public class FlightFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int flightCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int ticketsPerFlight = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        // 40 rows of 9 seats: 4 business rows, the rest economy
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        Aircraft aircraft = new Aircraft("WB-360", zones, new int[]{900, 250});
+        FlightInventory inventory = new FlightInventory();
+
+        long baseline = usedHeap();
+        for (int i = 0; i < flightCount; i++) {
+            inventory.addFlight("PM" + i, aircraft);
+        }
+        long withFlights = usedHeap();
+
+        for (Flight flight : inventory.flights()) {
+            BookingService bookings = flight.getBookings();
+            for (int i = 0; i < ticketsPerFlight; i++) {
+                int ordinal = bookings.getSeats().firstFree();
+                SeatMap seats = bookings.getSeats();
+                bookings.buy(seats.rowOf(ordinal), seats.columnOf(ordinal) + 1,
+                        new Person("Name" + (i % 50), "Surname" + (i % 200), "passenger" + i + "@mail.com"));
+            }
+        }
+        long withTickets = usedHeap();
+
+        long tickets = (long) flightCount * ticketsPerFlight;
+        System.out.printf("%d flights of %d seats: %d bytes per flight%n",
+                flightCount, aircraft.capacity(), (withFlights - baseline) / flightCount);
+        System.out.printf("%d tickets: %d bytes per ticket (including passenger)%n",
+                tickets, (withTickets - withFlights) / Math.max(1, tickets));
+        System.out.println("Flights kept alive: " + inventory.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
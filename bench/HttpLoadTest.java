@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for {@link HttpBookingServer} on localhost.
+ * - Many agents buy and cancel random seats at the same time, each sending its next request
+ *   as soon as the previous one is answered
+ * - Reports throughput, responses by status and p50/p99 latency
+ *
+ * Without a URL the test starts its own server on a free port, selling a 360-seat flight, and
+ * checks afterwards that the sales totals match the tickets sold. With a URL (e.g. a server
+ * started with "java PlaneManagement --http") it runs against that server.
+ *
+ * Usage: java -cp out:bench HttpLoadTest [agents] [seconds] [url]
+ */
+public class HttpLoadTest {
+    // Status codes counted separately; anything else is counted as other
+    private static final int[] STATUSES = {200, 404, 409};
+
+    // First request that failed without a response, reported at the end
+    private static final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    public static void main(String[] args) throws Exception {
+        int agents = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        HttpBookingServer server = null;
+        BookingService bookings = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2].replaceAll("/+$", "");
+        } else {
+            bookings = new Flight("LT001", widebody()).getBookings();
+            server = new HttpBookingServer(bookings, new InetSocketAddress("localhost", 0));
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        int[] rowLengths = rowLengths(client, url);
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicLongArray statuses = new AtomicLongArray(STATUSES.length + 2);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> running = new ArrayList<>(agents);
+        for (int agent = 0; agent < agents; agent++) {
+            running.add(agent(client, url, rowLengths, agent, deadline, latencies, statuses));
+        }
+        for (CompletableFuture<Void> agent : running) {
+            agent.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long requests = latencies.count();
+        System.out.printf("%d agents, %d requests in %.1f s (%.0f requests/s)%n", agents, requests, elapsed, requests / elapsed);
+        StringBuilder counts = new StringBuilder("Responses:");
+        for (int i = 0; i < STATUSES.length; i++) {
+            counts.append(' ').append(STATUSES[i]).append('=').append(statuses.get(i));
+        }
+        counts.append(" other=").append(statuses.get(STATUSES.length))
+                .append(" failed=").append(statuses.get(STATUSES.length + 1));
+        System.out.println(counts);
+        if (firstFailure.get() != null) {
+            System.out.println("First failure: " + firstFailure.get());
+        }
+        System.out.printf("Latency: p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6,
+                latencies.percentile(99.9) / 1e6, latencies.max() / 1e6);
+
+        if (server != null) {
+            server.stop();
+            SalesReport report = bookings.report();
+            boolean consistent = report.getTicketsSold() == bookings.ticketCount()
+                    && bookings.getSeats().freeSeats() == bookings.getSeats().capacity() - bookings.ticketCount();
+            System.out.println(consistent ? "OK: seat map, tickets and sales totals agree"
+                    : "FAILED: " + report.getTicketsSold() + " sold in totals, " + bookings.ticketCount()
+                    + " tickets, " + bookings.getSeats().freeSeats() + " free seats");
+            if (!consistent) {
+                System.exit(1);
+            }
+        }
+    }
+
+    // One agent: sends a request, and when it is answered sends the next, until the deadline
+    private static CompletableFuture<Void> agent(HttpClient client, String url, int[] rowLengths, int agent,
+                                                 long deadline, LatencyHistogram latencies, AtomicLongArray statuses) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int row = random.nextInt(rowLengths.length);
+        int seat = random.nextInt(rowLengths[row]) + 1;
+        String query = "?row=" + (row + 1) + "&seat=" + seat;
+        URI uri = URI.create(random.nextBoolean()
+                ? url + "/buy" + query + "&name=Agent&surname=No" + agent + "&email=agent" + agent + "@example.com"
+                : url + "/cancel" + query);
+        HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    latencies.record(System.nanoTime() - start);
+                    if (failure != null) {
+                        firstFailure.compareAndSet(null, failure);
+                    }
+                    statuses.incrementAndGet(failure != null ? STATUSES.length + 1 : statusIndex(response.statusCode()));
+                    return null;
+                })
+                .thenCompose(ignored -> agent(client, url, rowLengths, agent, deadline, latencies, statuses));
+    }
+
+    private static int statusIndex(int status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i] == status) {
+                return i;
+            }
+        }
+        return STATUSES.length;
+    }
+
+    // Reads the number of seats in each row from the server's seating plan
+    private static int[] rowLengths(HttpClient client, String url) throws IOException, InterruptedException {
+        String json = client.send(HttpRequest.newBuilder(URI.create(url + "/seats")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher rows = Pattern.compile("\"rows\":\\[(.*)]").matcher(json);
+        if (!rows.find()) {
+            throw new IOException("Unexpected seating plan: " + json);
+        }
+        Matcher row = Pattern.compile("\"([OHX]*)\"").matcher(rows.group(1));
+        List<Integer> lengths = new ArrayList<>();
+        while (row.find()) {
+            lengths.add(row.group(1).length());
+        }
+        return lengths.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
@@ -0,0 +1,66 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures what {@link BookingMetrics} costs on the booking hot paths.
+ * - The cost of recording one operation, on one thread and on several
+ * - The bytes allocated per recording, which must be zero
+ * - Seat checks and buy/cancel churn with their metrics, for comparison with the above
+ *
+ * Usage: java -cp out:bench MetricsOverheadBenchmark [threads] [iterationMillis]
+ */
+public class MetricsOverheadBenchmark {
+    // Recordings made while counting allocated bytes
+    private static final int ALLOCATION_SAMPLES = 10_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+
+        BookingMetrics metrics = new BookingMetrics();
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        for (int n : new int[]{1, threads}) {
+            bench.run("record", n, thread -> {
+                long start = System.nanoTime();
+                metrics.record(BookingMetrics.Operation.SEARCH, start, (start & 1) == 0);
+                return start;
+            });
+        }
+        allocationPerRecord(metrics);
+        metrics.reset();
+
+        int[][] zones = new int[40][9];
+        Aircraft aircraft = new Aircraft("WB-360", zones, new int[]{250});
+        BookingService bookings = new BookingService("PM1", new SeatMap(aircraft), aircraft.getDefaultFares());
+        bookings.setMetrics(metrics);
+        Person person = new Person("Metrics", "Test", "metrics@test.com");
+        int capacity = aircraft.capacity();
+        System.out.println();
+        for (int n : new int[]{1, threads}) {
+            bench.run("isAvailable (timed)", n, thread -> {
+                int ordinal = ThreadLocalRandom.current().nextInt(capacity);
+                return bookings.isAvailable(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1) ? 1 : 0;
+            });
+            bench.run("buy/cancel churn (timed)", n, thread -> {
+                int ordinal = ThreadLocalRandom.current().nextInt(capacity);
+                int row = aircraft.rowOf(ordinal);
+                int seat = aircraft.columnOf(ordinal) + 1;
+                return bookings.cancel(row, seat) == null && bookings.buy(row, seat, person) != null ? 1 : 0;
+            });
+        }
+        System.out.println();
+        System.out.print(metrics.toText());
+    }
+
+    private static void allocationPerRecord(BookingMetrics metrics) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ALLOCATION_SAMPLES; i++) {
+            metrics.record(BookingMetrics.Operation.SEARCH, System.nanoTime(), true);
+        }
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        System.out.printf("%d recordings allocated %d bytes (%.4f bytes/record)%n",
+                ALLOCATION_SAMPLES, allocated, (double) allocated / ALLOCATION_SAMPLES);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Measures the heap footprint of passenger details, comparing tickets that each hold their own
+ * {@link Person} and Strings (as read from the console, a batch file or an HTTP request) with
+ * tickets whose passengers are kept in a {@link PassengerStore}.
+ * Names are drawn from small pools, as real first names and surnames repeat; emails are unique.
+ *
+ * Usage: java -cp out:bench PassengerFootprintBenchmark [tickets] [firstNames] [surnames]
+ */
+public class PassengerFootprintBenchmark {
+    // Seats per flight, as on the 40x9 widebody used by the other benchmarks
+    private static final int SEATS_PER_FLIGHT = 360;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int firstNames = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int surnames = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        long baseline = usedHeap();
+        Ticket[] plain = new Ticket[count];
+        for (int i = 0; i < count; i++) {
+            plain[i] = new Ticket(i % 40, i % 9 + 1, 250, passenger(i, firstNames, surnames));
+        }
+        long withPlain = usedHeap();
+        report("Person objects", withPlain - baseline, count);
+        checksum(plain);
+        plain = null;
+
+        baseline = usedHeap();
+        PassengerStore[] stores = new PassengerStore[(count + SEATS_PER_FLIGHT - 1) / SEATS_PER_FLIGHT];
+        Ticket[] stored = new Ticket[count];
+        for (int i = 0; i < count; i++) {
+            int flight = i / SEATS_PER_FLIGHT;
+            if (stores[flight] == null) {
+                stores[flight] = new PassengerStore(SEATS_PER_FLIGHT);
+            }
+            Person person = stores[flight].put(i % SEATS_PER_FLIGHT, passenger(i, firstNames, surnames));
+            stored[i] = new Ticket(i % 40, i % 9 + 1, 250, person);
+        }
+        long withStore = usedHeap();
+        report("PassengerStore", withStore - baseline, count);
+        System.out.println("Distinct names in the dictionary: " + NameDictionary.shared().size());
+        checksum(stored);
+    }
+
+    // A passenger built from freshly allocated Strings, like parsed input
+    private static Person passenger(int i, int firstNames, int surnames) {
+        return new Person("Name" + (int) ((long) i * 7919 % firstNames), "Surname" + (int) ((long) i * 104729 % surnames),
+                "passenger" + i + "@mail.com");
+    }
+
+    private static void report(String label, long bytes, int count) {
+        System.out.printf("%-16s %,d tickets: %,d bytes, %d bytes per ticket%n", label, count, bytes, bytes / count);
+    }
+
+    // Reads every passenger back, so the tickets stay reachable and the views are exercised
+    private static void checksum(Ticket[] tickets) {
+        long length = 0;
+        for (Ticket ticket : tickets) {
+            Person person = ticket.getPerson();
+            length += person.getName().length() + person.getSurname().length() + person.getEmail().length();
+        }
+        System.out.println("  characters read back: " + length);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks passenger searches on one flight with millions of sold tickets.
+ * - Exact email lookups and surname-prefix searches through the {@link PassengerIndex}
+ * - The same prefix search as a scan over every seat, as search_ticket had to do before
+ * - Buy/cancel churn, which keeps the index up to date on every change
+ * - Latency percentiles of prefix searches, to check they stay under a millisecond
+ *
+ * Surnames are made up from syllables, so prefixes match realistic numbers of passengers.
+ * Large ticket counts need a larger heap (about 1 GB per million tickets).
+ *
+ * Usage: java -cp out:bench PassengerSearchBenchmark [tickets] [threads] [iterationMillis]
+ */
+public class PassengerSearchBenchmark {
+    // Seats per row of the benchmark aircraft
+    private static final int SEATS_PER_ROW = 60;
+
+    // Share of the seats that are sold before measuring, leaving free seats for the churn
+    private static final double LOAD_FACTOR = 0.8;
+
+    // Tickets returned by each prefix search
+    private static final int LIMIT = 20;
+
+    // Syllables surnames are made from
+    private static final String[] SYLLABLES = {
+            "al", "ber", "cas", "dan", "el", "far", "gon", "har", "in", "jo", "kel", "lor", "mar", "nor",
+            "ol", "per", "quin", "ros", "san", "tor", "ul", "van", "wil", "yar", "zel"};
+
+    public static void main(String[] args) throws Exception {
+        int tickets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1_000;
+
+        int rows = (int) Math.ceil(tickets / LOAD_FACTOR / SEATS_PER_ROW);
+        Aircraft aircraft = new Aircraft("SEARCH", new int[rows][SEATS_PER_ROW], new int[]{100});
+        BookingService bookings = new BookingService("PS1", new SeatMap(aircraft), aircraft.getDefaultFares());
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        for (int sold = 0; sold < tickets; ) {
+            int ordinal = random.nextInt(aircraft.capacity());
+            if (bookings.buy(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1, passenger(sold)) != null) {
+                sold++;
+            }
+        }
+        System.out.printf("%d tickets on one flight of %d seats, sold and indexed in %d ms%n%n",
+                tickets, aircraft.capacity(), (System.nanoTime() - start) / 1_000_000);
+
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        int capacity = aircraft.capacity();
+        for (int n : new int[]{1, threads}) {
+            bench.run("findTickets by email", n, thread ->
+                    bookings.findTickets(email(ThreadLocalRandom.current().nextInt(tickets))).size());
+            bench.run("findTicketsBySurname (3 letters)", n, thread ->
+                    bookings.findTicketsBySurname(prefix(ThreadLocalRandom.current().nextInt(), 3), LIMIT).size());
+            bench.run("findTicketsBySurname (6 letters)", n, thread ->
+                    bookings.findTicketsBySurname(prefix(ThreadLocalRandom.current().nextInt(), 6), LIMIT).size());
+            bench.run("buy/cancel churn", n, thread -> {
+                ThreadLocalRandom current = ThreadLocalRandom.current();
+                int ordinal = current.nextInt(capacity);
+                int row = aircraft.rowOf(ordinal);
+                int seat = aircraft.columnOf(ordinal) + 1;
+                Ticket ticket = bookings.cancel(row, seat);
+                if (ticket == null) {
+                    ticket = bookings.buy(row, seat, passenger(current.nextInt(tickets)));
+                } else {
+                    bookings.buy(row, seat, ticket.getPerson());
+                }
+                return ticket == null ? 0 : 1;
+            });
+            System.out.println();
+        }
+        new Bench(iterationMillis, iterationMillis, 1).run("surname prefix by scanning every seat", 1, thread ->
+                scan(bookings, prefix(ThreadLocalRandom.current().nextInt(), 3)).size());
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (int i = 0; i < 200_000; i++) {
+            String prefix = prefix(i * 31, 2 + i % 5);
+            long began = System.nanoTime();
+            bookings.findTicketsBySurname(prefix, LIMIT);
+            latencies.record(System.nanoTime() - began);
+        }
+        System.out.println("\nfindTicketsBySurname latency: " + latencies);
+    }
+
+    // The prefix search as it would be done without an index
+    private static List<Ticket> scan(BookingService bookings, String prefix) {
+        List<Ticket> found = new ArrayList<>();
+        String start = prefix.toLowerCase(Locale.ROOT);
+        for (int ordinal = 0; ordinal < bookings.getSeats().capacity() && found.size() < LIMIT; ordinal++) {
+            Ticket ticket = bookings.ticketAt(ordinal);
+            if (ticket != null && ticket.getPerson().getSurname().toLowerCase(Locale.ROOT).startsWith(start)) {
+                found.add(ticket);
+            }
+        }
+        return found;
+    }
+
+    private static Person passenger(int i) {
+        return new Person("Name" + (i % 500), surname(i * 7919), email(i));
+    }
+
+    private static String email(int i) {
+        return "passenger" + i + "@mail.com";
+    }
+
+    // A made-up surname of two or three syllables
+    private static String surname(int seed) {
+        int s = seed & Integer.MAX_VALUE;
+        String name = SYLLABLES[s % SYLLABLES.length] + SYLLABLES[s / 25 % SYLLABLES.length];
+        if (s / 625 % 2 == 0) {
+            name += SYLLABLES[s / 1250 % SYLLABLES.length];
+        }
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String prefix(int seed, int length) {
+        String surname = surname(seed);
+        return surname.substring(0, Math.min(length, surname.length()));
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Compares seat pricing through a {@link FareTable} with the if/else chain that
+ * PlaneManagement.calculatePrice used before fares were compiled.
+ * - Prices every seat of the aircraft in a loop, for a number of rounds
+ * - Reports nanoseconds per lookup for both methods
+ *
+ * Usage: java -cp out:bench PricingBenchmark [layout file] [rounds]
+ */
+public class PricingBenchmark {
+    // Zone prices of the old hard-coded chain
+    private static final int yellow_price = 200;
+    private static final int blue_price = 150;
+    private static final int green_price = 180;
+
+    // Keeps the results alive so the JIT cannot drop the loops
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        Path layout = Path.of(args.length > 0 ? args[0] : "layouts/PM-54.layout");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        Aircraft aircraft = Aircraft.load(layout);
+        FareTable fares = aircraft.getDefaultFares();
+        int[] rows = new int[aircraft.capacity()];
+        int[] columns = new int[aircraft.capacity()];
+        for (int ordinal = 0; ordinal < rows.length; ordinal++) {
+            rows[ordinal] = aircraft.rowOf(ordinal);
+            columns[ordinal] = aircraft.columnOf(ordinal);
+        }
+
+        // Warm up both paths before timing them
+        for (int i = 0; i < 5; i++) {
+            chain(rows, columns, rounds / 10);
+            table(fares, rows.length, rounds / 10);
+        }
+
+        long lookups = (long) rounds * rows.length;
+        long start = System.nanoTime();
+        chain(rows, columns, rounds);
+        double chainNanos = (double) (System.nanoTime() - start) / lookups;
+
+        start = System.nanoTime();
+        table(fares, rows.length, rounds);
+        double tableNanos = (double) (System.nanoTime() - start) / lookups;
+
+        System.out.printf("%s, %d seats, %d lookups per method%n", aircraft.getType(), rows.length, lookups);
+        System.out.printf("if/else chain: %.2f ns/lookup%n", chainNanos);
+        System.out.printf("FareTable:     %.2f ns/lookup%n", tableNanos);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static void chain(int[] rows, int[] columns, int rounds) {
+        long sum = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < rows.length; i++) {
+                sum += calculatePrice(rows[i], columns[i]);
+            }
+        }
+        sink += sum;
+    }
+
+    private static void table(FareTable fares, int seats, int rounds) {
+        long sum = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int ordinal = 0; ordinal < seats; ordinal++) {
+                sum += fares.price(ordinal);
+            }
+        }
+        sink += sum;
+    }
+
+    // Copy of the pricing method the FareTable replaced
+    private static int calculatePrice(int row, int column) {
+        char seatChar = (char) ('A' + row);
+        if (column >= 0 && column < 5) { // Yellow seats (columns 1-5)
+            return yellow_price;
+        } else if (column >= 5 && column < 9) { // Blue seats (columns 6-9)
+            return blue_price;
+        } else if ((column >= 9 && column < 14) && (seatChar == 'A' || seatChar == 'B')) { // Green seats for rows A-B
+            return green_price;
+        } else if ((column >= 9 && column < 13) && (seatChar == 'C' || seatChar == 'D')) { // Green seats for rows C-D
+            return green_price;
+        }
+        return 0; // Invalid seat position
+    }
+}
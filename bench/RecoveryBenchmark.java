@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Measures startup recovery time with {@link BookingRecovery}.
+ * - Journals a number of random bookings and cancellations across many flights
+ * - Recovers them by replaying the full journal
+ * - Checkpoints, journals a short tail, and recovers again from snapshot plus tail
+ *
+ * Usage: java -cp out:bench RecoveryBenchmark [operations] [flights]
+ */
+public class RecoveryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int flightCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int tail = Math.max(1, operations / 100);
+
+        Aircraft aircraft = widebody();
+        Path directory = Files.createTempDirectory("recovery-benchmark");
+        try {
+            FlightInventory live = inventory(flightCount, aircraft);
+            long start = System.nanoTime();
+            long lastSequence = journal(directory, live, 0, operations, new SplittableRandom(42));
+            System.out.printf("Journaled %d operations in %d ms (%d MB on disk)%n",
+                    operations, millis(start), diskUsage(directory) >> 20);
+
+            FlightInventory full = inventory(flightCount, aircraft);
+            start = System.nanoTime();
+            long recovered = BookingRecovery.recover(directory, flight -> bookingsOf(full, flight));
+            System.out.printf("Full journal replay: %d records in %d ms, %d tickets%n",
+                    recovered, millis(start), ticketCount(full));
+            check(live, full);
+
+            try (TicketJournal journal = open(directory, recovered)) {
+                start = System.nanoTime();
+                BookingRecovery.checkpoint(journal);
+                System.out.printf("Checkpoint: %d ms%n", millis(start));
+            }
+            lastSequence = journal(directory, full, recovered, tail, new SplittableRandom(7));
+
+            FlightInventory fromSnapshot = inventory(flightCount, aircraft);
+            start = System.nanoTime();
+            BookingRecovery.recover(directory, flight -> bookingsOf(fromSnapshot, flight));
+            System.out.printf("Snapshot + %d record tail: %d ms, %d tickets (last sequence %d)%n",
+                    tail, millis(start), ticketCount(fromSnapshot), lastSequence);
+            check(full, fromSnapshot);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Books and cancels random seats with a journal attached, returns the last sequence written
+    private static long journal(Path directory, FlightInventory inventory, long lastSequence, int operations,
+                                SplittableRandom random) throws IOException {
+        Flight[] flights = inventory.flights().toArray(new Flight[0]);
+        Person person = new Person("Recovery", "Benchmark", "recovery@benchmark.com");
+        TicketJournal journal = open(directory, lastSequence);
+        try {
+            for (Flight flight : flights) {
+                flight.getBookings().setJournal(journal);
+            }
+            int done = 0;
+            while (done < operations) {
+                BookingService bookings = flights[random.nextInt(flights.length)].getBookings();
+                SeatMap seats = bookings.getSeats();
+                int ordinal = random.nextInt(seats.capacity());
+                int row = seats.rowOf(ordinal);
+                int seat = seats.columnOf(ordinal) + 1;
+                boolean changed = seats.isFree(row, seat - 1)
+                        ? bookings.buy(row, seat, person) != null
+                        : bookings.cancel(row, seat) != null;
+                if (changed) {
+                    done++;
+                }
+            }
+        } finally {
+            for (Flight flight : flights) {
+                flight.getBookings().setJournal(null);
+            }
+            journal.close();
+        }
+        return journal.getLastSequence();
+    }
+
+    private static TicketJournal open(Path directory, long lastSequence) throws IOException {
+        return new TicketJournal(directory, 4096, 10, TicketJournal.Durability.BATCH, lastSequence);
+    }
+
+    private static void check(FlightInventory expected, FlightInventory actual) {
+        for (Flight flight : expected.flights()) {
+            Ticket[] want = flight.getBookings().tickets();
+            Ticket[] got = actual.getFlight(flight.getFlightNumber()).getBookings().tickets();
+            if (want.length != got.length) {
+                throw new IllegalStateException("Flight " + flight.getFlightNumber() + ": expected "
+                        + want.length + " tickets, recovered " + got.length);
+            }
+        }
+    }
+
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+
+    private static FlightInventory inventory(int flights, Aircraft aircraft) {
+        FlightInventory inventory = new FlightInventory();
+        for (int i = 0; i < flights; i++) {
+            inventory.addFlight("PM" + i, aircraft);
+        }
+        return inventory;
+    }
+
+    private static BookingService bookingsOf(FlightInventory inventory, String flightNumber) {
+        Flight flight = inventory.getFlight(flightNumber);
+        return flight == null ? null : flight.getBookings();
+    }
+
+    private static long ticketCount(FlightInventory inventory) {
+        long count = 0;
+        for (Flight flight : inventory.flights()) {
+            count += flight.getBookings().ticketCount();
+        }
+        return count;
+    }
+
+    private static long diskUsage(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private static long millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares {@link BookingRenderer} with printing line by line through an autoflushing
+ * PrintStream, the way the console menu used to print the seating plan and the manifest.
+ * - Renders the manifest of many flights' tickets, and the seating plan of every flight
+ * - Output goes to a stream that discards it, so only the rendering is measured
+ * - Reports time and bytes allocated per ticket and per seating plan
+ *
+ * Usage: java -cp out:bench RenderBenchmark [tickets]
+ */
+public class RenderBenchmark {
+
+    public static void main(String[] args) {
+        int tickets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Aircraft aircraft = widebody();
+        int perFlight = aircraft.capacity();
+        int flightCount = (tickets + perFlight - 1) / perFlight;
+        BookingService[] flights = new BookingService[flightCount];
+        Person person = new Person("Render", "Benchmark", "render@benchmark.com");
+        for (int f = 0, sold = 0; f < flightCount; f++) {
+            flights[f] = new Flight("PM" + f, aircraft).getBookings();
+            for (int ordinal = 0; ordinal < perFlight && sold < tickets; ordinal++, sold++) {
+                flights[f].buy(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1, person);
+            }
+        }
+
+        PrintStream console = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+        BookingRenderer renderer = new BookingRenderer(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            measure(report, "manifest, println per line", tickets, () -> {
+                for (BookingService bookings : flights) {
+                    printManifest(console, bookings);
+                }
+            });
+            measure(report, "manifest, BookingRenderer", tickets, () -> {
+                for (BookingService bookings : flights) {
+                    renderer.manifest(bookings);
+                }
+            });
+            measure(report, "seating plan, print per seat", flightCount, () -> {
+                for (BookingService bookings : flights) {
+                    printSeatingPlan(console, bookings.getSeats());
+                }
+            });
+            measure(report, "seating plan, BookingRenderer", flightCount, () -> {
+                for (BookingService bookings : flights) {
+                    renderer.seatingPlan(bookings.getSeats());
+                }
+            });
+        }
+    }
+
+    private static void measure(boolean report, String name, long items, Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        work.run();
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        if (report) {
+            System.out.printf("%-32s %8d ms %10.1f ns/item %10.1f bytes allocated/item%n",
+                    name, nanos / 1_000_000, (double) nanos / items, (double) allocated / items);
+        }
+    }
+
+    // The manifest as print_tickets_info used to print it
+    private static void printManifest(PrintStream out, BookingService bookings) {
+        for (Ticket ticket : bookings.tickets()) {
+            out.println("Tickets Information: \n");
+            out.println("Seat Number: " + (char) ('A' + ticket.getRow()) + ticket.getSeat());
+            out.println("Passenger's Full Name: " + ticket.getPerson().getName() + " " + ticket.getPerson().getSurname());
+            out.println("Email: " + ticket.getPerson().getEmail());
+            out.println("Price: £" + ticket.getPrice());
+            out.println();
+        }
+    }
+
+    // The seating plan as show_seating_plan used to print it
+    private static void printSeatingPlan(PrintStream out, SeatMap seats) {
+        for (int i = 0; i < seats.rowCount(); i++) {
+            for (int j = 0; j < seats.seatsInRow(i); j++) {
+                out.print(seats.isFree(i, j) ? "O " : "X ");
+            }
+            out.println();
+        }
+    }
+
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
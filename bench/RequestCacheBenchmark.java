@@ -0,0 +1,173 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks {@link RequestCache} and the request-ID overloads of {@link BookingService}.
+ * - Hits (a request sent again) and misses (new requests, evicting the oldest once full)
+ * - Buy/cancel churn with and without request IDs
+ * - Heap used per remembered request, and that the cache never grows past its size
+ * - Retry storms: every request is sent by several agents at once and must be run only once,
+ *   with every agent getting the same ticket; a request ID reused for another seat must be
+ *   rejected; and a request is run again once it has expired
+ *
+ * Usage: java -cp out:bench RequestCacheBenchmark [threads] [iterationMillis] [cacheSize]
+ */
+public class RequestCacheBenchmark {
+    // Request IDs used by the miss benchmark; far more than the cache holds, so none is a hit
+    private static final int IDS = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int cacheSize = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        Aircraft aircraft = widebody();
+        Person person = new Person("Request", "Cache", "request@cache.com");
+        Ticket ticket = new Ticket(0, 1, 100, person);
+        long fingerprint = RequestCache.fingerprint(ticket.getRow(), ticket.getSeat());
+        boolean correct = true;
+
+        String[] ids = new String[IDS];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "request-" + i;
+        }
+
+        RequestCache<Ticket> hits = new RequestCache<>(cacheSize, 3_600_000);
+        for (int i = 0; i < cacheSize; i++) {
+            hits.execute(ids[i], "buy", fingerprint, () -> ticket);
+        }
+        bench.run("hit", threads, thread -> {
+            String id = ids[ThreadLocalRandom.current().nextInt(cacheSize)];
+            return hits.execute(id, "buy", fingerprint, () -> null).getSeat();
+        });
+
+        RequestCache<Ticket> misses = new RequestCache<>(cacheSize, 3_600_000);
+        AtomicInteger next = new AtomicInteger();
+        bench.run("miss, evicting the oldest", threads, thread -> {
+            String id = ids[next.getAndIncrement() & (IDS - 1)];
+            return misses.execute(id, "buy", fingerprint, () -> ticket).getSeat();
+        });
+        System.out.printf("  %d requests run, %d remembered (at most %d)%n", misses.misses(), misses.size(), cacheSize);
+        correct &= misses.size() <= cacheSize + threads;
+
+        BookingService plain = new BookingService("PM1", new SeatMap(aircraft), aircraft.getDefaultFares());
+        bench.run("buy/cancel churn", threads, thread -> {
+            int ordinal = ThreadLocalRandom.current().nextInt(aircraft.capacity());
+            int row = aircraft.rowOf(ordinal);
+            int seat = aircraft.columnOf(ordinal) + 1;
+            return plain.buy(row, seat, person) != null ? 1 : plain.cancel(row, seat) != null ? 1 : 0;
+        });
+        BookingService withIds = new BookingService("PM2", new SeatMap(aircraft), aircraft.getDefaultFares());
+        AtomicInteger request = new AtomicInteger();
+        bench.run("buy/cancel churn, request IDs", threads, thread -> {
+            int ordinal = ThreadLocalRandom.current().nextInt(aircraft.capacity());
+            int row = aircraft.rowOf(ordinal);
+            int seat = aircraft.columnOf(ordinal) + 1;
+            if (withIds.buy(ids[request.getAndIncrement() & (IDS - 1)], row, seat, person) != null) {
+                return 1;
+            }
+            return withIds.cancel(ids[request.getAndIncrement() & (IDS - 1)], row, seat) != null ? 1 : 0;
+        });
+
+        correct &= footprint(ids, ticket, fingerprint, cacheSize);
+        correct &= retryStorm(aircraft, Math.max(threads, 4));
+        correct &= expiry(ticket, fingerprint);
+
+        System.out.println(correct ? "OK: every request ran once and the cache stayed bounded" : "FAILED");
+        if (!correct) {
+            System.exit(1);
+        }
+    }
+
+    // Heap used per remembered request once the cache is full
+    private static boolean footprint(String[] ids, Ticket ticket, long fingerprint, int cacheSize) {
+        long before = usedHeap();
+        RequestCache<Ticket> cache = new RequestCache<>(cacheSize, 3_600_000);
+        for (int i = 0; i < cacheSize * 10; i++) {
+            cache.execute(ids[i % ids.length], "buy", fingerprint, () -> ticket);
+        }
+        long used = usedHeap() - before;
+        System.out.printf("footprint: %d requests remembered after %d, %.0f bytes each (IDs not counted)%n",
+                cache.size(), cacheSize * 10, (double) used / cache.size());
+        return cache.size() == cacheSize;
+    }
+
+    // Several agents send every request at the same moment; each must be run once, and a
+    // request ID sent again for another seat must be rejected
+    private static boolean retryStorm(Aircraft aircraft, int agents) throws InterruptedException {
+        BookingService bookings = new BookingService("PM3", new SeatMap(aircraft), aircraft.getDefaultFares());
+        int requests = aircraft.capacity();
+        Ticket[][] received = new Ticket[agents][requests];
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[agents];
+        for (int a = 0; a < agents; a++) {
+            int agent = a;
+            threads[a] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int r = 0; r < requests; r++) {
+                    Person person = new Person("Agent", "Retry" + r, "retry" + r + "@cache.com");
+                    received[agent][r] = bookings.buy("storm-" + r, aircraft.rowOf(r), aircraft.columnOf(r) + 1, person);
+                }
+            });
+            threads[a].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int different = 0;
+        for (int r = 0; r < requests; r++) {
+            for (int a = 0; a < agents; a++) {
+                if (received[a][r] == null || received[a][r] != received[0][r]) {
+                    different++;
+                }
+            }
+        }
+        long run = bookings.getRequestCache().misses();
+        boolean rejected;
+        try {
+            bookings.buy("storm-0", aircraft.rowOf(1), aircraft.columnOf(1) + 1, new Person("Agent", "Retry0", "retry0@cache.com"));
+            rejected = false;
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        System.out.printf("retry storm: %d requests sent by %d agents each, %d run, %d tickets sold, %d different answers,"
+                + " reused ID for another seat %s%n", requests, agents, run, bookings.ticketCount(), different,
+                rejected ? "rejected" : "NOT rejected");
+        return run == requests && bookings.ticketCount() == requests && different == 0 && rejected;
+    }
+
+    // A request sent again after its time to live is run again
+    private static boolean expiry(Ticket ticket, long fingerprint) throws InterruptedException {
+        RequestCache<Ticket> cache = new RequestCache<>(100, 50);
+        AtomicInteger runs = new AtomicInteger();
+        cache.execute("expiring", "buy", fingerprint, () -> { runs.incrementAndGet(); return ticket; });
+        cache.execute("expiring", "buy", fingerprint, () -> { runs.incrementAndGet(); return ticket; });
+        Thread.sleep(100);
+        cache.execute("expiring", "buy", fingerprint, () -> { runs.incrementAndGet(); return ticket; });
+        System.out.println("expiry: request run " + runs.get() + " times (sent 3 times, expired once)");
+        return runs.get() == 2;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // 40 rows of 9 seats: 4 business rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
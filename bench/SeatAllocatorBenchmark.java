@@ -0,0 +1,90 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks {@link SeatAllocator} against a seat-by-seat search for the same block, and
+ * checks group allocation under concurrency.
+ * - Searches for blocks of 2-6 adjacent seats on a half-full 450-seat plane, word-parallel
+ *   (findAdjacent) and by checking each seat with isFree
+ * - Runs agents that book and give back random blocks at the same time, then checks that the
+ *   free seat counters agree with the seat map
+ *
+ * Usage: java -cp out:bench SeatAllocatorBenchmark [threads] [iterationMillis]
+ */
+public class SeatAllocatorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+
+        Aircraft aircraft = widebody();
+        SeatMap seats = new SeatMap(aircraft);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int ordinal = 0; ordinal < aircraft.capacity(); ordinal++) {
+            if (random.nextBoolean()) {
+                seats.book(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal));
+            }
+        }
+        SeatAllocator allocator = new SeatAllocator(seats);
+
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        for (int count = 2; count <= 6; count += 2) {
+            int n = count;
+            if (allocator.findAdjacent(n, SeatAllocator.ANY_ZONE) != naiveFind(seats, n, SeatAllocator.ANY_ZONE)) {
+                throw new IllegalStateException("Searches disagree for a block of " + n);
+            }
+            bench.run("findAdjacent(" + n + ")", 1, thread -> allocator.findAdjacent(n, SeatAllocator.ANY_ZONE));
+            bench.run("seat-by-seat search(" + n + ")", 1, thread -> naiveFind(seats, n, SeatAllocator.ANY_ZONE));
+            bench.run("findAdjacent(" + n + ", economy)", 1, thread -> allocator.findAdjacent(n, 2));
+            bench.run("seat-by-seat search(" + n + ", economy)", 1, thread -> naiveFind(seats, n, 2));
+        }
+        System.out.println();
+
+        bench.run("allocate + release block", threads, thread -> {
+            int n = 1 + ThreadLocalRandom.current().nextInt(6);
+            int ordinal = allocator.allocateAdjacent(n, SeatAllocator.ANY_ZONE);
+            if (ordinal >= 0) {
+                allocator.releaseBlock(ordinal, n);
+            }
+            return ordinal;
+        });
+
+        int free = 0;
+        for (int ordinal = 0; ordinal < aircraft.capacity(); ordinal++) {
+            if (seats.isFree(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal))) {
+                free++;
+            }
+        }
+        System.out.println(free == seats.freeSeats() ? "OK: free seat counters agree with the seat map"
+                : "FAILED: " + free + " free seats, counter says " + seats.freeSeats());
+        if (free != seats.freeSeats()) {
+            System.exit(1);
+        }
+    }
+
+    // Checks every seat of every row in turn, the way a search without bitmaps would
+    private static int naiveFind(SeatMap seats, int count, int zone) {
+        for (int row = 0; row < seats.rowCount(); row++) {
+            int run = 0;
+            for (int column = 0; column < seats.seatsInRow(row); column++) {
+                if (seats.isFree(row, column) && (zone == SeatAllocator.ANY_ZONE || seats.zoneOf(row, column) == zone)) {
+                    if (++run == count) {
+                        return seats.ordinal(row, column - count + 1);
+                    }
+                } else {
+                    run = 0;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // 50 rows of 9 seats: 3 business rows, 7 premium rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[50][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 3 ? 0 : row < 10 ? 1 : 2);
+        }
+        return new Aircraft("WB-450", new String[]{"business", "premium", "economy"}, zones, new int[]{950, 320, 210});
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Measures seat holds and their expiry on a {@link TimingWheel} with many outstanding holds.
+ * - Holds every seat of many flights, with expiry times spread over a few seconds
+ * - Confirms some holds and releases some others before they run out
+ * - Waits for the rest to expire, and reports how late the last one was and whether every
+ *   seat ended up free or sold as expected
+ *
+ * Usage: java -cp out:bench SeatHoldBenchmark [flights] [maxTtlMillis]
+ */
+public class SeatHoldBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flightCount = args.length > 0 ? Integer.parseInt(args[0]) : 3_000;
+        long maxTtl = args.length > 1 ? Long.parseLong(args[1]) : 3_000;
+
+        Aircraft aircraft = widebody();
+        int capacity = aircraft.capacity();
+        BookingService[] flights = new BookingService[flightCount];
+        try (TimingWheel wheel = new TimingWheel(10, 512)) {
+            for (int f = 0; f < flightCount; f++) {
+                flights[f] = new Flight("PM" + f, aircraft).getBookings();
+                flights[f].setHoldTimer(wheel);
+            }
+
+            long holds = (long) flightCount * capacity;
+            SeatHold[][] held = new SeatHold[flightCount][capacity];
+            long start = System.nanoTime();
+            for (int f = 0; f < flightCount; f++) {
+                for (int ordinal = 0; ordinal < capacity; ordinal++) {
+                    long ttl = maxTtl / 3 + (ordinal * 7919L + f) % (maxTtl - maxTtl / 3);
+                    held[f][ordinal] = flights[f].hold(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1, ttl);
+                }
+            }
+            long holdNanos = System.nanoTime() - start;
+            System.out.printf("Held %d seats in %d ms (%.0f ns/hold)%n", holds, holdNanos / 1_000_000, (double) holdNanos / holds);
+            long lastDeadline = System.currentTimeMillis() + maxTtl;
+
+            // Confirm every 10th hold and release every 10th+1, the rest expire
+            Person person = new Person("Hold", "Benchmark", "hold@benchmark.com");
+            long confirmed = 0;
+            for (int f = 0; f < flightCount; f++) {
+                for (int ordinal = 0; ordinal < capacity; ordinal += 10) {
+                    if (flights[f].confirm(held[f][ordinal], person) != null) {
+                        confirmed++;
+                    }
+                    if (ordinal + 1 < capacity) {
+                        flights[f].release(held[f][ordinal + 1]);
+                    }
+                }
+            }
+
+            long outstanding;
+            do {
+                Thread.sleep(5);
+                outstanding = 0;
+                for (BookingService bookings : flights) {
+                    outstanding += bookings.holdCount();
+                }
+            } while (outstanding > 0);
+            long lateness = System.currentTimeMillis() - lastDeadline;
+            System.out.printf("All holds ended %d ms after the last deadline (wheel tick 10 ms)%n", lateness);
+
+            long free = 0;
+            long sold = 0;
+            for (BookingService bookings : flights) {
+                free += bookings.getSeats().freeSeats();
+                sold += bookings.ticketCount();
+            }
+            boolean ok = sold == confirmed && free == holds - confirmed;
+            System.out.println(ok ? "OK: " + confirmed + " held seats sold, the rest free again"
+                    : "FAILED: " + sold + " sold (expected " + confirmed + "), " + free + " free");
+            if (!ok) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how a {@link ShardRouter} scales with the number of shards, all on this machine.
+ * For 1, 2, 4 and 8 shards (or the counts given), the same flights are spread over the shards
+ * and client threads buy and cancel random seats through the router, waiting for each answer.
+ * Then the scatter-gather requests (sales totals, first free seat anywhere) are timed, and the
+ * gathered totals are checked against the successful buys and cancels the clients counted.
+ *
+ * The shards run in one process, where they still share the default metrics, the shared name
+ * dictionary and the default timing wheel, so the scaling measured is a lower bound on what
+ * shards on separate machines would reach.
+ *
+ * Usage: java -cp out:bench ShardScalingBenchmark [flights] [clients] [iterationMillis] [shardCounts...]
+ */
+public class ShardScalingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flightCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long iterationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1_000;
+        int[] shardCounts = {1, 2, 4, 8};
+        if (args.length > 3) {
+            shardCounts = new int[args.length - 3];
+            for (int i = 3; i < args.length; i++) {
+                shardCounts[i - 3] = Integer.parseInt(args[i]);
+            }
+        }
+
+        Aircraft aircraft = widebody();
+        int capacity = aircraft.capacity();
+        String[] flightNumbers = new String[flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            flightNumbers[i] = "PM" + i;
+        }
+        Person person = new Person("Shard", "Test", "shard@test.com");
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        System.out.printf("%d flights of %d seats, %d clients, %d cores%n%n",
+                flightCount, capacity, clients, Runtime.getRuntime().availableProcessors());
+
+        boolean consistent = true;
+        for (int shards : shardCounts) {
+            try (ShardRouter router = new ShardRouter(shards)) {
+                CompletableFuture<?>[] added = new CompletableFuture<?>[flightCount];
+                for (int i = 0; i < flightCount; i++) {
+                    added[i] = router.addFlight(flightNumbers[i], aircraft);
+                }
+                for (CompletableFuture<?> future : added) {
+                    future.join();
+                }
+
+                LongAdder balance = new LongAdder();
+                bench.run("buy/cancel, " + shards + " shards", clients, thread -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    String flight = flightNumbers[random.nextInt(flightCount)];
+                    int ordinal = random.nextInt(capacity);
+                    int row = aircraft.rowOf(ordinal);
+                    int seat = aircraft.columnOf(ordinal) + 1;
+                    if (router.cancel(flight, row, seat).join() != null) {
+                        balance.decrement();
+                        return 0;
+                    }
+                    if (router.buy(flight, row, seat, person).join() != null) {
+                        balance.increment();
+                        return 1;
+                    }
+                    return 0;
+                });
+                bench.run("salesTotals (scatter-gather), " + shards + " shards", 1, thread ->
+                        router.salesTotals().join().getTicketsSold());
+                bench.run("firstAvailable (scatter-gather), " + shards + " shards", 1, thread ->
+                        router.firstAvailable().join().getSeat());
+
+                ShardRouter.Totals totals = router.salesTotals().join();
+                System.out.printf("  %d tickets sold, load factor %.3f, revenue £%d%n%n",
+                        totals.getTicketsSold(), totals.getLoadFactor(), totals.getRevenue());
+                if (totals.getTicketsSold() != balance.sum() || totals.getFlights() != flightCount) {
+                    System.out.println("  Totals disagree with the clients: " + balance.sum() + " tickets expected");
+                    consistent = false;
+                }
+            }
+        }
+        System.out.println(consistent ? "OK: gathered totals match every shard count" : "FAILED: totals disagree");
+        if (!consistent) {
+            System.exit(1);
+        }
+    }
+
+    // 40 rows of 9 seats: 4 business rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}
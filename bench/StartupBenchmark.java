@@ -0,0 +1,169 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.spi.ToolProvider;
+import java.util.stream.Stream;
+
+/**
+ * Measures time to first booking: from starting a new JVM running PlaneManagement in batch mode
+ * until it prints the result of its first purchase.
+ * - Packages the compiled application into a jar and records an AppCDS archive from a training
+ *   run, the way appcds.sh does
+ * - Starts the application again and again, each time in an empty directory holding only the
+ *   layouts, with class-data sharing off, with the JDK's default CDS archive, with the layout
+ *   cache, and with the application's own archive
+ * - Checks the median time with the AppCDS archive and the layout cache against a budget
+ *
+ * Run it from the project directory, so the layouts can be found.
+ *
+ * Usage: java -cp out:out/bench StartupBenchmark [runs] [budgetMillis] [layoutsDirectory]
+ */
+public class StartupBenchmark {
+    // Commands of the measured runs and of the training run
+    private static final String COMMANDS = "buy,A,1,Startup,Benchmark,startup@benchmark.com\nsearch,A,1\ncancel,A,1\n";
+
+    // Layout read by PlaneManagement
+    private static final String LAYOUT = "PM-54.layout";
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+        long budgetMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        Path layouts = Path.of(args.length > 2 ? args[2] : "layouts");
+        if (!Files.isRegularFile(layouts.resolve(LAYOUT))) {
+            System.out.println("No " + LAYOUT + " in " + layouts.toAbsolutePath() + "; run from the project directory");
+            System.exit(2);
+        }
+
+        Path directory = Files.createTempDirectory("startup-benchmark");
+        try {
+            Path jar = directory.resolve("planemanagement.jar").toAbsolutePath();
+            Path archive = directory.resolve("planemanagement.jsa").toAbsolutePath();
+            Path work = directory.resolve("work");
+            packageJar(jar);
+            prepare(work, layouts, false);
+            Process training = start(work, List.of("-XX:ArchiveClassesAtExit=" + archive, "-cp", jar.toString()));
+            training.getInputStream().transferTo(OutputStream.nullOutputStream());
+            int exit = training.waitFor();
+            if (exit != 0 || !Files.exists(archive)) {
+                System.out.println("The training run did not write an AppCDS archive (exit code " + exit + ")");
+                System.exit(1);
+            }
+            System.out.printf("%d runs each; jar %d KB, AppCDS archive %d KB%n", runs, Files.size(jar) >> 10, Files.size(archive) >> 10);
+
+            String cp = jar.toString();
+            measure("CDS off, text layout", work, layouts, false, runs, List.of("-Xshare:off", "-cp", cp));
+            measure("default CDS, text layout", work, layouts, false, runs, List.of("-cp", cp));
+            measure("default CDS, layout cache", work, layouts, true, runs, List.of("-cp", cp));
+            long[] appCds = measure("AppCDS, layout cache", work, layouts, true, runs,
+                    List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:on", "-cp", cp));
+
+            long median = appCds[appCds.length / 2];
+            System.out.println(median <= budgetMillis
+                    ? "OK: ready to book in " + median + " ms with AppCDS (budget " + budgetMillis + " ms)"
+                    : "FAILED: ready to book in " + median + " ms with AppCDS, over the budget of " + budgetMillis + " ms");
+            if (median > budgetMillis) {
+                System.exit(1);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    // Starts the application a number of times and reports the median and fastest time to the
+    // first booking; every run starts without a journal, and with or without a layout cache
+    private static long[] measure(String name, Path work, Path layouts, boolean cached, int runs, List<String> options)
+            throws IOException, InterruptedException {
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            prepare(work, layouts, cached);
+            millis[run] = firstBooking(work, options);
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-28s median %4d ms   fastest %4d ms%n", name, millis[runs / 2], millis[0]);
+        return millis;
+    }
+
+    // Milliseconds from starting the JVM until it prints its first purchase
+    private static long firstBooking(Path work, List<String> options) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = start(work, options);
+        long millis = -1;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (millis < 0 && line.contains(",buy,")) {
+                    millis = (System.nanoTime() - start) / 1_000_000;
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (millis < 0 || exit != 0) {
+            throw new IllegalStateException("The application did not book a seat (exit code " + exit + ")");
+        }
+        return millis;
+    }
+
+    private static Process start(Path work, List<String> options) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        command.addAll(List.of("PlaneManagement", "--batch", "commands.csv"));
+        return new ProcessBuilder(command).directory(work.toFile()).redirectErrorStream(true).start();
+    }
+
+    // Empties the working directory, then copies in the layouts (keeping their modification
+    // time, which the layout cache is checked against), compiles the layout cache if asked to,
+    // and writes the commands
+    private static void prepare(Path work, Path layouts, boolean cached) throws IOException {
+        delete(work);
+        Files.createDirectories(work.resolve("layouts"));
+        try (Stream<Path> files = Files.list(layouts)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".layout"))::iterator) {
+                Files.copy(file, work.resolve("layouts").resolve(file.getFileName().toString()), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+        if (cached) {
+            LayoutCache.load(work.resolve("layouts").resolve(LAYOUT));
+        }
+        Files.writeString(work.resolve("commands.csv"), COMMANDS);
+    }
+
+    // Packages the classes PlaneManagement was loaded from into an executable jar
+    private static void packageJar(Path jar) throws IOException, URISyntaxException {
+        Path classes = Path.of(PlaneManagement.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        ToolProvider tool = ToolProvider.findFirst("jar")
+                .orElseThrow(() -> new IllegalStateException("The jar tool is not available in this JDK"));
+        List<String> arguments = new ArrayList<>(List.of("--create", "--file", jar.toString(), "--main-class", "PlaneManagement"));
+        try (Stream<Path> files = Files.list(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                arguments.addAll(List.of("-C", classes.toString(), file.getFileName().toString()));
+            }
+        }
+        PrintWriter err = new PrintWriter(System.err, true);
+        if (tool.run(new PrintWriter(System.out, true), err, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Could not package " + classes + " into " + jar);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
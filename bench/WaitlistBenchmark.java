@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks and checks the {@link Waitlist} handoff of {@link BookingService}.
+ * - Seats freed on a sold-out flight go to the waitlist in first come, first served order, and
+ *   in priority order when priorities differ
+ * - Cancel/rebook churn on a sold-out flight: every cancelled passenger joins the waitlist
+ *   again, so every cancellation is a handoff
+ * - Reallocation latency (from the seat being vacated to the waitlisted passenger's ticket)
+ * - While the churn runs, another thread keeps trying to buy seats on the open market and
+ *   checking the seat map: with passengers waiting, no seat may ever be free or sold to it
+ *
+ * Usage: java -cp out:bench WaitlistBenchmark [threads] [iterationMillis] [waiting]
+ */
+public class WaitlistBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int waitingPerZone = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        Aircraft aircraft = widebody();
+
+        boolean correct = checkOrder(aircraft, false) & checkOrder(aircraft, true);
+
+        BookingService bookings = soldOut(aircraft);
+        BookingMetrics metrics = new BookingMetrics();
+        bookings.setMetrics(metrics);
+        for (int zone = 0; zone < aircraft.zoneCount(); zone++) {
+            for (int i = 0; i < waitingPerZone; i++) {
+                bookings.joinWaitlist(zone, new Person("Waiting", "Passenger" + i, "waiting" + i + "@waitlist.com"), 0);
+            }
+        }
+
+        Bench bench = new Bench(iterationMillis, iterationMillis, 3);
+        Bench.Operation churn = thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int ordinal = random.nextInt(aircraft.capacity());
+            Ticket cancelled = bookings.cancel(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1);
+            if (cancelled == null) {
+                return 0;
+            }
+            // Rebook: the cancelled passenger waits for another seat in the same zone
+            bookings.joinWaitlist(aircraft.zoneOf(ordinal), cancelled.getPerson(), 0);
+            return 1;
+        };
+        bench.run("cancel with waitlist handoff", threads, churn);
+        LatencyHistogram reallocations = metrics.latencies(BookingMetrics.Operation.REALLOCATE);
+        System.out.println("  reallocation latency: " + reallocations);
+        System.out.println("  cancel latency:       " + metrics.latencies(BookingMetrics.Operation.CANCEL));
+
+        // The same churn again, against an open-market buyer
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong marketSales = new AtomicLong();
+        AtomicLong freeSeen = new AtomicLong();
+        Thread market = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Person person = new Person("Open", "Market", "open@market.com");
+            while (running.get()) {
+                int ordinal = random.nextInt(aircraft.capacity());
+                if (bookings.buy(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1, person) != null) {
+                    marketSales.incrementAndGet();
+                }
+                if (bookings.getSeats().freeSeats() != 0) {
+                    freeSeen.incrementAndGet();
+                }
+            }
+        }, "open-market");
+        market.start();
+        bench.run("handoff with open-market buyer", threads, churn);
+        running.set(false);
+        market.join();
+
+        int waiting = 0;
+        for (int zone = 0; zone < aircraft.zoneCount(); zone++) {
+            waiting += bookings.getWaitlist().size(zone);
+        }
+        System.out.printf("  %d seats sold, %d passengers waiting, %d open-market sales, %d free seats seen%n",
+                bookings.ticketCount(), waiting, marketSales.get(), freeSeen.get());
+        if (bookings.ticketCount() != aircraft.capacity() || waiting != waitingPerZone * aircraft.zoneCount()
+                || marketSales.get() != 0 || freeSeen.get() != 0) {
+            System.out.println("  a freed seat reached the open market or a passenger was lost");
+            correct = false;
+        }
+
+        BookingService plain = soldOut(aircraft);
+        bench.run("cancel and rebuy, no waitlist", threads, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int ordinal = random.nextInt(aircraft.capacity());
+            int row = aircraft.rowOf(ordinal);
+            int seat = aircraft.columnOf(ordinal) + 1;
+            Ticket cancelled = plain.cancel(row, seat);
+            return cancelled != null && plain.buy(row, seat, cancelled.getPerson()) != null ? 1 : 0;
+        });
+
+        System.out.println(correct ? "OK: every freed seat went to the waitlist, in order" : "FAILED");
+        if (!correct) {
+            System.exit(1);
+        }
+    }
+
+    // Fills a zone's waitlist on a sold-out flight, frees its seats one by one and checks the
+    // order passengers are served in
+    private static boolean checkOrder(Aircraft aircraft, boolean priorities) {
+        BookingService bookings = soldOut(aircraft);
+        int zone = 0;
+        int count = aircraft.seatsInZone(zone);
+        List<Waitlist.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int priority = priorities ? ThreadLocalRandom.current().nextInt(3) : 0;
+            entries.add(bookings.joinWaitlist(zone, new Person("Order", "Check" + i, "order" + i + "@waitlist.com"), priority));
+        }
+        List<Waitlist.Entry> served = new ArrayList<>();
+        for (int ordinal = 0; ordinal < aircraft.capacity(); ordinal++) {
+            if (aircraft.zoneOf(ordinal) != zone) {
+                continue;
+            }
+            bookings.cancel(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1);
+            for (Waitlist.Entry entry : entries) {
+                if (!entry.isWaiting() && !served.contains(entry)) {
+                    served.add(entry);
+                }
+            }
+        }
+        boolean ordered = served.size() == count;
+        for (int i = 1; i < served.size() && ordered; i++) {
+            Waitlist.Entry before = served.get(i - 1);
+            Waitlist.Entry after = served.get(i);
+            ordered = before.getPriority() > after.getPriority()
+                    || before.getPriority() == after.getPriority() && entries.indexOf(before) < entries.indexOf(after);
+        }
+        System.out.printf("%-30s %d passengers served %s%n", priorities ? "priority order" : "first come, first served",
+                served.size(), ordered ? "in order" : "OUT OF ORDER");
+        return ordered;
+    }
+
+    private static BookingService soldOut(Aircraft aircraft) {
+        BookingService bookings = new BookingService("PM1", new SeatMap(aircraft), aircraft.getDefaultFares());
+        Person person = new Person("Sold", "Out", "sold@out.com");
+        for (int ordinal = 0; ordinal < aircraft.capacity(); ordinal++) {
+            bookings.buy(aircraft.rowOf(ordinal), aircraft.columnOf(ordinal) + 1, person);
+        }
+        return bookings;
+    }
+
+    // 40 rows of 9 seats: 4 business rows, the rest economy
+    private static Aircraft widebody() {
+        int[][] zones = new int[40][9];
+        for (int row = 0; row < zones.length; row++) {
+            java.util.Arrays.fill(zones[row], row < 4 ? 0 : 1);
+        }
+        return new Aircraft("WB-360", zones, new int[]{900, 250});
+    }
+}